@@ -0,0 +1,697 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.moeaframework.core.Problem;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variable;
+import org.moeaframework.core.variable.BinaryVariable;
+import tatc.architecture.variable.IntegerVariable;
+import tatc.architecture.variable.RealVariable;
+
+/**
+ * Writes and reads populations in a columnar binary format. The objectives,
+ * the decisions and the attributes of the solutions are saved in typed columns
+ * (int, double or string) so a population takes a fraction of the space of the
+ * text results and can be read without parsing. Binary decisions are saved
+ * as strings of 0s and 1s.
+ *
+ * The file starts with a header describing the columns, followed by blocks of
+ * rows. Each block holds the values of every column for its rows, optionally
+ * compressed. Solutions can be appended to an existing file during a run, and
+ * the reader memory maps the blocks to access any value afterwards without
+ * loading the whole population.
+ *
+ * The types of the columns are taken from the first solution written to the
+ * file. Missing attributes are saved as Integer.MIN_VALUE, NaN or null
+ * depending on the type of the column.
+ *
+ * @author Prachi
+ */
+public class ColumnarPopulationIO {
+
+    /**
+     * Identifies the files in the columnar format and their version
+     */
+    private static final long MAGIC = 0x54415443434f4c31L;
+
+    private static final byte INT = 0;
+
+    private static final byte DOUBLE = 1;
+
+    private static final byte STRING = 2;
+
+    /**
+     * The default number of rows in a block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private ColumnarPopulationIO() {
+    }
+
+    /**
+     * Creates a writer of a new file. An existing file is overwritten.
+     *
+     * @param file the file
+     * @param template a solution with the variables and the attributes of the
+     * solutions that will be written
+     * @param compress true to compress the blocks
+     * @return the writer
+     * @throws IOException
+     */
+    public static Writer newWriter(File file, Solution template, boolean compress) throws IOException {
+        Schema schema = Schema.of(template);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = schema.toBytes();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        return new Writer(channel, schema, compress, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a writer that appends solutions to an existing file
+     *
+     * @param file the file
+     * @param compress true to compress the new blocks
+     * @return the writer
+     * @throws IOException
+     */
+    public static Writer appendWriter(File file, boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Schema schema = Schema.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 20)));
+        channel.position(channel.size());
+        return new Writer(channel, schema, compress, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens a file to read its solutions
+     *
+     * @param file the file
+     * @return the reader
+     * @throws IOException
+     */
+    public static Reader open(File file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Writes a collection of solutions to a new file
+     *
+     * @param file the file
+     * @param solutions the solutions
+     * @param compress true to compress the blocks
+     * @throws IOException
+     */
+    public static void write(File file, Iterable<Solution> solutions, boolean compress) throws IOException {
+        Writer writer = null;
+        try {
+            for (Solution solution : solutions) {
+                if (writer == null) {
+                    writer = newWriter(file, solution, compress);
+                }
+                writer.add(solution);
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * The names and types of the columns of a file
+     */
+    private static final class Schema {
+
+        private final int numberOfObjectives;
+
+        private final byte[] variableTypes;
+
+        private final String[] attributeNames;
+
+        private final byte[] attributeTypes;
+
+        /**
+         * The number of bytes of the header
+         */
+        private final int length;
+
+        private Schema(int numberOfObjectives, byte[] variableTypes, String[] attributeNames, byte[] attributeTypes, int length) {
+            this.numberOfObjectives = numberOfObjectives;
+            this.variableTypes = variableTypes;
+            this.attributeNames = attributeNames;
+            this.attributeTypes = attributeTypes;
+            this.length = length;
+        }
+
+        static Schema of(Solution template) {
+            byte[] variableTypes = new byte[template.getNumberOfVariables()];
+            for (int i = 0; i < variableTypes.length; i++) {
+                Variable variable = template.getVariable(i);
+                if (variable instanceof IntegerVariable) {
+                    variableTypes[i] = INT;
+                } else if (variable instanceof RealVariable) {
+                    variableTypes[i] = DOUBLE;
+                } else if (variable instanceof BinaryVariable) {
+                    variableTypes[i] = STRING;
+                } else {
+                    throw new IllegalArgumentException(String.format("Expected an IntegerVariable, a RealVariable or a"
+                            + " BinaryVariable. Found %s", variable.getClass().getSimpleName()));
+                }
+            }
+            List<String> names = new ArrayList<>(template.getAttributes().keySet());
+            Collections.sort(names);
+            byte[] attributeTypes = new byte[names.size()];
+            for (int i = 0; i < attributeTypes.length; i++) {
+                Object value = template.getAttribute(names.get(i));
+                if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    attributeTypes[i] = INT;
+                } else if (value instanceof Number) {
+                    attributeTypes[i] = DOUBLE;
+                } else {
+                    attributeTypes[i] = STRING;
+                }
+            }
+            return new Schema(template.getNumberOfObjectives(), variableTypes,
+                    names.toArray(new String[names.size()]), attributeTypes, -1);
+        }
+
+        ByteBuffer toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(MAGIC);
+                out.writeInt(numberOfObjectives);
+                out.writeInt(variableTypes.length);
+                out.write(variableTypes);
+                out.writeInt(attributeNames.length);
+                for (int i = 0; i < attributeNames.length; i++) {
+                    byte[] name = attributeNames[i].getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeByte(attributeTypes[i]);
+                }
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+
+        static Schema read(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < Long.BYTES || buffer.getLong() != MAGIC) {
+                throw new IOException("Not a columnar population file.");
+            }
+            int numberOfObjectives = buffer.getInt();
+            byte[] variableTypes = new byte[buffer.getInt()];
+            buffer.get(variableTypes);
+            String[] attributeNames = new String[buffer.getInt()];
+            byte[] attributeTypes = new byte[attributeNames.length];
+            for (int i = 0; i < attributeNames.length; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                attributeNames[i] = new String(name, StandardCharsets.UTF_8);
+                attributeTypes[i] = buffer.get();
+            }
+            return new Schema(numberOfObjectives, variableTypes, attributeNames, attributeTypes, buffer.position());
+        }
+
+        int numberOfColumns() {
+            return numberOfObjectives + variableTypes.length + attributeNames.length;
+        }
+
+        byte columnType(int column) {
+            if (column < numberOfObjectives) {
+                return DOUBLE;
+            } else if (column < numberOfObjectives + variableTypes.length) {
+                return variableTypes[column - numberOfObjectives];
+            } else {
+                return attributeTypes[column - numberOfObjectives - variableTypes.length];
+            }
+        }
+    }
+
+    /**
+     * Writes solutions to a file in blocks of rows. The solutions are buffered
+     * until a block is full, so close must be called to write the last block.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+
+        private final Schema schema;
+
+        private final boolean compress;
+
+        private final int blockSize;
+
+        /**
+         * The rows of the block being filled, one list per column
+         */
+        private final List<List<Object>> columns;
+
+        private int rows;
+
+        private Writer(FileChannel channel, Schema schema, boolean compress, int blockSize) {
+            this.channel = channel;
+            this.schema = schema;
+            this.compress = compress;
+            this.blockSize = blockSize;
+            this.columns = new ArrayList<>(schema.numberOfColumns());
+            for (int i = 0; i < schema.numberOfColumns(); i++) {
+                this.columns.add(new ArrayList<>(blockSize));
+            }
+            this.rows = 0;
+        }
+
+        /**
+         * Adds a solution to the file
+         *
+         * @param solution the solution
+         * @throws IOException
+         */
+        public void add(Solution solution) throws IOException {
+            int column = 0;
+            for (int i = 0; i < schema.numberOfObjectives; i++) {
+                columns.get(column++).add(solution.getObjective(i));
+            }
+            for (int i = 0; i < schema.variableTypes.length; i++) {
+                Variable variable = solution.getVariable(i);
+                if (variable instanceof IntegerVariable) {
+                    columns.get(column++).add(((IntegerVariable) variable).getValue());
+                } else if (variable instanceof RealVariable) {
+                    columns.get(column++).add(((RealVariable) variable).getValue());
+                } else {
+                    BinaryVariable bits = (BinaryVariable) variable;
+                    StringBuilder sb = new StringBuilder(bits.getNumberOfBits());
+                    for (int j = 0; j < bits.getNumberOfBits(); j++) {
+                        sb.append(bits.get(j) ? '1' : '0');
+                    }
+                    columns.get(column++).add(sb.toString());
+                }
+            }
+            for (String name : schema.attributeNames) {
+                columns.get(column++).add(solution.getAttribute(name));
+            }
+            rows++;
+            if (rows >= blockSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered solutions as a block
+         *
+         * @throws IOException
+         */
+        public void flush() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(block)) {
+                out.writeInt(rows);
+                out.writeBoolean(compress);
+                for (int i = 0; i < columns.size(); i++) {
+                    byte[] raw = encode(schema.columnType(i), columns.get(i));
+                    byte[] stored = compress ? deflate(raw) : raw;
+                    out.writeInt(raw.length);
+                    out.writeInt(stored.length);
+                    out.write(stored);
+                    columns.get(i).clear();
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(block.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            rows = 0;
+        }
+
+        private static byte[] encode(byte type, List<Object> values) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (Object value : values) {
+                    switch (type) {
+                        case INT:
+                            out.writeInt(value == null ? Integer.MIN_VALUE : ((Number) value).intValue());
+                            break;
+                        case DOUBLE:
+                            out.writeDouble(value == null ? Double.NaN : ((Number) value).doubleValue());
+                            break;
+                        default:
+                            if (value == null) {
+                                out.writeInt(-1);
+                            } else {
+                                byte[] string = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+                                out.writeInt(string.length);
+                                out.write(string);
+                            }
+                    }
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        private static byte[] deflate(byte[] raw) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.end();
+            return out.toByteArray();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the solutions of a file. The blocks are memory mapped, and
+     * compressed columns are decompressed when they are first accessed.
+     */
+    public static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+
+        private final Schema schema;
+
+        /**
+         * The index of the first row of each block
+         */
+        private final int[] firstRows;
+
+        /**
+         * The values of each column of each block
+         */
+        private final ByteBuffer[][] blocks;
+
+        /**
+         * The columns of each block that are still compressed
+         */
+        private final boolean[][] compressed;
+
+        /**
+         * The offsets of the rows of the string columns of each block
+         */
+        private final int[][][] stringOffsets;
+
+        private final int size;
+
+        private Reader(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            long fileSize = channel.size();
+            this.schema = Schema.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, 1 << 20)));
+
+            //index the blocks by scanning their headers
+            List<Integer> rows = new ArrayList<>();
+            List<ByteBuffer[]> columns = new ArrayList<>();
+            List<Boolean> compressedBlocks = new ArrayList<>();
+            int total = 0;
+            long position = schema.length;
+            ByteBuffer blockHeader = ByteBuffer.allocate(Integer.BYTES + 1);
+            ByteBuffer columnHeader = ByteBuffer.allocate(2 * Integer.BYTES);
+            while (position + blockHeader.capacity() <= fileSize) {
+                blockHeader.clear();
+                channel.read(blockHeader, position);
+                blockHeader.flip();
+                int blockRows = blockHeader.getInt();
+                boolean blockCompressed = blockHeader.get() != 0;
+                position += blockHeader.capacity();
+
+                ByteBuffer[] blockColumns = new ByteBuffer[schema.numberOfColumns()];
+                for (int i = 0; i < blockColumns.length; i++) {
+                    columnHeader.clear();
+                    channel.read(columnHeader, position);
+                    columnHeader.flip();
+                    columnHeader.getInt();
+                    int storedLength = columnHeader.getInt();
+                    position += columnHeader.capacity();
+                    if (position + storedLength > fileSize) {
+                        throw new IOException(String.format("%s ends in the middle of a block.", file.getAbsolutePath()));
+                    }
+                    blockColumns[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, storedLength);
+                    position += storedLength;
+                }
+                rows.add(total);
+                columns.add(blockColumns);
+                compressedBlocks.add(blockCompressed);
+                total += blockRows;
+            }
+
+            this.size = total;
+            this.firstRows = new int[rows.size()];
+            this.blocks = new ByteBuffer[rows.size()][];
+            this.compressed = new boolean[rows.size()][schema.numberOfColumns()];
+            this.stringOffsets = new int[rows.size()][][];
+            for (int b = 0; b < rows.size(); b++) {
+                firstRows[b] = rows.get(b);
+                blocks[b] = columns.get(b);
+                Arrays.fill(compressed[b], compressedBlocks.get(b));
+                stringOffsets[b] = new int[schema.numberOfColumns()][];
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getNumberOfObjectives() {
+            return schema.numberOfObjectives;
+        }
+
+        public int getNumberOfVariables() {
+            return schema.variableTypes.length;
+        }
+
+        public List<String> getAttributeNames() {
+            return Collections.unmodifiableList(Arrays.asList(schema.attributeNames));
+        }
+
+        public double getObjective(int row, int objective) {
+            return getDouble(row, objective);
+        }
+
+        /**
+         * Gets the value of a decision. The values of integer decisions are
+         * converted to double.
+         *
+         * @param row the index of the solution
+         * @param variable the index of the decision
+         * @return the value of the decision
+         */
+        public double getVariable(int row, int variable) {
+            int column = schema.numberOfObjectives + variable;
+            if (schema.columnType(column) == INT) {
+                return getInt(row, column);
+            } else if (schema.columnType(column) == STRING) {
+                throw new IllegalArgumentException(String.format("Decision %d is a binary decision.", variable));
+            }
+            return getDouble(row, column);
+        }
+
+        /**
+         * Gets the value of an attribute
+         *
+         * @param row the index of the solution
+         * @param name the name of the attribute
+         * @return the value of the attribute or null if the solution does not
+         * have the attribute
+         */
+        public Object getAttribute(int row, String name) {
+            int index = Arrays.asList(schema.attributeNames).indexOf(name);
+            if (index < 0) {
+                return null;
+            }
+            int column = schema.numberOfObjectives + schema.variableTypes.length + index;
+            switch (schema.columnType(column)) {
+                case INT:
+                    int intValue = getInt(row, column);
+                    return intValue == Integer.MIN_VALUE ? null : intValue;
+                case DOUBLE:
+                    double doubleValue = getDouble(row, column);
+                    return Double.isNaN(doubleValue) ? null : doubleValue;
+                default:
+                    return getString(row, column);
+            }
+        }
+
+        /**
+         * Reads all the values of an objective
+         *
+         * @param objective the index of the objective
+         * @return the values of the objective of all the solutions
+         */
+        public double[] getObjectives(int objective) {
+            double[] out = new double[size];
+            for (int b = 0; b < blocks.length; b++) {
+                ByteBuffer column = column(b, objective);
+                int rows = blockRows(b);
+                for (int r = 0; r < rows; r++) {
+                    out[firstRows[b] + r] = column.getDouble(r * Double.BYTES);
+                }
+            }
+            return out;
+        }
+
+        /**
+         * Creates a solution of the problem from a row of the file
+         *
+         * @param row the index of the solution
+         * @param problem the problem of the solutions
+         * @return the solution
+         */
+        public Solution getSolution(int row, Problem problem) {
+            Solution solution = problem.newSolution();
+            for (int i = 0; i < schema.numberOfObjectives; i++) {
+                solution.setObjective(i, getObjective(row, i));
+            }
+            for (int i = 0; i < schema.variableTypes.length; i++) {
+                Variable variable = solution.getVariable(i);
+                if (variable instanceof IntegerVariable) {
+                    ((IntegerVariable) variable).setValue((int) getVariable(row, i));
+                } else if (variable instanceof RealVariable) {
+                    ((RealVariable) variable).setValue(getVariable(row, i));
+                } else if (variable instanceof BinaryVariable) {
+                    String bits = getString(row, schema.numberOfObjectives + i);
+                    for (int j = 0; j < bits.length(); j++) {
+                        ((BinaryVariable) variable).set(j, bits.charAt(j) == '1');
+                    }
+                }
+            }
+            for (String name : schema.attributeNames) {
+                Object value = getAttribute(row, name);
+                if (value != null) {
+                    solution.setAttribute(name, (Serializable) value);
+                }
+            }
+            return solution;
+        }
+
+        private int blockRows(int block) {
+            return (block + 1 < firstRows.length ? firstRows[block + 1] : size) - firstRows[block];
+        }
+
+        private int block(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException(String.format("Row %d out of %d rows.", row, size));
+            }
+            int b = Arrays.binarySearch(firstRows, row);
+            return b >= 0 ? b : -b - 2;
+        }
+
+        private double getDouble(int row, int column) {
+            int b = block(row);
+            return column(b, column).getDouble((row - firstRows[b]) * Double.BYTES);
+        }
+
+        private int getInt(int row, int column) {
+            int b = block(row);
+            return column(b, column).getInt((row - firstRows[b]) * Integer.BYTES);
+        }
+
+        private String getString(int row, int column) {
+            int b = block(row);
+            ByteBuffer buffer = column(b, column);
+            synchronized (stringOffsets[b]) {
+                if (stringOffsets[b][column] == null) {
+                    //strings have variable lengths, so their offsets are indexed on the first access
+                    int[] offsets = new int[blockRows(b)];
+                    int position = 0;
+                    for (int r = 0; r < offsets.length; r++) {
+                        offsets[r] = position;
+                        int length = buffer.getInt(position);
+                        position += Integer.BYTES + Math.max(0, length);
+                    }
+                    stringOffsets[b][column] = offsets;
+                }
+            }
+            int position = stringOffsets[b][column][row - firstRows[b]];
+            int length = buffer.getInt(position);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + Integer.BYTES);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Gets the values of a column of a block. The column is decompressed
+         * on its first access.
+         */
+        private ByteBuffer column(int block, int column) {
+            synchronized (blocks[block]) {
+                if (compressed[block][column]) {
+                    blocks[block][column] = inflate(blocks[block][column]);
+                    compressed[block][column] = false;
+                }
+                return blocks[block][column];
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Decompresses a column of a block
+     *
+     * @param stored the compressed column
+     * @return the values of the column
+     */
+    private static ByteBuffer inflate(ByteBuffer stored) {
+        byte[] input = new byte[stored.remaining()];
+        stored.duplicate().get(input);
+        Inflater inflater = new Inflater();
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 2);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Compressed column ends unexpectedly.");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Compressed column is corrupted.", ex);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+}
@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -22,7 +23,9 @@ import org.moeaframework.analysis.collector.Accumulator;
 import org.moeaframework.analysis.collector.InstrumentedAlgorithm;
 import org.moeaframework.core.Population;
 import org.moeaframework.core.PopulationIO;
+import org.moeaframework.core.Problem;
 import org.moeaframework.core.Solution;
+import tatc.tradespaceiterator.SolutionHistory;
 import tatc.tradespaceiterator.search.DrivingFeature;
 import tatc.tradespaceiterator.search.PopulationLabeler;
 
@@ -85,31 +88,76 @@ public class ResultIO implements Serializable{
 
     /**
      * Saves the objective values, decision values, and attributes of the
-     * solutions in the population
+     * solutions in the population. The results are saved in the columnar
+     * binary format (see ColumnarPopulationIO), compressed if the
+     * tatc.compressResults property is true. The space-delimited text results
+     * are also saved unless the tatc.textResults property is false.
      *
      * @param pop
      * @param filename
      */
-    public static void saveSearchResults(Population pop, String filename) {
+    public static void saveSearchResults(Iterable<Solution> pop, String filename) {
         System.out.println("Saving search results");
+        try {
+            ColumnarPopulationIO.write(new File(filename + ".col"), pop,
+                    Boolean.parseBoolean(System.getProperty("tatc.compressResults", "false")));
+        } catch (IOException ex) {
+            Logger.getLogger(ResultIO.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if (Boolean.parseBoolean(System.getProperty("tatc.textResults", "true"))) {
+            saveTextResults(pop, filename);
+        }
+    }
+
+    /**
+     * Saves the search results of a history. The columnar results are
+     * appended to the results of the history as its solutions are spilled
+     * during the search (see SolutionHistory), so only the solutions still in
+     * memory are appended here. The space-delimited text results are also
+     * saved unless the tatc.textResults property is false.
+     *
+     * @param history the history of the search
+     * @param filename
+     */
+    public static void saveSearchResults(SolutionHistory history, String filename) {
+        System.out.println("Saving search results");
+        history.flush();
+        if (Boolean.parseBoolean(System.getProperty("tatc.textResults", "true"))) {
+            saveTextResults(history.solutions(), filename);
+        }
+    }
+
+    /**
+     * Saves the objective values, decision values, and attributes of the
+     * solutions in the population in a space-delimited text file
+     *
+     * @param pop
+     * @param filename
+     */
+    public static void saveTextResults(Iterable<Solution> pop, String filename) {
+        Iterator<Solution> iter = pop.iterator();
+        if (!iter.hasNext()) {
+            return;
+        }
+        Solution first = iter.next();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(filename + ".res")))) {
             //write the headers
-            for (int i = 0; i < pop.get(0).getNumberOfObjectives(); i++) {
+            for (int i = 0; i < first.getNumberOfObjectives(); i++) {
                 bw.append(String.format("obj", i));
                 bw.append(" ");
             }
-            for (int i = 0; i < pop.get(0).getNumberOfVariables(); i++) {
+            for (int i = 0; i < first.getNumberOfVariables(); i++) {
                 bw.append(String.format("dec", i));
                 bw.append(" ");
             }
-            Set<String> attrSet = pop.get(0).getAttributes().keySet();
+            Set<String> attrSet = first.getAttributes().keySet();
             for (String attr : attrSet) {
                 bw.append(attr + " ");
             }
             bw.newLine();
 
             //record values for each solution
-            for (Solution soln : pop) {
+            for (Solution soln = first; soln != null; soln = iter.hasNext() ? iter.next() : null) {
                 for (int i = 0; i < soln.getNumberOfObjectives(); i++) {
                     bw.append(String.valueOf(soln.getObjective(i)));
                     bw.append(" ");
@@ -144,20 +192,24 @@ public class ResultIO implements Serializable{
     }
 
     /**
-     * Writes a collection of solutions to the specified file. This saves all
-     * the explanations as well as any computed objectives Files written using
-     * this method should only be read using the method. This method relies on
-     * serialization.
+     * Writes a collection of solutions to the specified file. This saves the
+     * decisions, the objectives and the attributes of the solutions in the
+     * columnar binary format (see ColumnarPopulationIO), compressed if the
+     * tatc.compressResults property is true. Files written using this method
+     * should only be read using the loadPopulation method.
      *
      * @param pop the solutions to be written in the specified file
      * @param filename the filename including the path to which the solutions
      * are written
      */
-    public static void savePopulation(Population pop, String filename) {
+    public static void savePopulation(Iterable<Solution> pop, String filename) {
         System.out.println("Saving population");
 
         try {
-            PopulationIO.write(new File(filename + ".pop"), pop);
+            //no file is written for an empty population, so the previous one is deleted
+            Files.deleteIfExists(new File(filename + ".pop").toPath());
+            ColumnarPopulationIO.write(new File(filename + ".pop"), pop,
+                    Boolean.parseBoolean(System.getProperty("tatc.compressResults", "false")));
         } catch (IOException ex) {
             Logger.getLogger(ResultIO.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -165,16 +217,28 @@ public class ResultIO implements Serializable{
 
     /**
      * Reads a population from the specified file. Files read using this method
-     * should only have been created using the method. This method relies on
-     * serialization.
+     * should only have been created using the savePopulation method. The
+     * attributes that are not numbers are read as strings.
      *
      * @param filename the filename including the path to which the solutions
      * are written
+     * @param problem the problem creating the solutions
      * @return a population containing all solutions in the specified file
      * @throws IOException if an I/O exception occurred
      */
-    public static Population loadPopulation(String filename) throws IOException {
-        return PopulationIO.read(new File(filename));
+    public static Population loadPopulation(String filename, Problem problem) throws IOException {
+        Population out = new Population();
+        File file = new File(filename);
+        if (!file.exists()) {
+            //no solution was written
+            return out;
+        }
+        try (ColumnarPopulationIO.Reader reader = ColumnarPopulationIO.open(file)) {
+            for (int i = 0; i < reader.size(); i++) {
+                out.add(reader.getSolution(i, problem));
+            }
+        }
+        return out;
     }
 
 
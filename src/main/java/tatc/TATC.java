@@ -57,6 +57,53 @@ public class TATC {
         System.setProperty("tatc.moea", new File(System.getProperty("tatc.results"), "ga_results").getAbsolutePath());
         System.setProperty("tatc.mining", new File(System.getProperty("tatc.results"), "mining_results").getAbsolutePath());
         System.setProperty("tatc.numThreads", "16");
+        //ephemerides streamed by the R&M module during the propagation of the satellites
+        System.setProperty("tatc.ephemerides", new File(System.getProperty("tatc.access_results"), "Ephemerides").getAbsolutePath());
+        //divisors of the numbers of satellites used to decode the planes and phasing of Walker constellations
+        System.setProperty("tatc.divisors", new File(mainPath.getParentFile(), "resources" + File.separator + "1-1000_divisors.txt").getAbsolutePath());
+        //number of architectures evaluated at the same time
+        System.setProperty("tatc.numEvalThreads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        //save the R&M and C&R job requests of every architecture as JSON files
+        System.setProperty("tatc.auditJSON", "false");
+        //maximum number of satellite propagations kept in memory by the R&M module
+        System.setProperty("tatc.propagationCacheSize", "1000");
+        //evaluations shared across runs. Set to an empty string to disable
+        System.setProperty("tatc.evaluationStore", new File(System.getProperty("tatc.results"), "evaluations.db").getAbsolutePath());
+        //island model: number of worker processes, evaluations between migrations and search run on each island (EPS or AOS)
+        System.setProperty("tatc.numIslands", "4");
+        System.setProperty("tatc.migrationInterval", "100");
+        System.setProperty("tatc.islandSearch", "EPS");
+        //function evaluations between checkpoints of the GA, AOS and KDO searches. Set to 0 to disable
+        System.setProperty("tatc.checkpointInterval", "100");
+        //memory used by the history of the solutions found by the GA searches before it is written to disk
+        System.setProperty("tatc.historyMemoryMB", "256");
+        //search results are saved in a columnar binary format. Also save them as space-delimited text
+        System.setProperty("tatc.textResults", "true");
+        //compress the columnar search results
+        System.setProperty("tatc.compressResults", "false");
+        //save the labeled solutions and the driving features of each KDO operator replacement as CSV files
+        System.setProperty("tatc.miningDumps", "false");
+        //engine mining the driving features of the KDO search (APRIORI, ECLAT or INCREMENTAL)
+        System.setProperty("tatc.miningEngine", "INCREMENTAL");
+        //minimum number of behavioral solutions matched by a mined feature
+        System.setProperty("tatc.miningMinMatches", "2");
+        //screen the GA architectures on a coarse mission concept and only fully evaluate the ones that could enter the archive
+        System.setProperty("tatc.screening", "false");
+        //coarse mission concept of the screen: grid spacing multiplier and performance period in seconds
+        System.setProperty("tatc.screeningGridFactor", "3");
+        System.setProperty("tatc.screeningHorizon", "86400");
+        //fraction by which the screened revisit time is reduced before it is compared with the archive
+        System.setProperty("tatc.screeningMargin", "0.25");
+        //pre-screen the offspring of the EPS and AOS searches with a k-nearest neighbor surrogate model
+        System.setProperty("tatc.surrogate", "false");
+        //neighbors of a prediction and true evaluations needed before the model predicts
+        System.setProperty("tatc.surrogateNeighbors", "5");
+        System.setProperty("tatc.surrogateWarmup", "20");
+        //candidate offspring ranked for each true evaluation and budget of true evaluations (0 keeps the budget of the search)
+        System.setProperty("tatc.surrogatePoolSize", "10");
+        System.setProperty("tatc.surrogateEvaluations", "0");
+        //continue the search from the latest checkpoint
+        System.setProperty("tatc.resume", String.valueOf(Arrays.asList(args).contains("--resume")));
         Properties properties = new Properties();
 
         TradespaceSearchRequest tsr = JSONIO.readJSON(
@@ -70,6 +117,8 @@ public class TATC {
          * 1 - GA (MOEA without AOS)
          * 2 - AOS (MOEA with Adaptive Operator Select)
          * 3 - KDO (MOEA with online Adaptive Operator Select/Knowledge Dependent Operator)
+         * 4 - ASYNC (asynchronous steady-state MOEA)
+         * 5 - ISLANDS (island model of MOEAs in separate processes)
          */
         long startTime = System.nanoTime();
 
@@ -91,6 +140,16 @@ public class TATC {
             problem.run();
             problem.shutdown();
         }
+        else if(tsr.getMissionConcept().getSearchPreferences() == 4){
+            StandardFormProblem problem = new StandardFormProblem(tsr,properties, StandardFormProblem.SearchType.ASYNC);
+            problem.run();
+            problem.shutdown();
+        }
+        else if(tsr.getMissionConcept().getSearchPreferences() == 5){
+            StandardFormProblem problem = new StandardFormProblem(tsr,properties, StandardFormProblem.SearchType.ISLANDS);
+            problem.run();
+            problem.shutdown();
+        }
 
         long endTime = System.nanoTime();
         Logger.getGlobal().finest(String.format("Took %.4f sec", (endTime - startTime) / Math.pow(10, 9)));
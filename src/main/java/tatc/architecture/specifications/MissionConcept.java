@@ -208,6 +208,26 @@ public class MissionConcept {
         }
     }
 
+    /**
+     * Gets the area of interest. It is either the path to an EarthPointList
+     * file or a range of latitudes and/or longitudes
+     *
+     * @return the area of interest
+     */
+    public String getAreaOfInterest() {
+        return AreaOfInterest;
+    }
+
+    /**
+     * Gets the ground station options. They are NEN{all,com,gov}, DSN tokens
+     * or paths to EarthPointList files
+     *
+     * @return the ground station options
+     */
+    public String getGroundStationOptions() {
+        return GroundStationOptions;
+    }
+
     public String getObjectsOfInterest() {
         return ObjectsOfInterest;
     }
@@ -329,6 +349,12 @@ public class MissionConcept {
             case "KDO":
                 out = 3;
                 break;
+            case "ASYNC":
+                out = 4;
+                break;
+            case "ISLANDS":
+                out = 5;
+                break;
             default:
                 throw new IllegalArgumentException("No search strategy preference found.");
         }
@@ -358,4 +384,24 @@ public class MissionConcept {
                 Propulsion, UserDirectoryPreference,SearchPreferences,ProblemType);
     }
 
+    /**
+     * Creates a coarser instance of this mission concept to quickly estimate
+     * the performance of a constellation. The coverage grid and the
+     * performance period are replaced.
+     *
+     * @param granularity the granularity of the coarser coverage grid
+     * @param horizon the maximum length of the performance period in seconds.
+     * The period starts at the same time as the period of this mission concept
+     * @return a coarser instance of this mission concept
+     */
+    public MissionConcept coarseCopy(int granularity, int horizon) {
+        String[] period = PerformancePeriod.split(":");
+        int start = Integer.parseInt(period[0]);
+        int end = Math.min(Integer.parseInt(period[1]), start + horizon);
+        return new MissionConcept(StartEpoch, start + ":" + end,
+                MissionDuration, granularity, AreaOfInterest, ObjectsOfInterest,
+                GroundStationOptions, LaunchPreferences, MissionDirector,
+                Propulsion, UserDirectoryPreference,SearchPreferences,ProblemType);
+    }
+
 }
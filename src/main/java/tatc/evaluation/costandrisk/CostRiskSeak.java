@@ -24,7 +24,34 @@ public class CostRiskSeak extends AbstractModule {
 
     @Override
     public AbstractModule call() throws Exception {
-        MasterInput wrapper = JSONIO.readJSON(getInputFile(), MasterInput.class);
+        evaluate(getInputFile(), getOutputFile());
+        return this;
+    }
+
+    /**
+     * Processes the cost and risk job request given in the input file. The
+     * state of the module is not modified so several threads can evaluate
+     * architectures with the same module at the same time.
+     *
+     * @param inputFile the C&R job request
+     * @param outputFile the file where the cost and risk estimates are saved
+     * @throws Exception
+     */
+    public void evaluate(File inputFile, File outputFile) throws Exception {
+        MasterInput wrapper = JSONIO.readJSON(inputFile, MasterInput.class);
+        writeOutput(outputFile, evaluate(wrapper));
+    }
+
+    /**
+     * Processes the cost and risk job request without going through the file
+     * system. The state of the module is not modified so several threads can
+     * evaluate architectures with the same module at the same time.
+     *
+     * @param wrapper the C&R job request
+     * @return the cost and risk estimates
+     * @throws Exception
+     */
+    public ResultOutput evaluate(MasterInput wrapper) throws Exception {
         double totalLifecycleCost = 0;
         double launchCost = 100;
 
@@ -96,10 +123,21 @@ public class CostRiskSeak extends AbstractModule {
         
         SystemRisk[] risk = new SystemRisk[]{new SystemRisk("Configuration Risks", 3, 1, "Risk of unforseen risk arising due to lack of flight heritage")};
         
-        CostRiskJSON cr = new CostRiskJSON(groundC, hardwareC, iatC, launchC, lifecycleC, operationsC, programC, recurringC, nonrecurringC, rank, risk);
+        return new ResultOutput(lifecycleC, hardwareC, iatC, programC, groundC, launchC, operationsC, nonrecurringC, recurringC, rank, risk);
+    }
 
-        JSONIO.writeJSON(getOutputFile(), cr);
-        return this;
+    /**
+     * Saves the cost and risk estimates in the format of the C&R output file
+     *
+     * @param outputFile the file where the cost and risk estimates are saved
+     * @param output the cost and risk estimates
+     */
+    public static void writeOutput(File outputFile, ResultOutput output) {
+        CostRiskJSON cr = new CostRiskJSON(output.getGroundCost(), output.getHardwareCost(), output.getIatCost(),
+                output.getLaunchCost(), output.getLifecycleCost(), output.getNonRecurringCost(), output.getOperationsCost(),
+                output.getProgramCost(), output.getRecurringCost(), output.getSpacecraftRank(), output.getSystemRisk());
+
+        JSONIO.writeJSON(outputFile, cr);
     }
     
 }
@@ -0,0 +1,135 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.orekit.frames.TopocentricFrame;
+import seakers.orekit.coverage.access.RiseSetTime;
+import seakers.orekit.coverage.access.TimeIntervalArray;
+
+/**
+ * Merges the accesses of single satellites into the accesses of the
+ * constellation. A point is accessed by the constellation when it is accessed
+ * by any of its satellites, so the accesses of the constellation are the union
+ * of the intervals of the satellites. The union is computed with a single sweep
+ * over the sorted rise and set times of all the satellites, so merging the
+ * accesses of a constellation costs about as much as sorting its rise and set
+ * times and no scenario needs to be run.
+ *
+ * The access intervals are expected to be closed (every rise time is followed
+ * by a set time) and to share the same head and tail dates, as is the case for
+ * all the propagations of a performance period.
+ *
+ * @author Prachi
+ */
+public class AccessMerger {
+
+    private AccessMerger() {
+    }
+
+    /**
+     * Merges the accesses of several satellites into the accesses of the
+     * constellation to each point
+     *
+     * @param accesses the accesses of each satellite to each point
+     * @return the accesses of the constellation to each point
+     */
+    public static Map<TopocentricFrame, TimeIntervalArray> merge(Collection<Map<TopocentricFrame, TimeIntervalArray>> accesses) {
+        HashMap<TopocentricFrame, List<TimeIntervalArray>> pointAccesses = new HashMap<>();
+        for (Map<TopocentricFrame, TimeIntervalArray> satAccesses : accesses) {
+            for (Map.Entry<TopocentricFrame, TimeIntervalArray> entry : satAccesses.entrySet()) {
+                List<TimeIntervalArray> intervals = pointAccesses.get(entry.getKey());
+                if (intervals == null) {
+                    intervals = new ArrayList<>(accesses.size());
+                    pointAccesses.put(entry.getKey(), intervals);
+                }
+                intervals.add(entry.getValue());
+            }
+        }
+
+        HashMap<TopocentricFrame, TimeIntervalArray> out = new HashMap<>(pointAccesses.size());
+        for (Map.Entry<TopocentricFrame, List<TimeIntervalArray>> entry : pointAccesses.entrySet()) {
+            out.put(entry.getKey(), union(entry.getValue()));
+        }
+        return out;
+    }
+
+    /**
+     * Computes the union of several arrays of access intervals. Intervals
+     * that overlap or touch are merged into a single interval. If only one
+     * array is given, it is returned without copying it.
+     *
+     * @param intervals the arrays of access intervals
+     * @return the union of the access intervals
+     */
+    public static TimeIntervalArray union(List<TimeIntervalArray> intervals) {
+        if (intervals.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one array of access intervals.");
+        }
+        if (intervals.size() == 1) {
+            return intervals.get(0);
+        }
+
+        int size = 0;
+        for (TimeIntervalArray array : intervals) {
+            size += array.getRiseSetTimes().size();
+        }
+
+        //rise and set times are sorted separately. Sweeping over both arrays
+        //gives the union since an interval ends when as many sets as rises
+        //have been seen
+        double[] rises = new double[size];
+        double[] sets = new double[size];
+        int n = 0;
+        int m = 0;
+        for (TimeIntervalArray array : intervals) {
+            for (RiseSetTime time : array.getRiseSetTimes()) {
+                if (time.isRise()) {
+                    rises[n++] = time.getTime();
+                } else {
+                    sets[m++] = time.getTime();
+                }
+            }
+        }
+        if (n != m) {
+            throw new IllegalArgumentException("Expected access intervals with as many rise times as set times.");
+        }
+        Arrays.sort(rises, 0, n);
+        Arrays.sort(sets, 0, m);
+
+        TimeIntervalArray out = new TimeIntervalArray(intervals.get(0).getHead(), intervals.get(0).getTail());
+        if (n == 0) {
+            return out;
+        }
+        int open = 0;
+        int r = 0;
+        int s = 0;
+        while (r < n) {
+            //rises are processed before sets at the same time so that touching intervals are merged
+            if (rises[r] <= sets[s]) {
+                if (open == 0) {
+                    out.addRiseTime(rises[r]);
+                }
+                open++;
+                r++;
+            } else {
+                open--;
+                if (open == 0) {
+                    out.addSetTime(sets[s]);
+                }
+                s++;
+            }
+        }
+        //all intervals are open, the last set time closes the union
+        out.addSetTime(sets[m - 1]);
+        return out;
+    }
+}
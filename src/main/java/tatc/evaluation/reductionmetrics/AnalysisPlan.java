@@ -0,0 +1,115 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * The analyses of the propagation of the satellites that an R&M evaluation
+ * has to run. The plan is derived from the outputs the evaluation has to
+ * produce, so an analysis is only scheduled if one of its products is consumed
+ * by a requested metric or output file.
+ *
+ * @author Prachi
+ */
+public class AnalysisPlan {
+
+    /**
+     * The analyses run during the propagation of the satellites
+     */
+    public enum Step {
+        /**
+         * The accesses of the instruments to the points of interest
+         */
+        FOV_ACCESSES,
+        /**
+         * The accesses of the satellites to the ground stations
+         */
+        GROUND_STATION_ACCESSES,
+        /**
+         * The histories of the orbital elements and of the position of the
+         * satellites
+         */
+        EPHEMERIDES
+    }
+
+    /**
+     * The outputs of an R&M evaluation and the analyses they consume
+     */
+    public enum Output {
+        /**
+         * The metrics used as objectives of the search: the average revisit
+         * time and the mean response time
+         */
+        METRICS(Step.FOV_ACCESSES),
+        /**
+         * The observatory files of each satellite
+         */
+        OBSERVATORY_FILES(Step.EPHEMERIDES),
+        /**
+         * The access files of each satellite to each ground station
+         */
+        GROUND_STATION_FILES(Step.GROUND_STATION_ACCESSES),
+        /**
+         * The access files of each satellite to each point of interest
+         */
+        POI_FILES(Step.FOV_ACCESSES),
+        /**
+         * The local and global metrics files of the constellation. The global
+         * metrics include the latency between the observations and the
+         * downlinks
+         */
+        METRICS_FILES(Step.FOV_ACCESSES, Step.GROUND_STATION_ACCESSES);
+
+        private final EnumSet<Step> steps;
+
+        private Output(Step first, Step... rest) {
+            this.steps = EnumSet.of(first, rest);
+        }
+    }
+
+    private final EnumSet<Step> steps;
+
+    private AnalysisPlan(EnumSet<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * Plans the analyses consumed by the given outputs
+     *
+     * @param outputs the outputs of the evaluation
+     * @return the plan of the analyses
+     */
+    public static AnalysisPlan of(Collection<Output> outputs) {
+        EnumSet<Step> steps = EnumSet.noneOf(Step.class);
+        for (Output output : outputs) {
+            steps.addAll(output.steps);
+        }
+        return new AnalysisPlan(steps);
+    }
+
+    /**
+     * Plans the analyses of an evaluation that computes the metrics and
+     * optionally saves all the output files
+     *
+     * @param saveOutputs true if the output files are saved
+     * @return the plan of the analyses
+     */
+    public static AnalysisPlan of(boolean saveOutputs) {
+        return of(saveOutputs ? EnumSet.allOf(Output.class) : EnumSet.of(Output.METRICS));
+    }
+
+    /**
+     * Checks if an analysis is scheduled
+     *
+     * @param step the analysis
+     * @return true if the analysis is scheduled
+     */
+    public boolean requires(Step step) {
+        return steps.contains(step);
+    }
+}
@@ -5,39 +5,37 @@
  */
 package tatc.evaluation.reductionmetrics;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import seakers.orekit.analysis.Record;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * Coarse orbit propagation metrics saved for observatories
+ * Coarse orbit propagation metrics saved for observatories. The rows are read
+ * one at a time from the ephemerides streamed by the EphemerisSink during the
+ * propagation.
  *
  * @author nhitomi
  */
 public class CoarsePropObservatories extends AbstractRMOutput {
     
-    private final Collection<Record> orbit;
-    
-    private final Collection<Record> vector;
-    
-    private final Iterator<Record> orbitIterator;
+    /**
+     * The ephemerides of the observatory written by the EphemerisSink
+     */
+    private final File ephemerides;
     
-    private final Iterator<Record> vectorIterator;
-
-    private int count;
+    private BufferedReader reader;
     
-    public CoarsePropObservatories(Collection<Record> orbit, Collection<Record> vector) {
+    public CoarsePropObservatories(File ephemerides) {
         super(groupsInit(), metaDataInit(), summaryInit(), metricsInit(), unitsInit());
-        this.orbit = orbit;
-        this.vector = vector;
-        this.orbitIterator = orbit.iterator();
-        this.vectorIterator = vector.iterator();
-        this.count = 0;
+        this.ephemerides = ephemerides;
     }
        
     private static String metaDataInit(){
@@ -67,7 +65,7 @@ public class CoarsePropObservatories extends AbstractRMOutput {
     private static Map<String, List<String>> unitsInit(){
         Map<String, List<String>> units = new HashMap<>();
         units.put("ObsOrbit", Arrays.asList(new String[]{"[m]","","[deg]","[deg]","[deg]","[deg]"}));
-        units.put("ObsCoordinates", Arrays.asList(new String[]{"[deg]","[deg]","[deg]"}));
+        units.put("ObsCoordinates", Arrays.asList(new String[]{"[deg]","[deg]","[m]"}));
         return units;
     }
     
@@ -88,23 +86,23 @@ public class CoarsePropObservatories extends AbstractRMOutput {
         return ".csv";
     }
 
-        @Override
+    @Override
     protected String nextEntry() {
-        if (orbitIterator.hasNext() && vectorIterator.hasNext()) {
-            String[] entry = new String[6];
-            Record orb = orbitIterator.next();
-            Record vec = vectorIterator.next();
-            entry[0] = String.valueOf(orb.getDate().durationFrom(orbit.iterator().next().getDate()));
-            entry[1] = "";
-            entry[2] = "";
-            entry[3] = orb.getValue().toString();
-            entry[4] = "";
-            entry[5] = vec.getValue().toString();
-            
-            return String.join(",", entry);
-        }
-        else{
+        try {
+            if (reader == null) {
+                if (!ephemerides.isFile()) {
+                    return null;
+                }
+                reader = new BufferedReader(new FileReader(ephemerides));
+            }
+            String line = reader.readLine();
+            if (line == null) {
+                reader.close();
+            }
+            return line;
+        } catch (IOException ex) {
+            Logger.getLogger(CoarsePropObservatories.class.getName()).log(Level.SEVERE, null, ex);
             return null;
-        }    
+        }
     }
-}
\ No newline at end of file
+}
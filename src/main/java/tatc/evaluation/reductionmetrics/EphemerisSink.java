@@ -0,0 +1,186 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Formatter;
+import java.util.Locale;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.orekit.bodies.BodyShape;
+import org.orekit.bodies.GeodeticPoint;
+import org.orekit.errors.OrekitException;
+import org.orekit.frames.Frame;
+import org.orekit.orbits.KeplerianOrbit;
+import org.orekit.orbits.OrbitType;
+import org.orekit.orbits.PositionAngle;
+import org.orekit.propagation.SpacecraftState;
+import org.orekit.time.AbsoluteDate;
+import seakers.orekit.analysis.vectors.VectorAnalysis;
+import seakers.orekit.object.Satellite;
+import seakers.orekit.propagation.PropagatorFactory;
+
+/**
+ * Streams the ephemerides of a satellite to a file while it is propagated.
+ * Each step is written as a row of the observatory output with the Keplerian
+ * elements and the geodetic coordinates of the satellite, and no history of
+ * the steps is kept in memory. The rows are formatted by a reusable formatter
+ * and written through a buffered file channel, so the memory used does not
+ * depend on the length of the performance period.
+ *
+ * @author Prachi
+ */
+public class EphemerisSink extends VectorAnalysis {
+
+    /**
+     * The size in bytes of the buffer of the file channel
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Satellite sat;
+
+    private final AbsoluteDate startDate;
+
+    private final Frame inertialFrame;
+
+    private final BodyShape earthShape;
+
+    /**
+     * The file the rows are written to
+     */
+    private final File file;
+
+    private final StringBuilder row;
+
+    private final Formatter formatter;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer buffer;
+
+    private FileChannel channel;
+
+    public EphemerisSink(AbsoluteDate startDate, AbsoluteDate endDate, double timeStep, Satellite sat,
+            PropagatorFactory propagatorFactory, Frame inertialFrame, BodyShape earthShape, File file) {
+        super(startDate, endDate, timeStep, sat, propagatorFactory, inertialFrame);
+        this.sat = sat;
+        this.startDate = startDate;
+        this.inertialFrame = inertialFrame;
+        this.earthShape = earthShape;
+        this.file = file;
+        this.row = new StringBuilder(256);
+        this.formatter = new Formatter(row, Locale.US);
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    @Override
+    public Vector3D getVector(SpacecraftState currentState, Frame frame) throws OrekitException {
+        return currentState.getPVCoordinates(frame).getPosition();
+    }
+
+    @Override
+    public String getName() {
+        return String.format("ephemeris_%s", sat.getName());
+    }
+
+    /**
+     * Writes the row of the current step instead of adding it to the history
+     */
+    @Override
+    public void handleStep(SpacecraftState currentState, boolean isLast) throws OrekitException {
+        KeplerianOrbit orbit = (KeplerianOrbit) OrbitType.KEPLERIAN.convertType(currentState.getOrbit());
+        Vector3D position = getVector(currentState, inertialFrame);
+        GeodeticPoint point = earthShape.transform(position, inertialFrame, currentState.getDate());
+
+        row.setLength(0);
+        formatter.format("%.3f,,,%.3f,%.8f,%.6f,%.6f,%.6f,%.6f,,%.6f,%.6f,%.3f%n",
+                currentState.getDate().durationFrom(startDate),
+                orbit.getA(), orbit.getE(),
+                Math.toDegrees(orbit.getI()),
+                Math.toDegrees(orbit.getRightAscensionOfAscendingNode()),
+                Math.toDegrees(orbit.getPerigeeArgument()),
+                Math.toDegrees(orbit.getAnomaly(PositionAngle.MEAN)),
+                Math.toDegrees(point.getLatitude()),
+                Math.toDegrees(point.getLongitude()),
+                point.getAltitude());
+        try {
+            write(row);
+            if (isLast) {
+                close();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(String.format("Failed to write the ephemerides to %s.", file), ex);
+        }
+    }
+
+    /**
+     * Encodes the row into the buffer and writes the buffer to the file when
+     * it is full
+     */
+    private void write(CharSequence chars) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer to the file
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining rows and closes the file. Called after the last
+     * step of the propagation.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Gets the file the rows are written to
+     *
+     * @return the file the rows are written to
+     */
+    public File getFile() {
+        return file;
+    }
+}
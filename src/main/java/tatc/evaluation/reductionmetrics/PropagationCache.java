@@ -0,0 +1,318 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import org.orekit.bodies.BodyShape;
+import org.orekit.errors.OrekitException;
+import org.orekit.time.AbsoluteDate;
+import seakers.orekit.object.CoveragePoint;
+import seakers.orekit.object.GndStation;
+import tatc.architecture.specifications.GroundStationSpecification;
+import tatc.architecture.specifications.MissionConcept;
+import tatc.architecture.specifications.MonoSpecification;
+import tatc.architecture.specifications.SatelliteOrbitSpecification;
+
+/**
+ * A bounded cache of the propagations of single satellites. Most of the
+ * satellites in an architecture were already propagated in a previous
+ * evaluation (e.g. the existing satellites or the planes of a Walker
+ * constellation), so only the satellites that were not seen before need to be
+ * propagated. The least recently used propagations are evicted when the cache
+ * is full.
+ *
+ * The accesses of the satellites are indexed by the points of interest and the
+ * ground stations, so the cache also keeps the points and the stations to
+ * reuse them in all the evaluations. The cache is safe to use from several
+ * threads.
+ *
+ * The cache owns the ephemeris files of its propagations: the file of a
+ * propagation is deleted when the propagation is evicted or replaced, and the
+ * remaining files are deleted when the cache is cleared.
+ *
+ * @author Prachi
+ */
+public class PropagationCache {
+
+    /**
+     * The maximum number of propagations kept in the cache
+     */
+    private final int capacity;
+
+    /**
+     * The propagations in least recently used order
+     */
+    private final LinkedHashMap<Key, SatellitePropagation> propagations;
+
+    /**
+     * The points of interest of each grid
+     */
+    private final HashMap<String, Set<CoveragePoint>> pois;
+
+    /**
+     * The ground stations created for each set of specifications
+     */
+    private final HashMap<Set<GroundStationSpecification>, Set<GndStation>> groundStations;
+
+    private long hits;
+
+    private long misses;
+
+    public PropagationCache(int capacity) {
+        this.capacity = capacity;
+        this.propagations = new LinkedHashMap<Key, SatellitePropagation>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SatellitePropagation> eldest) {
+                if (size() > PropagationCache.this.capacity) {
+                    deleteEphemerides(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.pois = new HashMap<>();
+        this.groundStations = new HashMap<>();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Gets the propagation of a satellite
+     *
+     * @param key the key of the satellite
+     * @return the propagation of the satellite or null if it is not in the
+     * cache
+     */
+    public synchronized SatellitePropagation get(Key key) {
+        SatellitePropagation out = propagations.get(key);
+        if (out == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return out;
+    }
+
+    /**
+     * Adds the propagation of a satellite to the cache
+     *
+     * @param key the key of the satellite
+     * @param propagation the propagation of the satellite
+     */
+    public synchronized void put(Key key, SatellitePropagation propagation) {
+        if (capacity > 0) {
+            SatellitePropagation previous = propagations.put(key, propagation);
+            if (previous != null && previous != propagation) {
+                deleteEphemerides(previous);
+            }
+        }
+    }
+
+    /**
+     * Checks if the propagations are kept in the cache
+     *
+     * @return true if the capacity of the cache is positive
+     */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Removes all the propagations from the cache and deletes their ephemeris
+     * files
+     */
+    public synchronized void clear() {
+        for (SatellitePropagation propagation : propagations.values()) {
+            deleteEphemerides(propagation);
+        }
+        propagations.clear();
+    }
+
+    /**
+     * Deletes the ephemeris file of a propagation
+     *
+     * @param propagation the propagation
+     */
+    private static void deleteEphemerides(SatellitePropagation propagation) {
+        File file = propagation.getEphemerides();
+        if (file != null && file.exists() && !file.delete()) {
+            Logger.getGlobal().warning(String.format("Failed to delete the ephemerides %s.", file));
+        }
+    }
+
+    /**
+     * Gets the points of interest of the mission concept. The same points are
+     * returned for all the mission concepts with the same area of interest and
+     * granularity.
+     *
+     * @param concept the mission concept
+     * @param earthShape the shape of the earth to project the points onto
+     * @return the points of interest
+     * @throws OrekitException
+     */
+    public synchronized Set<CoveragePoint> getPOI(MissionConcept concept, BodyShape earthShape) throws OrekitException {
+        String grid = gridID(concept);
+        Set<CoveragePoint> out = pois.get(grid);
+        if (out == null) {
+            out = concept.getPOI(earthShape);
+            pois.put(grid, out);
+        }
+        return out;
+    }
+
+    /**
+     * Gets the ground stations of the given specifications. The same ground
+     * stations are returned for equal sets of specifications.
+     *
+     * @param specs the specifications of the ground stations
+     * @param loader creates the ground stations if they are not in the cache
+     * @return the ground stations
+     */
+    public synchronized Set<GndStation> getGroundStations(Set<GroundStationSpecification> specs,
+            Function<Set<GroundStationSpecification>, Set<GndStation>> loader) {
+        return groundStations.computeIfAbsent(specs, loader);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return propagations.size();
+    }
+
+    /**
+     * Identifies the grid of points of interest of a mission concept
+     *
+     * @param concept the mission concept
+     * @return the id of the grid
+     */
+    private static String gridID(MissionConcept concept) {
+        return concept.getAreaOfInterest() + "_" + concept.getGranularity();
+    }
+
+    /**
+     * The key of the propagation of a single satellite. Two satellites with
+     * the same key have the same accesses and ephemerides.
+     */
+    public static final class Key {
+
+        private final SatelliteOrbitSpecification orbit;
+
+        private final double crossFieldOfView;
+
+        private final double alongFieldOfView;
+
+        private final String commBandTypes;
+
+        private final Set<GroundStationSpecification> groundStations;
+
+        private final int propagationFidelity;
+
+        private final String grid;
+
+        private final AbsoluteDate startDate;
+
+        private final AbsoluteDate endDate;
+
+        private final double timeStep;
+
+        /**
+         * Creates the key of a satellite
+         *
+         * @param mono the specification of the satellite
+         * @param groundStations the ground stations assigned to the satellite
+         * @param propagationFidelity the fidelity of the propagator
+         * @param startDate the start date of the performance period
+         * @param endDate the end date of the performance period
+         * @param timeStep the time step of the ephemerides
+         */
+        public Key(MonoSpecification mono, Set<GroundStationSpecification> groundStations,
+                int propagationFidelity, AbsoluteDate startDate, AbsoluteDate endDate, double timeStep) {
+            this.orbit = mono.getSatelliteOrbit();
+            this.crossFieldOfView = mono.getInstrumentSpecification().getCrossFieldOfView();
+            this.alongFieldOfView = mono.getInstrumentSpecification().getAlongFieldOfView();
+            this.commBandTypes = mono.getObservatorySpecification().getCommBandTypes();
+            this.groundStations = groundStations;
+            this.propagationFidelity = propagationFidelity;
+            this.grid = gridID(mono.getMissionConcept());
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.timeStep = timeStep;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 59 * hash + Objects.hashCode(this.orbit);
+            hash = 59 * hash + (int) (Double.doubleToLongBits(this.crossFieldOfView) ^ (Double.doubleToLongBits(this.crossFieldOfView) >>> 32));
+            hash = 59 * hash + (int) (Double.doubleToLongBits(this.alongFieldOfView) ^ (Double.doubleToLongBits(this.alongFieldOfView) >>> 32));
+            hash = 59 * hash + Objects.hashCode(this.commBandTypes);
+            hash = 59 * hash + Objects.hashCode(this.groundStations);
+            hash = 59 * hash + this.propagationFidelity;
+            hash = 59 * hash + Objects.hashCode(this.grid);
+            hash = 59 * hash + Objects.hashCode(this.startDate);
+            hash = 59 * hash + Objects.hashCode(this.endDate);
+            hash = 59 * hash + (int) (Double.doubleToLongBits(this.timeStep) ^ (Double.doubleToLongBits(this.timeStep) >>> 32));
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if (Double.doubleToLongBits(this.crossFieldOfView) != Double.doubleToLongBits(other.crossFieldOfView)) {
+                return false;
+            }
+            if (Double.doubleToLongBits(this.alongFieldOfView) != Double.doubleToLongBits(other.alongFieldOfView)) {
+                return false;
+            }
+            if (this.propagationFidelity != other.propagationFidelity) {
+                return false;
+            }
+            if (Double.doubleToLongBits(this.timeStep) != Double.doubleToLongBits(other.timeStep)) {
+                return false;
+            }
+            if (!Objects.equals(this.commBandTypes, other.commBandTypes)) {
+                return false;
+            }
+            if (!Objects.equals(this.grid, other.grid)) {
+                return false;
+            }
+            if (!Objects.equals(this.orbit, other.orbit)) {
+                return false;
+            }
+            if (!Objects.equals(this.groundStations, other.groundStations)) {
+                return false;
+            }
+            if (!Objects.equals(this.startDate, other.startDate)) {
+                return false;
+            }
+            return Objects.equals(this.endDate, other.endDate);
+        }
+    }
+}
@@ -18,9 +18,9 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.hipparchus.geometry.euclidean.threed.Vector3D;
 import org.orekit.bodies.BodyShape;
 import org.orekit.bodies.GeodeticPoint;
 import org.orekit.bodies.OneAxisEllipsoid;
@@ -29,19 +29,12 @@ import org.orekit.frames.Frame;
 import org.orekit.frames.FramesFactory;
 import org.orekit.frames.TopocentricFrame;
 import org.orekit.orbits.Orbit;
-import org.orekit.orbits.PositionAngle;
-import org.orekit.propagation.SpacecraftState;
 import org.orekit.time.AbsoluteDate;
 import org.orekit.time.TimeScale;
 import org.orekit.time.TimeScalesFactory;
 import org.orekit.utils.Constants;
 import org.orekit.utils.IERSConventions;
-import seakers.orekit.analysis.AbstractSpacecraftAnalysis;
 import seakers.orekit.analysis.Analysis;
-import seakers.orekit.analysis.CompoundSpacecraftAnalysis;
-import seakers.orekit.analysis.Record;
-import seakers.orekit.analysis.ephemeris.OrbitalElementsAnalysis;
-import seakers.orekit.analysis.vectors.VectorAnalysis;
 import seakers.orekit.coverage.access.TimeIntervalArray;
 import seakers.orekit.coverage.analysis.AnalysisMetric;
 import seakers.orekit.coverage.analysis.GroundEventAnalyzer;
@@ -50,6 +43,7 @@ import seakers.orekit.event.*;
 import seakers.orekit.object.CommunicationBand;
 import seakers.orekit.object.Constellation;
 import seakers.orekit.object.CoverageDefinition;
+import seakers.orekit.object.CoveragePoint;
 import seakers.orekit.object.GndStation;
 import seakers.orekit.object.Instrument;
 import seakers.orekit.object.Satellite;
@@ -90,36 +84,48 @@ public class ReductionMetrics extends AbstractModule {
     private TradespaceSearchRequest tsr;
 
     /**
-     * eval counter for the number of Orbits
+     * eval counter for the number of Orbits. Orb directories are reserved
+     * atomically so that concurrent evaluations never write to the same one
      */
-    private int evalCounter;
+    private final AtomicInteger evalCounter = new AtomicInteger();
 
     /**
-     * eval counter for the number of Ground Station parameters
+     * flag to check if orekit has been configured for the R&M modules
      */
-    private int gndStnCounter;
-
-    /**
-     * eval counter for the number of Payload parameters
-     */
-    private int payloadCounter;
+    private static boolean orekitInitialized = false;
 
     private JsonArray monosJson;
 
     private int userWantsDirectories;
 
+    /**
+     * The propagations of the satellites seen in previous evaluations
+     */
+    private final PropagationCache propagationCache;
+
     public ReductionMetrics(File inputFile, File outputFile, TradespaceSearchRequest tsr, Properties properties) {
         super(inputFile, outputFile);
         this.properties = properties;
         this.tsr = tsr;
         this.userWantsDirectories = tsr.getMissionConcept().getUserDiectoryPreference();
-        OrekitConfig.init(Integer.valueOf(System.getProperty("tatc.numThreads", "1")));
+        this.propagationCache = new PropagationCache(Integer.parseInt(System.getProperty("tatc.propagationCacheSize", "1000")));
+        initOrekit();
     }
 
-    private void updateJSON() {
-        this.monosJson.add("Orb" + Integer.toString(10000 + this.getEvalCounter()).substring(1) + "_" +
-                "Pay" + Integer.toString(10000 + this.getPayloadCounter()).substring(1) + "_" +
-                "GS" + Integer.toString(10000 + this.getGndStnCounter()).substring(1));
+    /**
+     * Configures orekit only once for all the R&M modules
+     */
+    private static synchronized void initOrekit() {
+        if (!orekitInitialized) {
+            OrekitConfig.init(Integer.valueOf(System.getProperty("tatc.numThreads", "1")));
+            orekitInitialized = true;
+        }
+    }
+
+    private static void updateJSON(JsonArray monosJson, int orbID, int payloadCounter, int gndStnCounter) {
+        monosJson.add("Orb" + Integer.toString(10000 + orbID).substring(1) + "_" +
+                "Pay" + Integer.toString(10000 + payloadCounter).substring(1) + "_" +
+                "GS" + Integer.toString(10000 + gndStnCounter).substring(1));
     }
 
     public JsonArray getJSON() {
@@ -128,40 +134,92 @@ public class ReductionMetrics extends AbstractModule {
 
     @Override
     public ReductionMetrics call() throws Exception {
+        ReductionMetricsResult result = evaluate(getInputFile(), getOutputFile());
+        this.metrics = result.getMetrics();
+        this.monosJson = result.getJSON();
+        return this;
+    }
+
+    /**
+     * Processes the reduction and metrics job request given in the input file.
+     * The state of the module is not modified so several threads can evaluate
+     * architectures with the same module at the same time.
+     *
+     * @param inputFile the R&M job request
+     * @param outputDirectory the directory where the outputs are saved
+     * @return the metrics and the manifest of the monoliths of the architecture
+     * @throws Exception
+     */
+    public ReductionMetricsResult evaluate(File inputFile, File outputDirectory) throws Exception {
+        DSMSpecification dsmSpec = JSONIO.readJSON(inputFile, DSMSpecification.class);
+        return evaluate(dsmSpec, outputDirectory);
+    }
+
+    /**
+     * Processes the reduction and metrics job request without going through
+     * the file system. The state of the module is not modified so several
+     * threads can evaluate architectures with the same module at the same
+     * time.
+     *
+     * @param dsmSpec the R&M job request
+     * @param outputDirectory the directory where the outputs are saved
+     * @return the metrics and the manifest of the monoliths of the architecture
+     * @throws Exception
+     */
+    public ReductionMetricsResult evaluate(DSMSpecification dsmSpec, File outputDirectory) throws Exception {
+        return evaluate(dsmSpec, outputDirectory, userWantsDirectories == 1);
+    }
+
+    /**
+     * Computes the metrics of the R&M job request without saving any outputs.
+     * Used to quickly screen architectures on a coarse mission concept.
+     *
+     * @param dsmSpec the R&M job request
+     * @return the metrics of the architecture
+     * @throws Exception
+     */
+    public double[] screen(DSMSpecification dsmSpec) throws Exception {
+        return evaluate(dsmSpec, null, false).getMetrics();
+    }
+
+    private ReductionMetricsResult evaluate(DSMSpecification dsmSpec, File outputDirectory, boolean saveOutputs) throws Exception {
         //Initializing parameters for the propagation of the satellites
-        TimeScale timeScale = TimeScalesFactory.getUTC();
-        Frame inertialFrame = FramesFactory.getEME2000();
         Frame earthFrame = FramesFactory.getITRF(IERSConventions.IERS_2003, true);
         BodyShape earthShape = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS,
                 Constants.WGS84_EARTH_FLATTENING, earthFrame);
-        PropagatorFactory propatagorFactory = this.tsr.getSatelliteOrbits().getPropagatorFactory();
+        int propagationFidelity = this.tsr.getSatelliteOrbits().getPropagationFidelity();
         double analysisTimeStep = Double.parseDouble(this.tsr.getFullOutputs().getTimeStep());
+        //only the analyses consumed by the metrics and the saved outputs are run
+        AnalysisPlan plan = AnalysisPlan.of(saveOutputs);
 
-        DSMSpecification dsmSpec = JSONIO.readJSON(getInputFile(), DSMSpecification.class);
         AbsoluteDate startDate = dsmSpec.getMissionConcept().getPerformancePeriod()[0];
         AbsoluteDate endDate = dsmSpec.getMissionConcept().getPerformancePeriod()[1];
 
-        this.monosJson = new JsonArray();
+        JsonArray monosJson = new JsonArray();
+        double[] metrics;
 
-        //coverage region
-        HashSet<CoverageDefinition> cdefs = new HashSet();
-        CoverageDefinition cdef = new CoverageDefinition("Coverage Definition",
-                dsmSpec.getMissionConcept().getPOI(earthShape));
+        //coverage region. The points are shared by all evaluations so that the cached accesses can be reused
+        Set<CoveragePoint> pois = propagationCache.getPOI(dsmSpec.getMissionConcept(), earthShape);
 
         //include all satellites in the simulation.
-        //Any pre-propagated satellites in the coverage database will be uploaded and not re-run
+        //Any satellites in the propagation cache will be reused and not re-run
         HashSet<Satellite> satellites = new HashSet<>();
 
         HashMap<Satellite, Set<GndStation>> stationAssignment = new HashMap<>();
 
         HashMap<Satellite, MonoSpecification> monoSpecs = new HashMap<>();
 
+        HashMap<Satellite, SatellitePropagation> propagations = new HashMap<>();
+
+        HashMap<Satellite, PropagationCache.Key> newSatellites = new HashMap<>();
+
         int i = 0;
         for (MonoSpecification mono : dsmSpec.getManifestOfMonoSpecifications()) {
 
             //load ground stations
-            Set<GndStation> groundStations = loadGroundStations(
-                    mono.getMissionConcept().getGroundStationSpecifications(), earthShape);
+            Set<GroundStationSpecification> gndStationSpecs = mono.getMissionConcept().getGroundStationSpecifications();
+            Set<GndStation> groundStations = propagationCache.getGroundStations(
+                    gndStationSpecs, specs -> loadGroundStations(specs, earthShape));
 
             Orbit orbit = new KeplerianElements(startDate, mono.getSatelliteOrbit());
 
@@ -197,64 +255,40 @@ public class ReductionMetrics extends AbstractModule {
 
             monoSpecs.put(sat, mono);
 
+            //check if the satellite was propagated in a previous evaluation
+            PropagationCache.Key key = new PropagationCache.Key(mono, gndStationSpecs,
+                    propagationFidelity, startDate, endDate, analysisTimeStep);
+            SatellitePropagation propagation = propagationCache.get(key);
+            if (propagation == null || !propagation.covers(plan)) {
+                newSatellites.put(sat, key);
+            } else {
+                propagations.put(sat, propagation);
+            }
+
             i++;
         }
 
-        Constellation constel = new Constellation("Constellation 0", satellites);
-        cdef.assignConstellation(constel);
-        cdefs.add(cdef);
-
-        ArrayList<EventAnalysis> eventAnalyses = new ArrayList<>();
-        EventAnalysisFactory eaf = new EventAnalysisFactory(startDate, endDate,
-                inertialFrame, propatagorFactory);
-        Properties props = new Properties();
-        props.setProperty("fov.saveAccess", "true");
-        FieldOfViewEventAnalysis fovAnalysis = (FieldOfViewEventAnalysis) eaf.createGroundPointAnalysis(EventAnalysisEnum.FOV, cdefs, props);
-        eventAnalyses.add(fovAnalysis);
-        GndStationEventAnalysis gndStationAnalysis = (GndStationEventAnalysis) eaf.createGroundStationAnalysis(EventAnalysisEnum.ACCESS, stationAssignment, properties);
-        eventAnalyses.add(gndStationAnalysis);
-//        FieldOfViewAndGndStationEventAnalysis fovAndGndStationAnalysis=new FieldOfViewAndGndStationEventAnalysis(startDate, endDate,
-//                inertialFrame, cdefs, stationAssignment,propatagorFactory, true, false);
-//        eventAnalyses.add(fovAndGndStationAnalysis);
-
-        ArrayList<Analysis<?>> analyses = new ArrayList<>();
-        HashMap<Satellite, Analysis> anaToSat = new HashMap<>();
-        for (final Satellite sat : constel.getSatellites()) {
-            Collection<AbstractSpacecraftAnalysis<?>> abstractAnalysis = new ArrayList<>();
-            abstractAnalysis.add(new OrbitalElementsAnalysis(startDate, endDate, analysisTimeStep, sat, PositionAngle.MEAN, propatagorFactory));
-            abstractAnalysis.add(new VectorAnalysis(startDate, endDate, analysisTimeStep, sat, propatagorFactory, inertialFrame) {
-                @Override
-                public Vector3D getVector(SpacecraftState currentState, Frame frame) throws OrekitException {
-                    return currentState.getPVCoordinates(frame).getPosition();
-                }
-
-                @Override
-                public String getName() {
-                    return String.format("position_%s", sat.getName());
-                }
-            });
-            analyses.add(new CompoundSpacecraftAnalysis(startDate, endDate, analysisTimeStep, sat, propatagorFactory, abstractAnalysis));
-            anaToSat.put(sat, analyses.get(analyses.size() - 1));
+        //only propagate the satellites that were not seen before
+        if (!newSatellites.isEmpty()) {
+            propagations.putAll(propagate(newSatellites, pois, stationAssignment, startDate, endDate, earthShape, plan));
         }
-
-        Scenario scen = new Scenario("", startDate, endDate,
-                timeScale, inertialFrame, propatagorFactory,
-                cdefs, eventAnalyses, analyses, properties);
-
-        try {
-            scen.call();
-        } catch (Exception ex) {
-            throw new IllegalStateException("Evaluation failed.", ex);
+        Logger.getGlobal().finest(String.format("Propagated %d of %d satellites (propagation cache: %d hits, %d misses).",
+                newSatellites.size(), satellites.size(), propagationCache.getHits(), propagationCache.getMisses()));
+
+        //accesses of each satellite
+        HashMap<Satellite, Map<TopocentricFrame, TimeIntervalArray>> fovAccesses = new HashMap<>();
+        HashMap<Satellite, Map<TopocentricFrame, TimeIntervalArray>> gndStationAccesses = new HashMap<>();
+        for (Satellite sat : satellites) {
+            fovAccesses.put(sat, propagations.get(sat).getFOVAccesses());
+            if (plan.requires(AnalysisPlan.Step.GROUND_STATION_ACCESSES)) {
+                gndStationAccesses.put(sat, propagations.get(sat).getGndStationAccesses());
+            }
         }
 
-        if (userWantsDirectories == 1) {
-
-            Map<Satellite, Map<TopocentricFrame, TimeIntervalArray>> satAccess = new HashMap<>();
-
-            for (Satellite sat : satellites) {
-                satAccess.put(sat, fovAnalysis.getSatelliteAccesses(cdef, sat));
-            }
+        //accesses of the constellation
+        Map<TopocentricFrame, TimeIntervalArray> fovEvents = AccessMerger.merge(fovAccesses.values());
 
+        if (saveOutputs) {
 
             //get TCavg, TCmin, TCmax
             //TCmin
@@ -264,27 +298,21 @@ public class ReductionMetrics extends AbstractModule {
             // For every orbital and vector analysis in analysis array
 
             for (Satellite sat : satellites) {
-                setGndStnCounter(0);
-                setPayloadCounter(0);
-                Analysis analysis = anaToSat.get(sat);
-                Collection<Record> orbitAnalysis = new ArrayList<>();
-                Collection<Record> vectorAnalysis = new ArrayList<>();
-
-                for (Analysis anal : ((CompoundSpacecraftAnalysis) analysis).getAnalyses()) {
-                    if (anal instanceof OrbitalElementsAnalysis) {
-                        orbitAnalysis.addAll(anal.getHistory());
+                int orbID = evalCounter.getAndIncrement();
+                int gndStnCounter = 0;
+                int payloadCounter = 0;
+                SatellitePropagation propagation = propagations.get(sat);
 
-                    } else {
-                        vectorAnalysis.addAll(anal.getHistory());
-                    }
-                }
+                Map<TopocentricFrame, TimeIntervalArray> satAccesses = fovAccesses.get(sat);
 
-                Map<TopocentricFrame, TimeIntervalArray> satAccesses = satAccess.get(sat);
-
-                CoarsePropObservatories coarse = new CoarsePropObservatories(orbitAnalysis, vectorAnalysis);
-                File file = new File(System.getProperty("tatc.monos"), "Orb" + Integer.toString(100000 + getEvalCounter()).substring(1));
+                CoarsePropObservatories coarse = new CoarsePropObservatories(propagation.getEphemerides());
+                File file = new File(System.getProperty("tatc.monos"), "Orb" + Integer.toString(100000 + orbID).substring(1));
                 file.mkdir();
                 coarse.save(file.getAbsoluteFile(), "obs");
+                if (!propagationCache.isEnabled()) {
+                    //the propagation is not cached, so its ephemerides are not read again
+                    propagation.getEphemerides().delete();
+                }
 
                 //output the observatory specs in json file
                 Gson gson = new GsonBuilder().setPrettyPrinting().create();
@@ -312,7 +340,7 @@ public class ReductionMetrics extends AbstractModule {
                 }
                 //finish writing the observatory specs in json file
 
-                GroundEventAnalyzer gndStn = new GroundEventAnalyzer(gndStationAnalysis.getEvents(sat));
+                GroundEventAnalyzer gndStn = new GroundEventAnalyzer(gndStationAccesses.get(sat));
 
                 Set<GndStation> gndStation = stationAssignment.get(sat);
 
@@ -325,9 +353,9 @@ public class ReductionMetrics extends AbstractModule {
                     gndAccesses = gndStn.getEvents(keys);
                 }
 
-                this.updateJSON();
+                updateJSON(monosJson, orbID, payloadCounter, gndStnCounter);
                 for (GndStation gnd : gndStation) {
-                    File gndStationFile = new File(file, "GS" + Integer.toString(10000 + getGndStnCounter()).substring(1));
+                    File gndStationFile = new File(file, "GS" + Integer.toString(10000 + gndStnCounter).substring(1));
                     gndStationFile.mkdir();
                     TopocentricFrame gndPoint = gnd.getBaseFrame();
 
@@ -360,7 +388,7 @@ public class ReductionMetrics extends AbstractModule {
                     lat = Math.abs(Double.valueOf(x));
                     lon = Math.abs(Double.valueOf(y));
 
-                    gndStnMetric.save(gndStationFile, "Stn" + Integer.toString(10000 + getGndStnCounter()).substring(1) + "_"
+                    gndStnMetric.save(gndStationFile, "Stn" + Integer.toString(10000 + gndStnCounter).substring(1) + "_"
                             + "lat" + northOrSouth + lat + "_"
                             + "lon" + eastOrWest + lon);
 
@@ -390,12 +418,12 @@ public class ReductionMetrics extends AbstractModule {
                     }
                     //finish writing the ground station specs in json file
 
-                    setGndStnCounter(getGndStnCounter() + 1);
-                    this.updateJSON();
+                    gndStnCounter++;
+                    updateJSON(monosJson, orbID, payloadCounter, gndStnCounter);
                 }
 
-                setPayloadCounter(0);
-                File accessesFile = new File(file, "Pay00" + Integer.toString(1000 + getPayloadCounter()).substring(1));
+                payloadCounter = 0;
+                File accessesFile = new File(file, "Pay00" + Integer.toString(1000 + payloadCounter).substring(1));
                 accessesFile.mkdir();
 
                 //save point of interests
@@ -468,14 +496,14 @@ public class ReductionMetrics extends AbstractModule {
 
                     poiCount++;
                 }
-                setEvalCounter(getEvalCounter() + 1);
             }
 
             //save all outputs
-            GroundEventAnalyzer fovGea = new GroundEventAnalyzer(fovAnalysis.getEvents(cdef));
-            GroundEventAnalyzer gndGea = new GroundEventAnalyzer(gndStationAnalysis.getEvents());
-            LatencyGroundEventAnalyzer latGea = new LatencyGroundEventAnalyzer(fovAnalysis.getAllAccesses().get(cdef),
-                    gndStationAnalysis.getAllAccesses(), false);
+            Map<TopocentricFrame, TimeIntervalArray> gndStationEvents = AccessMerger.merge(gndStationAccesses.values());
+            GroundEventAnalyzer fovGea = new GroundEventAnalyzer(fovEvents);
+            GroundEventAnalyzer gndGea = new GroundEventAnalyzer(gndStationEvents);
+            LatencyGroundEventAnalyzer latGea = new LatencyGroundEventAnalyzer(fovAccesses,
+                    gndStationAccesses, false);
             LocalMetricsImaging lmi = new LocalMetricsImaging(fovGea);
 
             //compute metrics
@@ -494,26 +522,130 @@ public class ReductionMetrics extends AbstractModule {
                 TCavg = Collections.max(lastRiseTimeValues) / lastRiseTimeValues.size();
             }
 
-            lmi.save(getOutputFile(), "lcl");
+            lmi.save(outputDirectory, "lcl");
             GlobalMetrics gm = new GlobalMetrics(fovGea, gndGea, latGea, TCmin, TCmax, TCavg);
 
-            gm.save(getOutputFile(), "gbl");
+            gm.save(outputDirectory, "gbl");
         } else {
-            //save all outputs
-            GroundEventAnalyzer fovGea = new GroundEventAnalyzer(fovAnalysis.getEvents(cdef));
-            GroundEventAnalyzer gndGea = new GroundEventAnalyzer(gndStationAnalysis.getEvents());
-            LocalMetricsImaging lmi = new LocalMetricsImaging(fovGea);
+            //the metrics only consume the accesses to the points of interest
+            GroundEventAnalyzer fovGea = new GroundEventAnalyzer(fovEvents);
 
             //compute metrics
-            metrics = computeMetrics(fovGea, gndGea);
+            metrics = computeMetrics(fovGea, null);
         }
 
-        return this;
+        return new ReductionMetricsResult(metrics, monosJson);
+    }
+
+    /**
+     * Propagates the satellites that are not in the propagation cache and adds
+     * them to the cache
+     *
+     * @param newSatellites the satellites to propagate and their keys in the
+     * cache
+     * @param pois the points of interest
+     * @param stationAssignment the ground stations assigned to each satellite
+     * @param startDate the start date of the performance period
+     * @param endDate the end date of the performance period
+     * @param earthShape the shape of the earth
+     * @param plan the analyses to run
+     * @return the propagation of each satellite
+     * @throws OrekitException
+     */
+    private Map<Satellite, SatellitePropagation> propagate(Map<Satellite, PropagationCache.Key> newSatellites,
+            Set<CoveragePoint> pois, Map<Satellite, Set<GndStation>> stationAssignment,
+            AbsoluteDate startDate, AbsoluteDate endDate, BodyShape earthShape, AnalysisPlan plan) throws OrekitException {
+        TimeScale timeScale = TimeScalesFactory.getUTC();
+        Frame inertialFrame = FramesFactory.getEME2000();
+        PropagatorFactory propatagorFactory = this.tsr.getSatelliteOrbits().getPropagatorFactory();
+        double analysisTimeStep = Double.parseDouble(this.tsr.getFullOutputs().getTimeStep());
+
+        HashSet<Satellite> satellites = new HashSet<>(newSatellites.keySet());
+        HashMap<Satellite, Set<GndStation>> newStationAssignment = new HashMap<>();
+        for (Satellite sat : satellites) {
+            newStationAssignment.put(sat, stationAssignment.get(sat));
+        }
+
+        HashSet<CoverageDefinition> cdefs = new HashSet();
+        CoverageDefinition cdef = new CoverageDefinition("Coverage Definition", pois);
+        Constellation constel = new Constellation("Constellation 0", satellites);
+        cdef.assignConstellation(constel);
+        cdefs.add(cdef);
+
+        ArrayList<EventAnalysis> eventAnalyses = new ArrayList<>();
+        EventAnalysisFactory eaf = new EventAnalysisFactory(startDate, endDate,
+                inertialFrame, propatagorFactory);
+        FieldOfViewEventAnalysis fovAnalysis = null;
+        if (plan.requires(AnalysisPlan.Step.FOV_ACCESSES)) {
+            Properties props = new Properties();
+            props.setProperty("fov.saveAccess", "true");
+            fovAnalysis = (FieldOfViewEventAnalysis) eaf.createGroundPointAnalysis(EventAnalysisEnum.FOV, cdefs, props);
+            eventAnalyses.add(fovAnalysis);
+        }
+        //the accesses to the ground stations are only needed to save the outputs of the satellites
+        GndStationEventAnalysis gndStationAnalysis = null;
+        if (plan.requires(AnalysisPlan.Step.GROUND_STATION_ACCESSES)) {
+            gndStationAnalysis = (GndStationEventAnalysis) eaf.createGroundStationAnalysis(EventAnalysisEnum.ACCESS, newStationAssignment, properties);
+            eventAnalyses.add(gndStationAnalysis);
+        }
+
+        //the ephemerides are only needed to save the outputs of the satellites.
+        //They are streamed to a file of each satellite during the propagation
+        ArrayList<Analysis<?>> analyses = new ArrayList<>();
+        HashMap<Satellite, EphemerisSink> sinks = new HashMap<>();
+        if (plan.requires(AnalysisPlan.Step.EPHEMERIDES)) {
+            File directory = new File(System.getProperty("tatc.ephemerides"));
+            directory.mkdirs();
+            for (Satellite sat : constel.getSatellites()) {
+                File file;
+                try {
+                    file = File.createTempFile("sat", ".csv", directory);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to create the ephemeris file.", ex);
+                }
+                EphemerisSink sink = new EphemerisSink(startDate, endDate, analysisTimeStep, sat,
+                        propatagorFactory, inertialFrame, earthShape, file);
+                analyses.add(sink);
+                sinks.put(sat, sink);
+            }
+        }
+
+        Scenario scen = new Scenario("", startDate, endDate,
+                timeScale, inertialFrame, propatagorFactory,
+                cdefs, eventAnalyses, analyses, properties);
+
+        try {
+            scen.call();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Evaluation failed.", ex);
+        } finally {
+            for (EphemerisSink sink : sinks.values()) {
+                try {
+                    sink.close();
+                } catch (IOException ex) {
+                    Logger.getLogger(ReductionMetrics.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+
+        HashMap<Satellite, SatellitePropagation> out = new HashMap<>();
+        for (Satellite sat : satellites) {
+            SatellitePropagation propagation = new SatellitePropagation(
+                    fovAnalysis == null ? null : fovAnalysis.getSatelliteAccesses(cdef, sat),
+                    gndStationAnalysis == null ? null : gndStationAnalysis.getEvents(sat),
+                    sinks.containsKey(sat) ? sinks.get(sat).getFile() : null);
+            propagationCache.put(newSatellites.get(sat), propagation);
+            out.put(sat, propagation);
+        }
+        return out;
     }
 
     /**
      * Compute some custom metric
      *
+     * @param fov the analyzer of the accesses to the points of interest
+     * @param stGea the analyzer of the accesses to the ground stations. Null
+     * if the accesses to the ground stations were not analyzed
      * @return
      */
     private double[] computeMetrics(GroundEventAnalyzer fov, GroundEventAnalyzer stGea) {
@@ -543,27 +675,7 @@ public class ReductionMetrics extends AbstractModule {
     }
 
     public int getEvalCounter() {
-        return this.evalCounter;
-    }
-
-    private void setEvalCounter(int n) {
-        this.evalCounter = n;
-    }
-
-    public int getGndStnCounter() {
-        return this.gndStnCounter;
-    }
-
-    private void setGndStnCounter(int n) {
-        this.gndStnCounter = n;
-    }
-
-    public int getPayloadCounter() {
-        return this.payloadCounter;
-    }
-
-    private void setPayloadCounter(int n) {
-        this.payloadCounter = n;
+        return evalCounter.get();
     }
 
     /**
@@ -600,10 +712,17 @@ public class ReductionMetrics extends AbstractModule {
     }
 
     /**
-     * Shuts down the threads used to simulate the orbits
+     * Shuts down the threads used to simulate the orbits and deletes the
+     * ephemerides of the cached propagations
      */
     public void shutdown() {
-        OrekitConfig.end();
+        propagationCache.clear();
+        synchronized (ReductionMetrics.class) {
+            if (orekitInitialized) {
+                OrekitConfig.end();
+                orekitInitialized = false;
+            }
+        }
     }
 
 }
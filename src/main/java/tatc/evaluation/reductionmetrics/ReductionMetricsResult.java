@@ -0,0 +1,45 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import com.google.gson.JsonArray;
+
+/**
+ * The outputs of the reduction and metrics module for a single architecture
+ *
+ * @author Prachi
+ */
+public class ReductionMetricsResult {
+
+    /**
+     * The metrics of the architecture (average revisit time and mean response
+     * time [s])
+     */
+    private final double[] metrics;
+
+    /**
+     * The manifest of the monoliths that were saved to the Mono directories
+     */
+    private final JsonArray monosJson;
+
+    public ReductionMetricsResult(double[] metrics, JsonArray monosJson) {
+        this.metrics = metrics;
+        this.monosJson = monosJson;
+    }
+
+    /**
+     * Gets the metrics
+     *
+     * @return
+     */
+    public double[] getMetrics() {
+        return metrics;
+    }
+
+    public JsonArray getJSON() {
+        return monosJson;
+    }
+}
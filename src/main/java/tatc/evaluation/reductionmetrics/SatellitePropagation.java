@@ -0,0 +1,83 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.evaluation.reductionmetrics;
+
+import java.io.File;
+import java.util.Map;
+import org.orekit.frames.TopocentricFrame;
+import seakers.orekit.coverage.access.TimeIntervalArray;
+
+/**
+ * The outputs of the propagation of a single satellite over the performance
+ * period: the accesses of its instrument to the points of interest, its
+ * accesses to the ground stations and its ephemerides. Only the outputs of the
+ * analyses scheduled by the plan of the propagation are kept. The outputs are
+ * shared between evaluations and must not be modified.
+ *
+ * @author Prachi
+ */
+public class SatellitePropagation {
+
+    /**
+     * The accesses of the instrument to each point of interest. Null if the
+     * accesses were not analyzed
+     */
+    private final Map<TopocentricFrame, TimeIntervalArray> fovAccesses;
+
+    /**
+     * The accesses of the satellite to each ground station. Null if the
+     * accesses were not analyzed
+     */
+    private final Map<TopocentricFrame, TimeIntervalArray> gndStationAccesses;
+
+    /**
+     * The file the ephemerides were streamed to during the propagation. Null
+     * if the ephemerides were not saved
+     */
+    private final File ephemerides;
+
+    public SatellitePropagation(Map<TopocentricFrame, TimeIntervalArray> fovAccesses,
+            Map<TopocentricFrame, TimeIntervalArray> gndStationAccesses,
+            File ephemerides) {
+        this.fovAccesses = fovAccesses;
+        this.gndStationAccesses = gndStationAccesses;
+        this.ephemerides = ephemerides;
+    }
+
+    public Map<TopocentricFrame, TimeIntervalArray> getFOVAccesses() {
+        return fovAccesses;
+    }
+
+    public Map<TopocentricFrame, TimeIntervalArray> getGndStationAccesses() {
+        return gndStationAccesses;
+    }
+
+    public File getEphemerides() {
+        return ephemerides;
+    }
+
+    /**
+     * Checks if the ephemerides of the satellite were saved
+     *
+     * @return true if the ephemerides were saved
+     */
+    public boolean hasEphemerides() {
+        return ephemerides != null;
+    }
+
+    /**
+     * Checks if the propagation has the outputs of all the analyses of a plan
+     *
+     * @param plan the plan of the analyses
+     * @return true if the propagation can be reused by an evaluation with the
+     * given plan
+     */
+    public boolean covers(AnalysisPlan plan) {
+        return (fovAccesses != null || !plan.requires(AnalysisPlan.Step.FOV_ACCESSES))
+                && (gndStationAccesses != null || !plan.requires(AnalysisPlan.Step.GROUND_STATION_ACCESSES))
+                && (hasEphemerides() || !plan.requires(AnalysisPlan.Step.EPHEMERIDES));
+    }
+}
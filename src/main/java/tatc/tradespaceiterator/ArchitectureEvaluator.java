@@ -9,6 +9,7 @@ import tatc.architecture.Architecture;
 import tatc.architecture.specifications.*;
 import tatc.architecture.variable.MonolithVariable;
 import tatc.evaluation.costandrisk.*;
+import tatc.evaluation.reductionmetrics.ReductionMetricsResult;
 import tatc.exceptions.CostRiskException;
 import tatc.exceptions.ReductionMetricsException;
 import tatc.util.JSONIO;
@@ -26,13 +27,94 @@ public class ArchitectureEvaluator {
 
     StandardFormProblemProperties properties;
 
+    /**
+     * Flag to save the R&M and C&R job requests and outputs as JSON files in
+     * the subspace of every architecture. The modules are called in memory,
+     * so these files are only needed to audit the evaluations.
+     */
+    private final boolean auditJSON;
+
     public ArchitectureEvaluator(StandardFormProblemProperties properties){
         this.properties=properties;
+        this.auditJSON=Boolean.parseBoolean(System.getProperty("tatc.auditJSON", "false"));
     }
+
     /**
-     * Create and process the reduction and metrics job request
+     * Create and process the reduction and metrics job request. The job is
+     * passed to the R&M module in memory and its outputs are kept in the given
+     * evaluation context so several architectures can be processed at the
+     * same time.
+     *
+     * @param arch the architecture to evaluate
+     * @param concept the mission concept
+     * @param ctx the context of the evaluation
+     * @return the metrics of the architecture
      */
-    public void reductionAndMetrics(Architecture arch, MissionConcept concept) throws ReductionMetricsException {
+    public double[] reductionAndMetrics(Architecture arch, MissionConcept concept, EvaluationContext ctx) throws ReductionMetricsException {
+        DSMSpecification dsmSpec = dsmSpecification(arch, concept);
+
+        //input to the r&m module - gives all information about the subspace
+        if (auditJSON) {
+            JSONIO.writeJSON(ctx.getRMInputFile(), dsmSpec);
+        }
+
+        try {
+            ReductionMetricsResult result = properties.rm.evaluate(dsmSpec, ctx.getRMOutputDirectory());
+
+            //output the Manifest json file
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            JsonObject monoSpec = new JsonObject();
+
+            monoSpec.addProperty("ConstellationType", ctx.getEvalID());
+            monoSpec.add("Mono", result.getJSON());
+
+            String monoStr = gson.toJson(monoSpec);
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(ctx.getSubspace(), "Manifest.json")))) {
+                bw.append(monoStr);
+                bw.flush();
+            } catch (IOException ex) {
+                Logger.getLogger(JSONIO.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            //finish writing the observatory specs in json file
+
+            return result.getMetrics();
+        } catch (ReductionMetricsException rmEx) {
+            throw rmEx;
+        } catch (Exception ex) {
+            Logger.getLogger(ArchitectureEvaluator.class.getName()).log(Level.SEVERE, null, ex);
+            throw new IllegalStateException("Evaluation of solution in R&M failed.", ex);
+        }
+    }
+
+    /**
+     * Screens an architecture with the R&M module on a coarse mission concept.
+     * No outputs are saved, so the screen does not need an evaluation
+     * context.
+     *
+     * @param arch the architecture to screen
+     * @param concept the coarse mission concept
+     * @return the estimated metrics of the architecture
+     */
+    public double[] screenReductionAndMetrics(Architecture arch, MissionConcept concept) throws ReductionMetricsException {
+        try {
+            return properties.rm.screen(dsmSpecification(arch, concept));
+        } catch (ReductionMetricsException rmEx) {
+            throw rmEx;
+        } catch (Exception ex) {
+            Logger.getLogger(ArchitectureEvaluator.class.getName()).log(Level.SEVERE, null, ex);
+            throw new IllegalStateException("Screening of solution in R&M failed.", ex);
+        }
+    }
+
+    /**
+     * Creates the R&M job request of an architecture with the existing
+     * satellites
+     *
+     * @param arch the architecture
+     * @param concept the mission concept
+     * @return the R&M job request
+     */
+    private DSMSpecification dsmSpecification(Architecture arch, MissionConcept concept) {
         //create a R&M job request in the form a JSON
         Set<MonolithVariable> monoliths = new HashSet<>();
         monoliths.addAll(properties.existingSatellites);
@@ -53,43 +135,66 @@ public class ArchitectureEvaluator {
                     properties.db.getInstrumentSpecification(var.getInstrumentID()));
             i++;
         }
-        DSMSpecification dsmSpec = new DSMSpecification(concept, monoSpecs);
+        return new DSMSpecification(concept, monoSpecs);
+    }
 
-        //input to the r&m module - gives all information about the subspace
-        JSONIO.writeJSON(properties.rm.getInputFile(), dsmSpec);
-        properties.rm.setOutputFile(properties.currentDSMSubspace);
+    /**
+     * Create and process the cost and risk job request. The job is passed to
+     * the C&R module in memory so several architectures can be processed at
+     * the same time.
+     *
+     * @param arch the architecture to evaluate
+     * @param concept the mission concept
+     * @param ctx the context of the evaluation. Null if the architecture has
+     * no context yet, in which case the job request and the outputs are not
+     * audited
+     * @return the outputs of the cost and risk module
+     */
+    public ResultOutput costAndRisk(Architecture arch, MissionConcept concept, EvaluationContext ctx) throws CostRiskException {
+        MasterInput crInput = costAndRiskInput(arch, concept);
 
+        if (auditJSON && ctx != null) {
+            JSONIO.writeJSON(ctx.getCRInputFile(), crInput);
+        }
         try {
-            properties.rm.call();
-
-            //output the Manifest json file
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            JsonObject monoSpec = new JsonObject();
-
-            monoSpec.addProperty("ConstellationType", properties.evalCounter);
-            monoSpec.add("Mono", properties.rm.getJSON());
-
-            String monoStr = gson.toJson(monoSpec);
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(properties.currentDSMSubspace, "Manifest.json")))) {
-                bw.append(monoStr);
-                bw.flush();
-            } catch (IOException ex) {
-                Logger.getLogger(JSONIO.class.getName()).log(Level.SEVERE, null, ex);
+            ResultOutput crOutput = properties.cr.evaluate(crInput);
+            if (auditJSON && ctx != null) {
+                CostRiskSeak.writeOutput(ctx.getCROutputFile(), crOutput);
             }
-            //finish writing the observatory specs in json file
-
-        } catch (ReductionMetricsException rmEx) {
-            throw rmEx;
+            return crOutput;
+        } catch (CostRiskException crEx) {
+            throw crEx;
         } catch (Exception ex) {
             Logger.getLogger(ArchitectureEvaluator.class.getName()).log(Level.SEVERE, null, ex);
-            throw new IllegalStateException("Evaluation of solution in R&M failed.", ex);
+            throw new IllegalStateException("Evaluation of solution in CaR failed.", ex);
+        }
+    }
+
+    /**
+     * Saves the cost and risk job request and outputs of an architecture that
+     * was processed before its evaluation context was created
+     *
+     * @param arch the architecture
+     * @param concept the mission concept
+     * @param crOutput the outputs of the cost and risk module
+     * @param ctx the context of the evaluation
+     */
+    public void auditCostAndRisk(Architecture arch, MissionConcept concept, ResultOutput crOutput, EvaluationContext ctx) {
+        if (auditJSON) {
+            JSONIO.writeJSON(ctx.getCRInputFile(), costAndRiskInput(arch, concept));
+            CostRiskSeak.writeOutput(ctx.getCROutputFile(), crOutput);
         }
     }
 
     /**
-     * Create and process the cost and risk job request
+     * Creates the cost and risk job request of an architecture with the
+     * existing satellites
+     *
+     * @param arch the architecture
+     * @param concept the mission concept
+     * @return the cost and risk job request
      */
-    public void costAndRisk(Architecture arch, MissionConcept concept) throws CostRiskException {
+    private MasterInput costAndRiskInput(Architecture arch, MissionConcept concept) {
         Set<MonolithVariable> monoliths = new HashSet<>();
         monoliths.addAll(properties.existingSatellites);
         monoliths.addAll(arch.getSatellites());
@@ -126,19 +231,6 @@ public class ArchitectureEvaluator {
 
         Context crContext = new Context(concept.getMissionDirector(), 2016, launch, groundStations);
 
-        MasterInput crInput = new MasterInput(constellation, crContext);
-
-        properties.cr.setInputFile(new File(properties.currentDSMSubspace, "CostRisk.json"));
-        properties.cr.setOutputFile(new File(properties.currentDSMSubspace, "CostRisk_Output.json"));
-
-        JSONIO.writeJSON(properties.cr.getInputFile(), crInput);
-        try {
-            properties.cr.call();
-        } catch (CostRiskException crEx) {
-            throw crEx;
-        } catch (Exception ex) {
-            Logger.getLogger(ArchitectureEvaluator.class.getName()).log(Level.SEVERE, null, ex);
-            throw new IllegalStateException("Evaluation of solution in CaR failed.", ex);
-        }
+        return new MasterInput(constellation, crContext);
     }
 }
@@ -0,0 +1,305 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.PRNG;
+import org.moeaframework.core.Population;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves periodic checkpoints of a search so that a search can be resumed if
+ * the JVM dies. A checkpoint holds the population, the archive, the number of
+ * function evaluations, the state of the PRNG, the values the operator
+ * selector (if any) keeps for its operators (see OperatorSelectorState) and
+ * the history of the solutions found so far. The
+ * checkpoints are compressed serialized objects written to a temporary file
+ * and then renamed, so the latest checkpoint is never partially written.
+ *
+ * The state of the search is copied in the search loop, but the checkpoint is
+ * written on a separate thread so the evaluations are not stalled. If the
+ * previous checkpoint is still being written, the next one is postponed.
+ *
+ * The interval between checkpoints is given by the tatc.checkpointInterval
+ * property in function evaluations (0 disables the checkpoints). The search is
+ * resumed from the latest checkpoint if the tatc.resume property is true.
+ *
+ * @author Prachi
+ */
+public class Checkpointer implements Closeable {
+
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
+
+    /**
+     * The directory of the checkpoints
+     */
+    private final File directory;
+
+    /**
+     * The number of function evaluations between checkpoints. Checkpoints are
+     * disabled if it is not positive
+     */
+    private final int interval;
+
+    /**
+     * The number of function evaluations of the next checkpoint
+     */
+    private int nextCheckpoint;
+
+    private final ExecutorService writer;
+
+    /**
+     * The checkpoint being written
+     */
+    private Future<?> pending;
+
+    public Checkpointer(File directory, int interval) {
+        this.directory = directory;
+        this.interval = interval;
+        this.nextCheckpoint = interval;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = null;
+    }
+
+    /**
+     * Creates the checkpointer of the searches saved in the tatc.moea directory
+     *
+     * @return the checkpointer
+     */
+    public static Checkpointer create() {
+        return new Checkpointer(new File(System.getProperty("tatc.moea"), "checkpoint"),
+                Integer.parseInt(System.getProperty("tatc.checkpointInterval", "0")));
+    }
+
+    /**
+     * Checks if the search should be resumed from the latest checkpoint
+     *
+     * @return true if the search should be resumed
+     */
+    public static boolean isResume() {
+        return Boolean.parseBoolean(System.getProperty("tatc.resume", "false"));
+    }
+
+    /**
+     * Checks if a checkpoint should be saved
+     *
+     * @param nfe the number of function evaluations of the search
+     * @return true if a checkpoint should be saved
+     */
+    public boolean isDue(int nfe) {
+        return interval > 0 && nfe >= nextCheckpoint;
+    }
+
+    /**
+     * Saves a checkpoint of the search. The solutions are copied before this
+     * method returns, but the checkpoint is written on a separate thread.
+     *
+     * @param nfe the number of function evaluations of the search
+     * @param population the population of the search
+     * @param archive the archive of the search
+     * @param history the history of the solutions found so far
+     * @param operatorSelector the operator selector of the search. Null if the
+     * search does not select operators
+     * @param operators the operators of the operator selector. Null if the
+     * search does not select operators
+     */
+    public void save(int nfe, Population population, Population archive, SolutionHistory history,
+            Object operatorSelector, Collection<Variation> operators) {
+        if (pending != null && !pending.isDone()) {
+            Logger.getGlobal().fine("Previous checkpoint is still being written. Postponing checkpoint.");
+            return;
+        }
+        while (nextCheckpoint <= nfe) {
+            nextCheckpoint += interval;
+        }
+
+        //the PRNG and the operator selector change with every step, so they are saved here
+        OperatorSelectorState operatorSelectorState = null;
+        if (operatorSelector != null) {
+            operatorSelectorState = OperatorSelectorState.save(operatorSelector, operators);
+        }
+        Checkpoint checkpoint;
+        try {
+            checkpoint = new Checkpoint(nfe, toList(population), toList(archive), history.snapshot(),
+                    serialize(PRNG.getRandom()), operatorSelectorState);
+        } catch (IOException ex) {
+            Logger.getLogger(Checkpointer.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+
+        pending = writer.submit(() -> {
+            try {
+                write(checkpoint);
+            } catch (IOException ex) {
+                Logger.getLogger(Checkpointer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
+
+    private void write(Checkpoint checkpoint) throws IOException {
+        directory.mkdirs();
+        File file = new File(directory, CHECKPOINT_FILE);
+        File tmp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (ObjectOutputStream os = new ObjectOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp))))) {
+            os.writeObject(checkpoint);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Logger.getGlobal().finer(String.format("Saved checkpoint at %d NFE.", checkpoint.getNFE()));
+    }
+
+    /**
+     * Loads the latest checkpoint
+     *
+     * @return the latest checkpoint or null if there is none
+     */
+    public Checkpoint load() {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream is = new ObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file))))) {
+            Checkpoint checkpoint = (Checkpoint) is.readObject();
+            nextCheckpoint = checkpoint.getNFE() + interval;
+            return checkpoint;
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalStateException(String.format("Failed to read checkpoint %s.", file.getAbsolutePath()), ex);
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint to be written
+     */
+    @Override
+    public void close() {
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                Logger.getLogger(Checkpointer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        writer.shutdown();
+    }
+
+    private static List<Solution> toList(Population population) {
+        List<Solution> out = new ArrayList<>(population.size());
+        for (Solution solution : population) {
+            //the search keeps changing the solutions while the checkpoint is written
+            out.add(solution.copy());
+        }
+        return out;
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream os = new ObjectOutputStream(bytes)) {
+            os.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return is.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalStateException("Failed to read checkpoint.", ex);
+        }
+    }
+
+    /**
+     * The state of a search at a checkpoint
+     */
+    public static class Checkpoint implements Serializable {
+
+        private static final long serialVersionUID = -6172508963431577019L;
+
+        private final int nfe;
+
+        private final List<Solution> population;
+
+        private final List<Solution> archive;
+
+        private final SolutionHistory.Snapshot history;
+
+        private final byte[] random;
+
+        private final OperatorSelectorState operatorSelector;
+
+        private Checkpoint(int nfe, List<Solution> population, List<Solution> archive, SolutionHistory.Snapshot history,
+                byte[] random, OperatorSelectorState operatorSelector) {
+            this.nfe = nfe;
+            this.population = population;
+            this.archive = archive;
+            this.history = history;
+            this.random = random;
+            this.operatorSelector = operatorSelector;
+        }
+
+        public int getNFE() {
+            return nfe;
+        }
+
+        public List<Solution> getPopulation() {
+            return population;
+        }
+
+        public List<Solution> getArchive() {
+            return archive;
+        }
+
+        public SolutionHistory.Snapshot getHistory() {
+            return history;
+        }
+
+        /**
+         * Restores the state of the PRNG
+         */
+        public void restoreRandom() {
+            PRNG.setRandom((Random) deserialize(random));
+        }
+
+        /**
+         * Gets the values the operator selector of the search keeps for its
+         * operators
+         *
+         * @return the state of the operator selector or null if it was not
+         * saved
+         */
+        public OperatorSelectorState getOperatorSelector() {
+            return operatorSelector;
+        }
+    }
+}
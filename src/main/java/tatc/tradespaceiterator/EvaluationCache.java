@@ -0,0 +1,163 @@
+package tatc.tradespaceiterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizes the evaluations of the architectures seen during a search. Many
+ * decision vectors decode to the same architecture (e.g. the real values of
+ * the planes and phases of a Walker constellation collapse to a few divisors),
+ * so the architectures are identified by their decoded parameters rather than
+ * by their decision variables. The cache is safe to use from several threads.
+ *
+ * The cache can be backed by a persistent evaluation store so that the
+ * evaluations of previous runs are reused and the new evaluations are saved
+ * for the next runs.
+ *
+ * @author Prachi
+ */
+public class EvaluationCache {
+
+    /**
+     * The average revisit time [s], mean response time [s] and lifecycle cost
+     * of each architecture
+     */
+    private final ConcurrentHashMap<String, double[]> evaluations;
+
+    /**
+     * The persistent store backing this cache. Null if the evaluations are
+     * only kept in memory
+     */
+    private final EvaluationStore store;
+
+    /**
+     * The hash of the inputs of the search that prefixes the keys in the store
+     */
+    private final String conceptHash;
+
+    private final AtomicLong hits;
+
+    private final AtomicLong storeHits;
+
+    private final AtomicLong misses;
+
+    public EvaluationCache() {
+        this(null, "");
+    }
+
+    /**
+     * Creates a cache backed by a persistent evaluation store
+     *
+     * @param store the persistent evaluation store. Null if the evaluations
+     * are only kept in memory
+     * @param conceptHash the hash of the inputs of the search
+     */
+    public EvaluationCache(EvaluationStore store, String conceptHash) {
+        this.evaluations = new ConcurrentHashMap<>();
+        this.store = store;
+        this.conceptHash = conceptHash;
+        this.hits = new AtomicLong();
+        this.storeHits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Gets the evaluation of an architecture
+     *
+     * @param key the canonical key of the architecture
+     * @return the average revisit time [s], mean response time [s] and
+     * lifecycle cost of the architecture or null if it was not evaluated yet
+     */
+    public double[] get(String key) {
+        double[] out = evaluations.get(key);
+        if (out == null && store != null) {
+            out = store.get(storeKey(key));
+            if (out != null) {
+                storeHits.incrementAndGet();
+                evaluations.put(key, out);
+            }
+        }
+        if (out == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return out.clone();
+    }
+
+    /**
+     * Saves the evaluation of an architecture
+     *
+     * @param key the canonical key of the architecture
+     * @param revisitTime the average revisit time [s]
+     * @param responseTime the mean response time [s]
+     * @param lifecycleCost the lifecycle cost
+     */
+    public void put(String key, double revisitTime, double responseTime, double lifecycleCost) {
+        evaluations.put(key, new double[]{revisitTime, responseTime, lifecycleCost});
+        if (store != null) {
+            store.put(storeKey(key), revisitTime, responseTime, lifecycleCost);
+        }
+    }
+
+    private String storeKey(String key) {
+        return conceptHash + "_" + key;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of hits that were found in the persistent store
+     *
+     * @return the number of hits that were found in the persistent store
+     */
+    public long getStoreHits() {
+        return storeHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return evaluations.size();
+    }
+
+    /**
+     * Creates the canonical key of a Walker constellation
+     *
+     * @param sma the semi-major axis [m]
+     * @param inc the inclination [rad]
+     * @param t the number of satellites
+     * @param p the number of planes
+     * @param f the phasing
+     * @return the canonical key of the Walker constellation
+     */
+    public static String walkerKey(double sma, double inc, int t, int p, int f) {
+        return String.format("Walker_%s_%s_%d_%d_%d", Double.toString(sma), Double.toString(inc), t, p, f);
+    }
+
+    /**
+     * Creates the canonical key of a train constellation. The LTANs are
+     * sorted so that the key does not depend on their order.
+     *
+     * @param sma the semi-major axis [m]
+     * @param LTANs the local times of the ascending node [hours]
+     * @return the canonical key of the train constellation
+     */
+    public static String trainKey(double sma, Collection<Double> LTANs) {
+        ArrayList<Double> sorted = new ArrayList<>(LTANs);
+        Collections.sort(sorted);
+        StringBuilder sb = new StringBuilder("Train_");
+        sb.append(Double.toString(sma));
+        for (Double ltan : sorted) {
+            sb.append("_").append(Double.toString(ltan));
+        }
+        return sb.toString();
+    }
+}
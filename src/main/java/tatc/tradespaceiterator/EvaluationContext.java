@@ -0,0 +1,98 @@
+package tatc.tradespaceiterator;
+
+import java.io.File;
+
+/**
+ * The id and the files of a single architecture evaluation. Every evaluation
+ * gets its own context so that the reduction and metrics and the cost and risk
+ * modules can process several architectures at the same time without sharing
+ * any mutable state. EvaluationContext is immutable.
+ *
+ * @author Prachi
+ */
+public final class EvaluationContext {
+
+    /**
+     * The id of the architecture
+     */
+    private final int evalID;
+
+    /**
+     * Path to the subspace of the architecture in the DSMs directory
+     */
+    private final File subspace;
+
+    /**
+     * The input file of the R&M module
+     */
+    private final File rmInputFile;
+
+    /**
+     * The directory where the R&M module saves its outputs
+     */
+    private final File rmOutputDirectory;
+
+    /**
+     * The input file of the C&R module
+     */
+    private final File crInputFile;
+
+    /**
+     * The output file of the C&R module
+     */
+    private final File crOutputFile;
+
+    /**
+     * Creates the context of an evaluation whose files are all kept in the
+     * given subspace directory
+     *
+     * @param evalID the id of the architecture
+     * @param subspace the subspace directory of the architecture
+     */
+    public EvaluationContext(int evalID, File subspace) {
+        this.evalID = evalID;
+        this.subspace = subspace;
+        this.rmInputFile = new File(subspace, "RM_input.json");
+        this.rmOutputDirectory = subspace;
+        this.crInputFile = new File(subspace, "CostRisk.json");
+        this.crOutputFile = new File(subspace, "CostRisk_Output.json");
+    }
+
+    /**
+     * Creates the context of an evaluation and its subspace directory in the
+     * DSMs directory
+     *
+     * @param evalID the id of the architecture
+     * @return the context of the evaluation
+     */
+    public static EvaluationContext create(int evalID) {
+        File subspace = new File(System.getProperty("tatc.dsms"),
+                "Subspace" + Integer.toString(100000 + evalID).substring(1));
+        subspace.mkdir();
+        return new EvaluationContext(evalID, subspace);
+    }
+
+    public int getEvalID() {
+        return evalID;
+    }
+
+    public File getSubspace() {
+        return subspace;
+    }
+
+    public File getRMInputFile() {
+        return rmInputFile;
+    }
+
+    public File getRMOutputDirectory() {
+        return rmOutputDirectory;
+    }
+
+    public File getCRInputFile() {
+        return crInputFile;
+    }
+
+    public File getCROutputFile() {
+        return crOutputFile;
+    }
+}
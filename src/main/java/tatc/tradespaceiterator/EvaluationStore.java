@@ -0,0 +1,321 @@
+package tatc.tradespaceiterator;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent store of the evaluations of the architectures that is shared
+ * across runs. The evaluations are saved in an append-only file. When the
+ * store is opened, the file is memory mapped and indexed, and every new
+ * evaluation is appended to the end of the file. Re-running a similar
+ * tradespace search request reuses all the evaluations that overlap with the
+ * previous runs.
+ *
+ * Each record holds a key and the average revisit time [s], mean response time
+ * [s] and lifecycle cost of the architecture. The key combines the hash of the
+ * inputs that affect the evaluations (see conceptHash) and the canonical key
+ * of the architecture, so the evaluations of different mission concepts never
+ * mix. A record that was not completely written (e.g. the run was killed) is
+ * discarded when the store is opened.
+ *
+ * @author Prachi
+ */
+public class EvaluationStore implements Closeable {
+
+    /**
+     * Identifies the files of the evaluation store and their version
+     */
+    private static final long MAGIC = 0x5441544345564131L;
+
+    /**
+     * The number of bytes of the values of a record
+     */
+    private static final int VALUES_BYTES = 3 * Double.BYTES;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    /**
+     * The evaluations in the file indexed by their key
+     */
+    private final HashMap<String, double[]> index;
+
+    /**
+     * Opens the evaluation store saved in the given file. The file is created
+     * if it does not exist.
+     *
+     * @param file the file of the evaluation store
+     * @throws IOException
+     */
+    public EvaluationStore(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = new HashMap<>();
+        load();
+    }
+
+    /**
+     * Reads the index of the file
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < Long.BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            header.putLong(MAGIC);
+            header.flip();
+            channel.truncate(0);
+            channel.position(0);
+            writeFully(header);
+            return;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.getLong() != MAGIC) {
+            throw new IOException(String.format("%s is not an evaluation store.", file.getAbsolutePath()));
+        }
+        long end = buffer.position();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + VALUES_BYTES) {
+                break;
+            }
+            byte[] key = new byte[length];
+            buffer.get(key);
+            double[] values = new double[]{buffer.getDouble(), buffer.getDouble(), buffer.getDouble()};
+            index.put(new String(key, StandardCharsets.UTF_8), values);
+            end = buffer.position();
+        }
+
+        //discard the records that were not completely written
+        if (end < size) {
+            Logger.getGlobal().warning(String.format("Discarding %d bytes at the end of %s.",
+                    size - end, file.getAbsolutePath()));
+            channel.truncate(end);
+        }
+        channel.position(end);
+        Logger.getGlobal().finer(String.format("Loaded %d evaluations from %s.", index.size(), file.getAbsolutePath()));
+    }
+
+    /**
+     * Gets the evaluation of an architecture
+     *
+     * @param key the key of the architecture
+     * @return the average revisit time [s], mean response time [s] and
+     * lifecycle cost of the architecture or null if it is not in the store
+     */
+    public synchronized double[] get(String key) {
+        double[] out = index.get(key);
+        return out == null ? null : out.clone();
+    }
+
+    /**
+     * Appends the evaluation of an architecture to the store
+     *
+     * @param key the key of the architecture
+     * @param revisitTime the average revisit time [s]
+     * @param responseTime the mean response time [s]
+     * @param lifecycleCost the lifecycle cost
+     */
+    public synchronized void put(String key, double revisitTime, double responseTime, double lifecycleCost) {
+        if (index.containsKey(key)) {
+            return;
+        }
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + bytes.length + VALUES_BYTES);
+        record.putInt(bytes.length);
+        record.put(bytes);
+        record.putDouble(revisitTime);
+        record.putDouble(responseTime);
+        record.putDouble(lifecycleCost);
+        record.flip();
+        try {
+            writeFully(record);
+            index.put(key, new double[]{revisitTime, responseTime, lifecycleCost});
+        } catch (IOException ex) {
+            Logger.getLogger(EvaluationStore.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Appends the evaluations of another store that are not in this store yet
+     *
+     * @param other the other store
+     */
+    public void putAll(EvaluationStore other) {
+        HashMap<String, double[]> evaluations;
+        synchronized (other) {
+            evaluations = new HashMap<>(other.index);
+        }
+        for (Map.Entry<String, double[]> entry : evaluations.entrySet()) {
+            double[] values = entry.getValue();
+            put(entry.getKey(), values[0], values[1], values[2]);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * Hashes the inputs of a tradespace search request that affect the
+     * evaluation of an architecture: the mission concept, the propagation
+     * fidelity, the existing satellites, the time step of the outputs and the
+     * specifications of the observatories, instruments and launch vehicles.
+     * The search strategy and the ranges of the design variables do not
+     * affect the evaluations, so requests that only differ in those share
+     * their evaluations.
+     *
+     * @param tsr the tradespace search request
+     * @return the hash of the inputs
+     */
+    public static String conceptHash(TradespaceSearchRequest tsr) {
+        Gson gson = new GsonBuilder().setExclusionStrategies(new ExclusionStrategy() {
+            @Override
+            public boolean shouldSkipField(FieldAttributes f) {
+                //the files of the area of interest and of the ground stations are read below
+                return f.getName().equals("SearchPreferences")
+                        || f.getName().equals("UserDirectoryPreference")
+                        || f.getName().equals("AreaOfInterest")
+                        || f.getName().equals("GroundStationOptions");
+            }
+
+            @Override
+            public boolean shouldSkipClass(Class<?> clazz) {
+                return false;
+            }
+        }).create();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(gson.toJson(tsr.getMissionConcept()));
+        sb.append(areaOfInterest(tsr.getMissionConcept().getAreaOfInterest()));
+        sb.append(groundStations(tsr.getMissionConcept().getGroundStationOptions()));
+        sb.append(tsr.getSatelliteOrbits().getPropagationFidelity());
+        sb.append(existingSatellites(tsr.getSatelliteOrbits().getExistingSatelliteOptions()));
+        sb.append(tsr.getFullOutputs().getTimeStep());
+        sb.append(sorted(gson, tsr.getObervatorySpecifications()));
+        sb.append(sorted(gson, tsr.getInstrumentSpecifications()));
+        sb.append(sorted(gson, tsr.getLaunchVehicleSpecifications()));
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    /**
+     * Reads the specifications of the existing satellites. The file is read
+     * instead of its path so that editing the existing satellites invalidates
+     * the stored evaluations.
+     */
+    private static String existingSatellites(String options) {
+        if (options.equalsIgnoreCase("Null")) {
+            return options;
+        }
+        return contents(new File(System.getProperty("tatc.root"), options), "existing satellites");
+    }
+
+    /**
+     * Reads the points of the area of interest if it is an EarthPointList
+     * file. Otherwise, the area of interest is a range of latitudes and
+     * longitudes that is already in the mission concept.
+     */
+    private static String areaOfInterest(String areaOfInterest) {
+        File file = new File(areaOfInterest);
+        if (!file.isFile()) {
+            return areaOfInterest;
+        }
+        return contents(file, "area of interest");
+    }
+
+    /**
+     * Reads the files of the ground stations, resolved the way the mission
+     * concept resolves them (see
+     * MissionConcept.getGroundStationSpecifications)
+     */
+    private static String groundStations(String options) {
+        StringBuilder sb = new StringBuilder();
+        for (String option : options.split("\\s")) {
+            File file = new File(option);
+            if (!file.isFile()) {
+                switch (option) {
+                    case "NENall":
+                    case "NENcom":
+                    case "NENgov":
+                    case "DSN":
+                        file = new File(System.getProperty("tatc.groundstation"), option + ".txt");
+                        break;
+                    default:
+                        file = new File(System.getProperty("tatc.root"), option);
+                }
+            }
+            sb.append(option).append('=').append(contents(file, "ground stations")).append(';');
+        }
+        return sb.toString();
+    }
+
+    private static String contents(File file, String description) {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new IllegalStateException(String.format("Failed to read the %s %s.", description, file), ex);
+        }
+    }
+
+    /**
+     * Serializes the elements of a set in an order that does not depend on the
+     * iteration order of the set
+     */
+    private static String sorted(Gson gson, Collection<?> elements) {
+        List<String> out = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            out.add(gson.toJson(element));
+        }
+        Collections.sort(out);
+        return String.join(",", out);
+    }
+}
@@ -0,0 +1,157 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.Algorithm;
+import org.moeaframework.core.PRNG;
+import org.moeaframework.core.Population;
+import org.moeaframework.core.PopulationIO;
+import org.moeaframework.core.Solution;
+import tatc.ResultIO;
+import tatc.util.JSONIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs one island of the island model (see StandardFormIslands) in its own
+ * process. Every tatc.migrationInterval evaluations, the island writes the
+ * members of its archive to the migration directory and adds the latest
+ * emigrants of its neighbour (the islands form a ring) to its own population
+ * and archive. The files are written to a temporary file and then renamed, so
+ * an island never reads a partially written file.
+ *
+ * Arguments: the directory of the islands, the index of the island, the
+ * number of islands and the number of evaluations of the island.
+ *
+ * @author Prachi
+ */
+public class IslandWorker {
+
+    /**
+     * The name of the tradespace search request shared by the islands
+     */
+    static final String REQUEST_FILE = "TradespaceSearchRequest.json";
+
+    private final StandardFormGA ga;
+
+    private final File migrationDir;
+
+    private final int island;
+
+    private final int neighbour;
+
+    /**
+     * The last modification time of the emigrants of the neighbour that were
+     * added to this island
+     */
+    private long lastImmigration;
+
+    private IslandWorker(StandardFormGA ga, File migrationDir, int island, int numIslands) {
+        this.ga = ga;
+        this.migrationDir = migrationDir;
+        this.island = island;
+        this.neighbour = (island + numIslands - 1) % numIslands;
+        this.lastImmigration = 0;
+    }
+
+    private void run(int maxNFE) {
+        int migrationInterval = Math.max(1, Integer.parseInt(System.getProperty("tatc.migrationInterval", "100")));
+        Algorithm algorithm = ga instanceof StandardFormAOS
+                ? ((StandardFormAOS) ga).createAlgorithm()
+                : ((StandardFormMOEA) ga).createAlgorithm();
+
+        SolutionHistory history = SolutionHistory.create(ga.problem);
+        int nextMigration = migrationInterval;
+        while (algorithm.getNumberOfEvaluations() < maxNFE) {
+            algorithm.step();
+            history.addAll(ga.population, algorithm.getNumberOfEvaluations());
+            if (algorithm.getNumberOfEvaluations() >= nextMigration) {
+                emigrate();
+                immigrate();
+                nextMigration += migrationInterval;
+            }
+            System.out.println(String.format("Island %d: %d NFE out of %d NFE",
+                    island, algorithm.getNumberOfEvaluations(), maxNFE));
+        }
+
+        //complete the results appended by the history
+        history.flush();
+        ResultIO.savePopulation(history.solutions(), Paths.get(System.getProperty("tatc.moea"), "population").toString());
+        history.close();
+    }
+
+    /**
+     * Writes the members of the archive of this island to the migration
+     * directory
+     */
+    private void emigrate() {
+        File file = emigrantsFile(island);
+        File tmp = new File(migrationDir, file.getName() + ".tmp");
+        try {
+            PopulationIO.write(tmp, new Population(ga.archive));
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Logger.getLogger(IslandWorker.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Adds the latest emigrants of the neighbour to this island. Each
+     * immigrant is offered to the archive and replaces a random member of the
+     * population.
+     */
+    private void immigrate() {
+        File file = emigrantsFile(neighbour);
+        if (!file.exists() || file.lastModified() <= lastImmigration) {
+            return;
+        }
+        lastImmigration = file.lastModified();
+        try {
+            for (Solution immigrant : PopulationIO.read(file)) {
+                ga.archive.add(immigrant);
+                if (!ga.population.isEmpty()) {
+                    ga.population.replace(PRNG.nextInt(ga.population.size()), immigrant);
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(IslandWorker.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private File emigrantsFile(int island) {
+        return new File(migrationDir, String.format("island_%d.pop", island));
+    }
+
+    public static void main(String[] args) {
+        File islandsDir = new File(args[0]);
+        int island = Integer.parseInt(args[1]);
+        int numIslands = Integer.parseInt(args[2]);
+        int maxNFE = Integer.parseInt(args[3]);
+
+        TradespaceSearchRequest tsr = JSONIO.readJSON(new File(islandsDir, REQUEST_FILE), TradespaceSearchRequest.class);
+        StandardFormProblemProperties properties = StandardFormProblem.createProperties(tsr, new Properties());
+
+        StandardFormGA ga = System.getProperty("tatc.islandSearch", "EPS").equals("AOS")
+                ? new StandardFormAOS(properties)
+                : new StandardFormMOEA(properties);
+        try {
+            new IslandWorker(ga, new File(islandsDir, "migration"), island, numIslands).run(maxNFE);
+        } finally {
+            properties.rm.shutdown();
+            if (properties.evaluationStore != null) {
+                try {
+                    properties.evaluationStore.close();
+                } catch (IOException ex) {
+                    Logger.getLogger(IslandWorker.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+        System.exit(0);
+    }
+}
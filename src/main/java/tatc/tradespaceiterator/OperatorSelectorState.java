@@ -0,0 +1,181 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.Variation;
+import org.moeaframework.core.operator.CompoundVariation;
+import tatc.tradespaceiterator.search.SurrogateVariation;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The numbers of an adaptive operator selector, saved in the checkpoints of a
+ * search. The operators of the selector wrap the problem, the surrogate model
+ * and the archive of the search, so the selector itself cannot be serialized.
+ * Instead, the values the selector keeps for each operator (e.g. the
+ * qualities and the selection probabilities of adaptive pursuit) are saved by
+ * the name of the operator, and put back into the operators of the selector
+ * rebuilt when the search is resumed.
+ *
+ * The values are the fields of the selector that map each operator to a
+ * number, so the state does not depend on the operator selection strategy.
+ * Operators with the same name are matched in the order of the selector.
+ *
+ * @author Prachi
+ */
+public class OperatorSelectorState implements Serializable {
+
+    private static final long serialVersionUID = -2157804683513935120L;
+
+    /**
+     * The names of the operators in the order of the selector
+     */
+    private final List<String> operators;
+
+    /**
+     * The values of each operator in the order of the operators, by the name
+     * of the field of the selector holding them
+     */
+    private final Map<String, double[]> values;
+
+    private OperatorSelectorState(List<String> operators, Map<String, double[]> values) {
+        this.operators = operators;
+        this.values = values;
+    }
+
+    /**
+     * Saves the numbers of an operator selector
+     *
+     * @param selector the operator selector
+     * @param operators the operators of the selector
+     * @return the state of the selector or null if it cannot be saved
+     */
+    public static OperatorSelectorState save(Object selector, Collection<Variation> operators) {
+        List<Variation> order = new ArrayList<>(operators);
+        List<String> names = new ArrayList<>(order.size());
+        for (Variation operator : order) {
+            names.add(name(operator));
+        }
+        Map<String, double[]> values = new LinkedHashMap<>();
+        try {
+            for (Field field : operatorFields(selector)) {
+                Map<?, ?> map = (Map<?, ?>) field.get(selector);
+                double[] out = new double[order.size()];
+                for (int i = 0; i < order.size(); i++) {
+                    Object value = map.get(order.get(i));
+                    out[i] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+                }
+                values.put(field.getName(), out);
+            }
+        } catch (IllegalAccessException | RuntimeException ex) {
+            Logger.getLogger(OperatorSelectorState.class.getName()).log(Level.WARNING,
+                    String.format("The state of the operator selector %s cannot be saved in the checkpoint.",
+                            selector.getClass().getSimpleName()), ex);
+            return null;
+        }
+        if (values.isEmpty()) {
+            Logger.getGlobal().warning(String.format("The operator selector %s holds no operator values to save in the checkpoint.",
+                    selector.getClass().getSimpleName()));
+            return null;
+        }
+        return new OperatorSelectorState(names, values);
+    }
+
+    /**
+     * Puts the saved numbers back into the operators of a rebuilt operator
+     * selector. The operators that were not saved keep their initial values.
+     *
+     * @param selector the rebuilt operator selector
+     * @param operators the operators of the selector
+     */
+    public void restore(Object selector, Collection<Variation> operators) {
+        //the saved indices of each operator name, in the order of the selector
+        Map<String, List<Integer>> saved = new HashMap<>();
+        for (int i = 0; i < this.operators.size(); i++) {
+            saved.computeIfAbsent(this.operators.get(i), k -> new ArrayList<>()).add(i);
+        }
+        Map<Variation, Integer> matched = new LinkedHashMap<>();
+        for (Variation operator : operators) {
+            List<Integer> indices = saved.get(name(operator));
+            if (indices == null || indices.isEmpty()) {
+                Logger.getGlobal().warning(String.format("Operator %s is not in the checkpoint.", name(operator)));
+                continue;
+            }
+            matched.put(operator, indices.remove(0));
+        }
+
+        try {
+            for (Field field : operatorFields(selector)) {
+                double[] fieldValues = values.get(field.getName());
+                if (fieldValues == null) {
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                Map<Variation, Double> map = (Map<Variation, Double>) field.get(selector);
+                for (Map.Entry<Variation, Integer> entry : matched.entrySet()) {
+                    if (!Double.isNaN(fieldValues[entry.getValue()])) {
+                        map.put(entry.getKey(), fieldValues[entry.getValue()]);
+                    }
+                }
+            }
+        } catch (IllegalAccessException | RuntimeException ex) {
+            Logger.getLogger(OperatorSelectorState.class.getName()).log(Level.SEVERE, null, ex);
+            throw new IllegalStateException(String.format("Failed to restore the operator selector %s.",
+                    selector.getClass().getSimpleName()), ex);
+        }
+        System.out.println(String.format("Restored the operator selector values of %d of %d operators",
+                matched.size(), operators.size()));
+    }
+
+    /**
+     * The fields of the selector and its superclasses that map the operators
+     * to numbers
+     */
+    private static List<Field> operatorFields(Object selector) throws IllegalAccessException {
+        List<Field> out = new ArrayList<>();
+        for (Class<?> clazz = selector.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || !Map.class.isAssignableFrom(field.getType())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                Map<?, ?> map = (Map<?, ?>) field.get(selector);
+                if (map != null && isOperatorMap(map)) {
+                    out.add(field);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean isOperatorMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof Variation) || !(entry.getValue() instanceof Number)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The name of an operator, which does not change when the operator is
+     * rebuilt
+     */
+    private static String name(Variation operator) {
+        if (operator instanceof SurrogateVariation) {
+            return "Surrogate(" + name(((SurrogateVariation) operator).getOperator()) + ")";
+        } else if (operator instanceof CompoundVariation) {
+            return ((CompoundVariation) operator).getName();
+        } else {
+            return operator.getClass().getSimpleName();
+        }
+    }
+}
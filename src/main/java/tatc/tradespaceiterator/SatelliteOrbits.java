@@ -169,6 +169,15 @@ public class SatelliteOrbits {
         return special;
     }
 
+    /**
+     * Gets the fidelity of the propagator
+     *
+     * @return the fidelity of the propagator
+     */
+    public int getPropagationFidelity() {
+        return PropagationFidelity;
+    }
+
     /**
      * Gets the propagator factory based on the specified fidelity
      *
@@ -0,0 +1,198 @@
+package tatc.tradespaceiterator;
+
+import org.hipparchus.util.FastMath;
+import tatc.architecture.Architecture;
+import tatc.architecture.specifications.MissionConcept;
+import tatc.exceptions.ReductionMetricsException;
+import org.moeaframework.core.Solution;
+import tatc.tradespaceiterator.search.ParetoArchive;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coarse-to-fine evaluation of the architectures proposed by the GA. Each
+ * architecture is first screened by the R&M module on a coarse mission
+ * concept, with a coarser coverage grid and a shorter performance period, and
+ * only gets the full evaluation if it could enter the epsilon-box dominance
+ * archive of the search. The screen compares the epsilon box of the estimated
+ * objectives with the epsilon boxes of the architectures that were fully
+ * evaluated.
+ *
+ * The lifecycle cost is computed exactly by the C&R module before the screen,
+ * so only the average revisit time is estimated. The estimate is reduced by a
+ * safety margin before it is compared, so an architecture is only rejected if
+ * it is clearly dominated.
+ *
+ * The solutions of the rejected architectures are tagged with the screened
+ * attribute and their average revisit time is penalized, so the estimate
+ * never enters the archive, the history, the results or the training sets of
+ * the search.
+ *
+ * @author Prachi
+ */
+public class ScreeningEvaluator {
+
+    /**
+     * The attribute of the solutions rejected by the screen
+     */
+    public static final String SCREENED_ATTRIBUTE = "screened";
+
+    /**
+     * The average revisit time given to the solutions rejected by the screen
+     */
+    public static final double PENALTY = Double.MAX_VALUE;
+
+    private final ArchitectureEvaluator archEval;
+
+    /**
+     * The coarse mission concept the architectures are screened on
+     */
+    private final MissionConcept coarseConcept;
+
+    /**
+     * The epsilons of the archive of the search
+     */
+    private final double[] epsilons;
+
+    /**
+     * The fraction by which the estimated revisit time is reduced
+     */
+    private final double margin;
+
+    /**
+     * The epsilon boxes of the architectures that were fully evaluated
+     */
+    private final ParetoArchive boxes;
+
+    private final AtomicInteger screened;
+
+    private final AtomicInteger rejected;
+
+    /**
+     * Creates the screen
+     *
+     * @param archEval the evaluator of the architectures
+     * @param concept the mission concept of the search
+     * @param epsilons the epsilons of the archive of the search
+     * @param granularity the granularity of the coarse coverage grid
+     * @param horizon the maximum length of the coarse performance period in
+     * seconds
+     * @param margin the fraction by which the estimated revisit time is
+     * reduced
+     */
+    public ScreeningEvaluator(ArchitectureEvaluator archEval, MissionConcept concept,
+            double[] epsilons, int granularity, int horizon, double margin) {
+        if (margin < 0 || margin >= 1) {
+            throw new IllegalArgumentException(String.format("Expected a screening margin in [0, 1). Found %f.", margin));
+        }
+        this.archEval = archEval;
+        this.coarseConcept = concept.coarseCopy(granularity, horizon);
+        this.epsilons = epsilons.clone();
+        this.margin = margin;
+        this.boxes = new ParetoArchive(epsilons.length);
+        this.screened = new AtomicInteger();
+        this.rejected = new AtomicInteger();
+    }
+
+    /**
+     * Creates the screen given by the tatc.screening, tatc.screeningGridFactor,
+     * tatc.screeningHorizon and tatc.screeningMargin properties
+     *
+     * @param archEval the evaluator of the architectures
+     * @param concept the mission concept of the search
+     * @param epsilons the epsilons of the archive of the search
+     * @return the screen or null if the architectures are not screened
+     */
+    public static ScreeningEvaluator create(ArchitectureEvaluator archEval, MissionConcept concept, double[] epsilons) {
+        if (!Boolean.parseBoolean(System.getProperty("tatc.screening", "false"))) {
+            return null;
+        }
+        int gridFactor = Integer.parseInt(System.getProperty("tatc.screeningGridFactor", "3"));
+        int horizon = Integer.parseInt(System.getProperty("tatc.screeningHorizon", "86400"));
+        double margin = Double.parseDouble(System.getProperty("tatc.screeningMargin", "0.25"));
+        return new ScreeningEvaluator(archEval, concept, epsilons,
+                concept.getGranularity() * gridFactor, horizon, margin);
+    }
+
+    /**
+     * Screens an architecture on the coarse mission concept
+     *
+     * @param arch the architecture
+     * @param cost the lifecycle cost of the architecture
+     * @return the estimated metrics of the architecture if it cannot enter the
+     * archive, or null if the architecture should be fully evaluated
+     * @throws ReductionMetricsException
+     */
+    public double[] screen(Architecture arch, double cost) throws ReductionMetricsException {
+        screened.incrementAndGet();
+        double[] metrics = archEval.screenReductionAndMetrics(arch, coarseConcept);
+        double[] optimistic = new double[]{metrics[0] * (1 - margin), cost};
+        if (boxes.isDominated(box(optimistic))) {
+            rejected.incrementAndGet();
+            return metrics;
+        }
+        return null;
+    }
+
+    /**
+     * Tags a solution as rejected by the screen and penalizes its average
+     * revisit time. The lifecycle cost of the solution is exact.
+     *
+     * @param solution the solution
+     * @param cost the lifecycle cost of the architecture
+     */
+    public static void reject(Solution solution, double cost) {
+        solution.setAttribute(SCREENED_ATTRIBUTE, Boolean.TRUE);
+        solution.setObjective(0, PENALTY);
+        solution.setObjective(1, cost);
+    }
+
+    /**
+     * Checks if a solution was rejected by the screen
+     *
+     * @param solution the solution
+     * @return true if the solution was rejected by the screen
+     */
+    public static boolean isScreened(Solution solution) {
+        return solution.hasAttribute(SCREENED_ATTRIBUTE);
+    }
+
+    /**
+     * Records the objectives of an architecture that was fully evaluated
+     *
+     * @param objectives the average revisit time and the lifecycle cost
+     */
+    public void record(double[] objectives) {
+        boxes.add(box(objectives));
+    }
+
+    /**
+     * Gets the number of architectures that were screened
+     *
+     * @return the number of architectures that were screened
+     */
+    public int getScreened() {
+        return screened.get();
+    }
+
+    /**
+     * Gets the number of architectures that were rejected by the screen
+     *
+     * @return the number of architectures that were rejected by the screen
+     */
+    public int getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * The epsilon box of an objective vector, as indexed by the epsilon-box
+     * dominance archive
+     */
+    private double[] box(double[] objectives) {
+        double[] out = new double[objectives.length];
+        for (int i = 0; i < objectives.length; i++) {
+            out[i] = FastMath.floor(objectives[i] / epsilons[i]);
+        }
+        return out;
+    }
+}
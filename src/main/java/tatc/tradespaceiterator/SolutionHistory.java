@@ -0,0 +1,742 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.Population;
+import org.moeaframework.core.Problem;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variable;
+import org.moeaframework.core.variable.BinaryVariable;
+import tatc.ColumnarPopulationIO;
+import tatc.architecture.variable.IntegerVariable;
+import tatc.architecture.variable.RealVariable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The history of all the solutions found by a search. Only the decision
+ * values, the objective values and the number of function evaluations at which
+ * each solution was first found are kept, as arrays of primitives. Binary
+ * decisions are kept as chunks of 32 bits so they are exact in a double. The
+ * solutions are deduplicated, so a solution that stays in the population for
+ * many steps or that is found again is only kept once.
+ *
+ * The solutions are kept in memory until they reach the memory cap given by
+ * the tatc.historyMemoryMB property. They are then appended to a binary file
+ * and only a 64-bit fingerprint of their decision values stays in memory to
+ * deduplicate the next solutions. A solution is compared by its decision
+ * values with the solutions in memory that have the same fingerprint, so
+ * deduplication is exact among them. A solution with the same fingerprint as
+ * a solution in the file is assumed to be a duplicate without reading the
+ * file, so a distinct solution is dropped if its fingerprint collides with
+ * the one of a spilled solution. With n solutions in the file, this happens
+ * with a probability of about n / 2^64 for each added solution. The solutions
+ * are read back from memory and from the file when the results are saved.
+ *
+ * The spilled solutions are also appended to the columnar results (see
+ * ColumnarPopulationIO), so the results of a search are written as the
+ * search goes. Call flush at the end of the search to append the solutions
+ * still in memory.
+ *
+ * @author Prachi
+ */
+public class SolutionHistory implements Closeable {
+
+    /**
+     * The name of the attribute holding the number of function evaluations at
+     * which a solution was first found
+     */
+    public static final String NFE_ATTRIBUTE = "NFE";
+
+    /**
+     * Creates the solutions read from the history
+     */
+    private final Problem problem;
+
+    private final int numberOfVariables;
+
+    private final int numberOfObjectives;
+
+    /**
+     * The index in a record of the first value of each decision
+     */
+    private final int[] offsets;
+
+    /**
+     * The number of values in a record
+     */
+    private final int recordLength;
+
+    /**
+     * The file the solutions are appended to once the memory cap is reached
+     */
+    private final File file;
+
+    /**
+     * The file the columnar results are appended to. Null if the results are
+     * not saved
+     */
+    private final File resultsFile;
+
+    /**
+     * The maximum number of solutions kept in memory
+     */
+    private final int memoryCapacity;
+
+    /**
+     * The solutions kept in memory. Each record holds the number of function
+     * evaluations, the decision values and the objective values of a solution
+     */
+    private final List<double[]> records;
+
+    /**
+     * The index in a fingerprint map of a solution in the file
+     */
+    private static final int SPILLED = -1;
+
+    /**
+     * The value of a fingerprint that is not in a fingerprint map
+     */
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    /**
+     * The fingerprints of the decision values of all the solutions in memory
+     * and in the file, mapped to the index of the solutions in memory
+     */
+    private final FingerprintMap fingerprints;
+
+    /**
+     * The solutions in memory whose fingerprint is the same as the one of
+     * another distinct solution in memory
+     */
+    private final List<double[]> collisions;
+
+    /**
+     * The number of solutions in the file
+     */
+    private long spilled;
+
+    private DataOutputStream out;
+
+    /**
+     * True once the results of this history were created, so the next
+     * solutions are appended to them
+     */
+    private boolean resultsCreated;
+
+    /**
+     * Creates a history of solutions
+     *
+     * @param problem the problem of the solutions
+     * @param file the file the solutions are appended to once the memory cap
+     * is reached
+     * @param resultsFile the file the columnar results are appended to. Null
+     * to not save the results
+     * @param memoryCap the maximum number of bytes of the solutions kept in
+     * memory
+     */
+    public SolutionHistory(Problem problem, File file, File resultsFile, long memoryCap) {
+        this.problem = problem;
+        this.numberOfVariables = problem.getNumberOfVariables();
+        this.numberOfObjectives = problem.getNumberOfObjectives();
+        this.offsets = new int[numberOfVariables + 1];
+        Solution template = problem.newSolution();
+        offsets[0] = 1;
+        for (int i = 0; i < numberOfVariables; i++) {
+            offsets[i + 1] = offsets[i] + width(template.getVariable(i));
+        }
+        this.recordLength = offsets[numberOfVariables] + numberOfObjectives;
+        this.file = file;
+        this.resultsFile = resultsFile;
+        this.memoryCapacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryCap / recordBytes()));
+        this.records = new ArrayList<>();
+        this.fingerprints = new FingerprintMap();
+        this.collisions = new ArrayList<>();
+        this.spilled = 0;
+        this.out = null;
+        this.resultsCreated = false;
+    }
+
+    /**
+     * Creates the history of the solutions of a search saved in the tatc.moea
+     * directory. The results are appended to results.col in the same
+     * directory
+     *
+     * @param problem the problem of the solutions
+     * @return the history of the solutions
+     */
+    public static SolutionHistory create(Problem problem) {
+        long memoryCap = Long.parseLong(System.getProperty("tatc.historyMemoryMB", "256")) * 1024 * 1024;
+        File dir = new File(System.getProperty("tatc.moea"));
+        return new SolutionHistory(problem, new File(dir, "history.bin"), new File(dir, "results.col"), memoryCap);
+    }
+
+    /**
+     * The approximate number of bytes of a solution kept in memory
+     */
+    private long recordBytes() {
+        //array header and the values, plus the reference in the list and the fingerprint with its index
+        return 16 + Double.BYTES * recordLength + 8 + 24;
+    }
+
+    /**
+     * Adds a solution to the history if no solution with the same decision
+     * values was added before (up to the fingerprint collisions with the
+     * solutions in the file, see above). Solutions rejected by the screen are
+     * not added since their objectives are not evaluated.
+     *
+     * @param solution the solution
+     * @param nfe the number of function evaluations of the search
+     * @return true if the solution was added
+     */
+    public boolean add(Solution solution, int nfe) {
+        if (ScreeningEvaluator.isScreened(solution)) {
+            return false;
+        }
+        double[] record = new double[recordLength];
+        record[0] = nfe;
+        for (int i = 0; i < numberOfVariables; i++) {
+            encode(solution.getVariable(i), record, offsets[i]);
+        }
+        for (int i = 0; i < numberOfObjectives; i++) {
+            record[offsets[numberOfVariables] + i] = solution.getObjective(i);
+        }
+        long fingerprint = fingerprint(record);
+        int index = fingerprints.get(fingerprint);
+        if (index == ABSENT) {
+            fingerprints.putIfAbsent(fingerprint, records.size());
+        } else if (index == SPILLED || sameDecisions(records.get(index), record)) {
+            return false;
+        } else {
+            //the fingerprints collide, so the solution may be one of the other solutions with this fingerprint
+            for (double[] other : collisions) {
+                if (sameDecisions(other, record)) {
+                    return false;
+                }
+            }
+            collisions.add(record);
+        }
+        records.add(record);
+        if (records.size() >= memoryCapacity) {
+            spill();
+        }
+        return true;
+    }
+
+    /**
+     * Adds the solutions to the history
+     *
+     * @param solutions the solutions
+     * @param nfe the number of function evaluations of the search
+     */
+    public void addAll(Iterable<Solution> solutions, int nfe) {
+        for (Solution solution : solutions) {
+            add(solution, nfe);
+        }
+    }
+
+    public long size() {
+        return spilled + records.size();
+    }
+
+    /**
+     * Appends the solutions in memory to the file
+     */
+    private void spill() {
+        try {
+            if (out == null) {
+                file.getParentFile().mkdirs();
+                //a new history overwrites the file of the previous search
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, spilled > 0)));
+            }
+            for (double[] record : records) {
+                for (double value : record) {
+                    out.writeDouble(value);
+                }
+            }
+            out.flush();
+        } catch (IOException ex) {
+            //keep the solutions in memory rather than losing them
+            Logger.getLogger(SolutionHistory.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+        appendResults(new RecordIterator(0, records));
+        spilled += records.size();
+        records.clear();
+        fingerprints.spillAll();
+        collisions.clear();
+    }
+
+    /**
+     * Appends the solutions in memory to the file and to the results, so that
+     * the results hold all the solutions of the history. Solutions can still
+     * be added afterwards.
+     */
+    public void flush() {
+        if (!records.isEmpty()) {
+            spill();
+        }
+    }
+
+    /**
+     * Appends solutions to the columnar results. A failure is logged and does
+     * not stop the search since the solutions are kept in the history.
+     */
+    private void appendResults(Iterator<Solution> solutions) {
+        if (resultsFile == null || !solutions.hasNext()) {
+            return;
+        }
+        boolean compress = Boolean.parseBoolean(System.getProperty("tatc.compressResults", "false"));
+        Solution first = solutions.next();
+        //a new history overwrites the results of the previous search
+        try (ColumnarPopulationIO.Writer results = resultsCreated
+                ? ColumnarPopulationIO.appendWriter(resultsFile, compress)
+                : ColumnarPopulationIO.newWriter(resultsFile, first, compress)) {
+            resultsCreated = true;
+            results.add(first);
+            while (solutions.hasNext()) {
+                results.add(solutions.next());
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(SolutionHistory.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Iterates over all the solutions of the history. The solutions in the
+     * file are read as the iteration goes, so the solutions do not need to
+     * fit in memory unless they are collected.
+     *
+     * @return the solutions of the history
+     */
+    public Iterable<Solution> solutions() {
+        return () -> {
+            if (out != null) {
+                try {
+                    out.flush();
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to read the solution history.", ex);
+                }
+            }
+            return new RecordIterator(spilled, records);
+        };
+    }
+
+    /**
+     * Collects all the solutions of the history in a population
+     *
+     * @return the population of all the solutions
+     */
+    public Population toPopulation() {
+        Population out = new Population();
+        for (Solution solution : solutions()) {
+            out.add(solution);
+        }
+        return out;
+    }
+
+    /**
+     * Collects the solutions of a snapshot of the history in a population.
+     * The solutions in the file are read up to the number of solutions in the
+     * file at the snapshot, so the population can be collected on another
+     * thread while the search keeps adding solutions to the history.
+     *
+     * @param snapshot the snapshot of the history
+     * @return the population of the solutions of the snapshot
+     */
+    public Population toPopulation(Snapshot snapshot) {
+        Population out = new Population();
+        Iterator<Solution> iterator = new RecordIterator(snapshot.spilled, snapshot.records);
+        while (iterator.hasNext()) {
+            out.add(iterator.next());
+        }
+        return out;
+    }
+
+    /**
+     * Creates a solution from a record
+     */
+    private Solution toSolution(double[] record) {
+        Solution solution = problem.newSolution();
+        for (int i = 0; i < numberOfVariables; i++) {
+            decode(solution.getVariable(i), record, offsets[i]);
+        }
+        for (int i = 0; i < numberOfObjectives; i++) {
+            solution.setObjective(i, record[offsets[numberOfVariables] + i]);
+        }
+        solution.setAttribute(NFE_ATTRIBUTE, (int) record[0]);
+        return solution;
+    }
+
+    /**
+     * The number of values of a decision in a record
+     */
+    private static int width(Variable variable) {
+        if (variable instanceof IntegerVariable || variable instanceof RealVariable) {
+            return 1;
+        } else if (variable instanceof BinaryVariable) {
+            return Math.max(1, (((BinaryVariable) variable).getNumberOfBits() + 31) / 32);
+        } else {
+            throw new IllegalArgumentException(String.format("Expected an IntegerVariable, a RealVariable or a"
+                    + " BinaryVariable. Found %s", variable.getClass().getSimpleName()));
+        }
+    }
+
+    private static void encode(Variable variable, double[] record, int offset) {
+        if (variable instanceof IntegerVariable) {
+            record[offset] = ((IntegerVariable) variable).getValue();
+        } else if (variable instanceof RealVariable) {
+            record[offset] = ((RealVariable) variable).getValue();
+        } else if (variable instanceof BinaryVariable) {
+            BinaryVariable bits = (BinaryVariable) variable;
+            for (int i = 0; i < bits.getNumberOfBits(); i++) {
+                if (bits.get(i)) {
+                    record[offset + i / 32] += 1L << (i % 32);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Expected an IntegerVariable, a RealVariable or a"
+                    + " BinaryVariable. Found %s", variable.getClass().getSimpleName()));
+        }
+    }
+
+    private static void decode(Variable variable, double[] record, int offset) {
+        if (variable instanceof IntegerVariable) {
+            ((IntegerVariable) variable).setValue((int) record[offset]);
+        } else if (variable instanceof RealVariable) {
+            ((RealVariable) variable).setValue(record[offset]);
+        } else if (variable instanceof BinaryVariable) {
+            BinaryVariable bits = (BinaryVariable) variable;
+            for (int i = 0; i < bits.getNumberOfBits(); i++) {
+                bits.set(i, (((long) record[offset + i / 32] >>> (i % 32)) & 1L) == 1L);
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Expected an IntegerVariable, a RealVariable or a"
+                    + " BinaryVariable. Found %s", variable.getClass().getSimpleName()));
+        }
+    }
+
+    /**
+     * Checks if two records have the same decision values
+     */
+    private boolean sameDecisions(double[] a, double[] b) {
+        for (int i = 1; i < offsets[numberOfVariables]; i++) {
+            //+0.0 and -0.0 are the same decision value
+            if (Double.doubleToLongBits(a[i] + 0.0) != Double.doubleToLongBits(b[i] + 0.0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the 64-bit fingerprint of the decision values of a record
+     */
+    private long fingerprint(double[] record) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 1; i < offsets[numberOfVariables]; i++) {
+            //+0.0 and -0.0 are the same decision value
+            long bits = Double.doubleToLongBits(record[i] + 0.0);
+            hash = (hash ^ bits) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    /**
+     * Saves the state of the history so that it can be restored when a search
+     * is resumed, or so that its solutions can be collected on another thread
+     * (see toPopulation(Snapshot))
+     *
+     * @return the state of the history
+     */
+    public Snapshot snapshot() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                Logger.getLogger(SolutionHistory.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        //the records are not changed after they are added, so only the list is copied
+        return new Snapshot(spilled, new ArrayList<>(records));
+    }
+
+    /**
+     * Restores the state of the history. The solutions appended to the file
+     * after the snapshot was taken are discarded.
+     *
+     * @param snapshot the state of the history
+     * @throws IOException if the solutions in the file cannot be read
+     */
+    public void restore(Snapshot snapshot) throws IOException {
+        close();
+        long fileRecords = file.exists() ? file.length() / (Double.BYTES * (long) recordLength) : 0;
+        if (fileRecords < snapshot.spilled) {
+            throw new IOException(String.format("%s holds %d solutions. Expected %d.",
+                    file.getAbsolutePath(), fileRecords, snapshot.spilled));
+        }
+        if (file.exists()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(snapshot.spilled * Double.BYTES * recordLength);
+            }
+        }
+        spilled = snapshot.spilled;
+        records.clear();
+        fingerprints.clear();
+        collisions.clear();
+        Iterator<Solution> fileSolutions = new RecordIterator(spilled, Collections.<double[]>emptyList());
+        while (fileSolutions.hasNext()) {
+            fingerprints.putIfAbsent(solutionFingerprint(fileSolutions.next()), SPILLED);
+        }
+        //the solutions of the snapshot were deduplicated when they were added
+        for (double[] snapshotRecord : snapshot.records) {
+            double[] record = snapshotRecord.clone();
+            long fingerprint = fingerprint(record);
+            int index = fingerprints.get(fingerprint);
+            if (index == ABSENT) {
+                fingerprints.putIfAbsent(fingerprint, records.size());
+            } else if (index != SPILLED) {
+                collisions.add(record);
+            }
+            records.add(record);
+        }
+        //the results are rewritten to drop the solutions found after the snapshot
+        resultsCreated = false;
+        appendResults(new RecordIterator(spilled, Collections.<double[]>emptyList()));
+    }
+
+    private long solutionFingerprint(Solution solution) {
+        double[] record = new double[recordLength];
+        for (int i = 0; i < numberOfVariables; i++) {
+            encode(solution.getVariable(i), record, offsets[i]);
+        }
+        return fingerprint(record);
+    }
+
+    /**
+     * Closes the file of the history. The solutions can still be read.
+     */
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                Logger.getLogger(SolutionHistory.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Iterates over the records in the file and then over the records in
+     * memory
+     */
+    private class RecordIterator implements Iterator<Solution> {
+
+        private DataInputStream in;
+
+        private long remaining;
+
+        private final List<double[]> memory;
+
+        private int index;
+
+        RecordIterator(long spilled, List<double[]> memory) {
+            this.remaining = spilled;
+            this.memory = memory;
+            this.index = 0;
+            if (remaining > 0) {
+                try {
+                    in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to read the solution history.", ex);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 || index < memory.size();
+        }
+
+        @Override
+        public Solution next() {
+            if (remaining > 0) {
+                double[] record = new double[recordLength];
+                try {
+                    for (int i = 0; i < record.length; i++) {
+                        record[i] = in.readDouble();
+                    }
+                    remaining--;
+                    if (remaining == 0) {
+                        in.close();
+                    }
+                } catch (EOFException ex) {
+                    throw new IllegalStateException("Solution history ended unexpectedly.", ex);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to read the solution history.", ex);
+                }
+                return toSolution(record);
+            }
+            if (index < memory.size()) {
+                return toSolution(memory.get(index++));
+            }
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * The state of a history
+     */
+    public static class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = -2201876235412839012L;
+
+        /**
+         * The number of solutions in the file
+         */
+        private final long spilled;
+
+        /**
+         * The solutions in memory
+         */
+        private final List<double[]> records;
+
+        private Snapshot(long spilled, List<double[]> records) {
+            this.spilled = spilled;
+            this.records = records;
+        }
+    }
+
+    /**
+     * An open addressing hash map of 64-bit fingerprints to the index of the
+     * solution in memory, or SPILLED if the solution is in the file
+     */
+    private static class FingerprintMap {
+
+        private long[] keys;
+
+        private int[] values;
+
+        /**
+         * The fingerprint 0 is kept apart since it marks the empty slots
+         */
+        private boolean hasZero;
+
+        private int zeroValue;
+
+        private int size;
+
+        FingerprintMap() {
+            clear();
+        }
+
+        /**
+         * Gets the index of the solution with a fingerprint
+         *
+         * @param fingerprint the fingerprint
+         * @return the index of the solution, SPILLED or ABSENT if the
+         * fingerprint is not in the map
+         */
+        int get(long fingerprint) {
+            if (fingerprint == 0) {
+                return hasZero ? zeroValue : ABSENT;
+            }
+            int mask = keys.length - 1;
+            int i = slot(fingerprint, mask);
+            while (keys[i] != 0) {
+                if (keys[i] == fingerprint) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        /**
+         * Puts a fingerprint in the map if it is not in the map yet
+         *
+         * @param fingerprint the fingerprint
+         * @param value the index of the solution or SPILLED
+         */
+        void putIfAbsent(long fingerprint, int value) {
+            if (fingerprint == 0) {
+                if (!hasZero) {
+                    hasZero = true;
+                    zeroValue = value;
+                }
+                return;
+            }
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            if (insert(keys, values, fingerprint, value)) {
+                size++;
+            }
+        }
+
+        /**
+         * Marks all the solutions as spilled to the file
+         */
+        void spillAll() {
+            Arrays.fill(values, SPILLED);
+            zeroValue = SPILLED;
+        }
+
+        private static int slot(long fingerprint, int mask) {
+            return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        }
+
+        private static boolean insert(long[] keys, int[] values, long fingerprint, int value) {
+            int mask = keys.length - 1;
+            int i = slot(fingerprint, mask);
+            while (keys[i] != 0) {
+                if (keys[i] == fingerprint) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = fingerprint;
+            values[i] = value;
+            return true;
+        }
+
+        private void resize() {
+            long[] resizedKeys = new long[2 * keys.length];
+            int[] resizedValues = new int[2 * keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    insert(resizedKeys, resizedValues, keys[i], values[i]);
+                }
+            }
+            keys = resizedKeys;
+            values = resizedValues;
+        }
+
+        void clear() {
+            keys = new long[1024];
+            values = new int[1024];
+            hasZero = false;
+            size = 0;
+        }
+    }
+}
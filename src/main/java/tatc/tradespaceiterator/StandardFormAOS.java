@@ -15,22 +15,24 @@ import tatc.ResultIO;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
 
 public class StandardFormAOS extends StandardFormGA {
     public StandardFormAOS(StandardFormProblemProperties properties) {
         super(properties);
     }
 
-    public void start(){
-        long startTime = System.nanoTime();
-//        Constellation c = JSONIO.readJSON(new File("/Users/Prachi/Downloads/CostRisk_CYGNSS.json"), Constellation.class);
-
+    /**
+     * Creates the epsilon-MOEA with adaptive operator selection on the
+     * population and archive of this search
+     *
+     * @return the epsilon-MOEA with adaptive operator selection
+     */
+    AOSMOEA createAlgorithm() {
         //set up variations
         //example of operators you might use
         ArrayList<Variation> operators = new ArrayList();
-        operators.add(new CompoundVariation(new OnePointCrossover(1.0), new IntegerUM(0.5)));
-        operators.add(new CompoundVariation(new UniformCrossover(1.0), new IntegerUM(0.1)));
+        operators.add(surrogateAssisted(new CompoundVariation(new OnePointCrossover(1.0), new IntegerUM(0.5))));
+        operators.add(surrogateAssisted(new CompoundVariation(new UniformCrossover(1.0), new IntegerUM(0.1))));
 
         //create AOS
         //create operator selector
@@ -43,25 +45,51 @@ public class StandardFormAOS extends StandardFormGA {
         AOSVariation aosStrategy = new AOSVariationSI(operatorSelector, creditAssignment, populationSize);
         EpsilonMOEA emoea = new EpsilonMOEA(problem, population, archive,
                 selection, aosStrategy, initialization, comparator);
-        AOSMOEA aos = new AOSMOEA(emoea, aosStrategy, true);
+        return new AOSMOEA(emoea, aosStrategy, true);
+    }
 
-        HashSet<Solution> allSolutions = new HashSet<>();
+    public void start(){
+        long startTime = System.nanoTime();
+//        Constellation c = JSONIO.readJSON(new File("/Users/Prachi/Downloads/CostRisk_CYGNSS.json"), Constellation.class);
+
+        Checkpointer checkpointer = Checkpointer.create();
+        Checkpointer.Checkpoint checkpoint = resume(checkpointer);
+        //evaluations done before the checkpoint
+        int nfeOffset = checkpoint == null ? 0 : checkpoint.getNFE();
+
+        AOSMOEA aos = createAlgorithm();
+        if (checkpoint != null && checkpoint.getOperatorSelector() != null) {
+            checkpoint.getOperatorSelector().restore(aos.getOperatorSelector(), aos.getOperatorSelector().getOperators());
+        }
+
+        SolutionHistory history = createHistory(checkpoint);
 
         System.out.println(String.format("Initializing population... Size = %d", populationSize));
-        while (aos.getNumberOfEvaluations() < maxNFE) {
+        while (nfeOffset + aos.getNumberOfEvaluations() < maxNFE) {
             aos.step();
+            int nfe = nfeOffset + aos.getNumberOfEvaluations();
             double currentTime = ((System.nanoTime() - startTime) / Math.pow(10, 9)) / 60.;
             System.out.println(
                     String.format("%d NFE out of %d NFE: Time elapsed = %10f min."
                                     + " Approximate time remaining %10f min.",
-                            aos.getNumberOfEvaluations(), maxNFE, currentTime,
-                            currentTime / emoea.getNumberOfEvaluations() * (maxNFE - aos.getNumberOfEvaluations())));
-            for (Solution solution : aos.getPopulation()) {
-                allSolutions.add(solution);
+                            nfe, maxNFE, currentTime,
+                            currentTime / Math.max(1, aos.getNumberOfEvaluations()) * (maxNFE - nfe)));
+            history.addAll(aos.getPopulation(), nfe);
+            if (checkpointer.isDue(nfe)) {
+                checkpointer.save(nfe, population, archive, history, aos.getOperatorSelector(),
+                        aos.getOperatorSelector().getOperators());
             }
         }
-        ResultIO.savePopulation(new Population(allSolutions), Paths.get(System.getProperty("tatc.moea"), "population").toString());
-        ResultIO.saveSearchResults(new Population(allSolutions), Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        checkpointer.close();
+        System.out.println(String.format("Evaluation cache: %d hits (%d from the evaluation store), %d misses",
+                properties.evaluationCache.getHits(), properties.evaluationCache.getStoreHits(),
+                properties.evaluationCache.getMisses()));
+        if (surrogate != null) {
+            System.out.println(surrogate.summary());
+        }
+        ResultIO.savePopulation(history.solutions(), Paths.get(System.getProperty("tatc.moea"), "population").toString());
+        ResultIO.saveSearchResults(history, Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        history.close();
         AOSHistoryIO.saveCreditHistory(aos.getCreditHistory(), new File(System.getProperty("tatc.moea"), "res.credit"), ",");
         AOSHistoryIO.saveSelectionHistory(aos.getSelectionHistory(), new File(System.getProperty("tatc.moea"), "res.select"), ",");
     }
@@ -0,0 +1,205 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.*;
+import org.moeaframework.core.operator.CompoundVariation;
+import org.moeaframework.core.operator.OnePointCrossover;
+import tatc.ResultIO;
+import tatc.tradespaceiterator.search.VariableMutation;
+
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous steady-state version of the epsilon-MOEA. The evaluation times
+ * of the architectures range from seconds to minutes depending on the size of
+ * the constellation, so instead of evaluating the offspring one at a time, a
+ * new offspring is created and submitted to the evaluation pool as soon as a
+ * worker is free. The evaluated solutions are inserted in the population and
+ * the epsilon-box dominance archive in the order in which they complete.
+ *
+ * @author Prachi
+ */
+public class StandardFormAsyncMOEA extends StandardFormGA {
+
+    /**
+     * The number of architectures evaluated at the same time
+     */
+    private final int numThreads;
+
+    public StandardFormAsyncMOEA(StandardFormProblemProperties properties) {
+        super(properties);
+        this.numThreads = Math.max(1, Integer.parseInt(System.getProperty("tatc.numEvalThreads", "1")));
+    }
+
+    public void start(){
+        long startTime = System.nanoTime();
+
+        Variation crossover = new OnePointCrossover(1);
+        Variation mutation = new VariableMutation(1);
+        CompoundVariation operators = new CompoundVariation(crossover, mutation);
+
+        SolutionHistory history = SolutionHistory.create(problem);
+
+        System.out.println(String.format("Initializing population... Size = %d", populationSize));
+        Logger.getGlobal().finer(String.format("Evaluating architectures on %d threads...", numThreads));
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        CompletionService<Solution> ecs = new ExecutorCompletionService<>(pool);
+
+        //solutions waiting for a free worker, starting with the initial population
+        ArrayDeque<Solution> queue = new ArrayDeque<>();
+        for (Solution solution : initialization.initialize()) {
+            queue.add(solution);
+        }
+
+        int nfe = 0;
+        try {
+            int running = fill(ecs, queue, operators, 0, 0);
+            int submitted = running;
+
+            while (running > 0) {
+                Solution solution = take(ecs);
+                running--;
+                nfe++;
+
+                if (population.size() < populationSize) {
+                    population.add(solution);
+                } else {
+                    addToPopulation(solution);
+                }
+                archive.add(solution);
+                history.add(solution, nfe);
+
+                //keep the workers busy until the budget of evaluations is used
+                int count = fill(ecs, queue, operators, running, submitted);
+                submitted += count;
+                running += count;
+
+                double currentTime = ((System.nanoTime() - startTime) / Math.pow(10, 9)) / 60.;
+                System.out.println(
+                        String.format("%d NFE out of %d NFE: Time elapsed = %10f min."
+                                        + " Approximate time remaining %10f min.",
+                                nfe, maxNFE, currentTime,
+                                currentTime / nfe * (maxNFE - nfe)));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println(String.format("Evaluation cache: %d hits (%d from the evaluation store), %d misses",
+                properties.evaluationCache.getHits(), properties.evaluationCache.getStoreHits(),
+                properties.evaluationCache.getMisses()));
+        ResultIO.savePopulation(history.solutions(), Paths.get(System.getProperty("tatc.moea"), "population").toString());
+        ResultIO.saveSearchResults(history, Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        history.close();
+    }
+
+    /**
+     * Submits solutions to the free workers. The offspring are created when
+     * there are no solutions waiting, so they are bred from the latest
+     * population and archive.
+     *
+     * @param ecs the completion service of the evaluations
+     * @param queue the solutions waiting for a free worker
+     * @param operators the variation operators
+     * @param running the number of evaluations running
+     * @param submitted the number of evaluations submitted so far
+     * @return the number of solutions submitted
+     */
+    private int fill(CompletionService<Solution> ecs, ArrayDeque<Solution> queue, Variation operators,
+            int running, int submitted) {
+        int count = 0;
+        while (running + count < numThreads && submitted + count < maxNFE) {
+            if (queue.isEmpty()) {
+                if (population.isEmpty()) {
+                    //wait for the first initial solutions to be evaluated
+                    break;
+                }
+                queue.addAll(Arrays.asList(operators.evolve(selectParents(operators.getArity()))));
+            }
+            Solution solution = queue.poll();
+            ecs.submit(() -> {
+                problem.evaluate(solution);
+                return solution;
+            });
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Waits for the next evaluation to finish
+     *
+     * @param ecs the completion service of the evaluations
+     * @return the evaluated solution
+     */
+    private Solution take(CompletionService<Solution> ecs) {
+        try {
+            return ecs.take().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation of solution was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) ex.getCause();
+            }
+            throw new IllegalStateException("Evaluation of solution failed.", ex.getCause());
+        }
+    }
+
+    /**
+     * Selects the parents of an offspring as the epsilon-MOEA does: one parent
+     * from the archive and the others from the population by tournament
+     *
+     * @param arity the number of parents
+     * @return the parents
+     */
+    private Solution[] selectParents(int arity) {
+        if (archive.isEmpty()) {
+            return selection.select(arity, population);
+        }
+        Solution[] parents = new Solution[arity];
+        parents[0] = archive.get(PRNG.nextInt(archive.size()));
+        if (arity > 1) {
+            Solution[] others = selection.select(arity - 1, population);
+            System.arraycopy(others, 0, parents, 1, arity - 1);
+        }
+        PRNG.shuffle(parents);
+        return parents;
+    }
+
+    /**
+     * Replaces a member of the population with the new solution as the
+     * epsilon-MOEA does. The solution is rejected if any member dominates it,
+     * replaces one of the members it dominates, or otherwise replaces a random
+     * member.
+     *
+     * @param solution the evaluated solution
+     */
+    private void addToPopulation(Solution solution) {
+        List<Integer> dominates = new ArrayList<>();
+        for (int i = 0; i < population.size(); i++) {
+            int flag = comparator.compare(solution, population.get(i));
+            if (flag < 0) {
+                dominates.add(i);
+            } else if (flag > 0) {
+                return;
+            }
+        }
+
+        if (dominates.isEmpty()) {
+            population.replace(PRNG.nextInt(population.size()), solution);
+        } else {
+            population.replace(dominates.get(PRNG.nextInt(dominates.size())), solution);
+        }
+    }
+}
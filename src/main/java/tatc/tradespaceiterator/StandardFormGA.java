@@ -4,12 +4,25 @@ import org.moeaframework.core.EpsilonBoxDominanceArchive;
 import org.moeaframework.core.Initialization;
 import org.moeaframework.core.Population;
 import org.moeaframework.core.Problem;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variation;
 import org.moeaframework.core.comparator.DominanceComparator;
 import org.moeaframework.core.comparator.ParetoDominanceComparator;
 import org.moeaframework.core.operator.RandomInitialization;
 import org.moeaframework.core.operator.TournamentSelection;
+import tatc.tradespaceiterator.search.ArchitectureDecoder;
+import tatc.tradespaceiterator.search.SurrogateModel;
+import tatc.tradespaceiterator.search.SurrogateVariation;
+
+import java.io.IOException;
 
 public abstract class StandardFormGA implements StandardFormProblemImplementation{
+    /**
+     * The epsilons of the archive: 60 s of average revisit time and 10 $ of
+     * lifecycle cost
+     */
+    static final double[] EPSILONS = new double[]{60, 10};
+
     public final StandardFormProblemProperties properties;
     public final Problem problem;
     int maxNFE;
@@ -20,6 +33,12 @@ public abstract class StandardFormGA implements StandardFormProblemImplementatio
     EpsilonBoxDominanceArchive archive;
     TournamentSelection selection;
 
+    /**
+     * The surrogate model that pre-screens the offspring. Null if the search
+     * is not surrogate-assisted
+     */
+    SurrogateModel surrogate;
+
     public StandardFormGA(StandardFormProblemProperties properties) {
         this.properties=properties;
         this.problem=createProblem(properties);
@@ -28,8 +47,38 @@ public abstract class StandardFormGA implements StandardFormProblemImplementatio
         this.initialization=new RandomInitialization(this.problem, populationSize);
         this.population=new Population();
         this.comparator=new ParetoDominanceComparator();
-        this.archive=new EpsilonBoxDominanceArchive(new double[]{60, 10});
+        this.archive=new EpsilonBoxDominanceArchive(EPSILONS);
         this.selection=new TournamentSelection(2, comparator);
+        if (Boolean.parseBoolean(System.getProperty("tatc.surrogate", "false"))) {
+            if (!(problem instanceof ArchitectureDecoder)) {
+                throw new IllegalArgumentException(String.format("Expected a problem that decodes its solutions."
+                        + " Found %s", problem.getClass()));
+            }
+            this.surrogate=SurrogateModel.create((ArchitectureDecoder) problem, problem.getNumberOfObjectives());
+            //the evaluations of a surrogate-assisted search are the true evaluations
+            int budget=Integer.parseInt(System.getProperty("tatc.surrogateEvaluations", "0"));
+            if (budget > 0) {
+                this.maxNFE=budget;
+            }
+        }
+    }
+
+    /**
+     * Wraps a variation so that its offspring are pre-screened by the
+     * surrogate model if the search is surrogate-assisted. The number of
+     * candidate offspring ranked for each offspring that is truly evaluated is
+     * given by the tatc.surrogatePoolSize property.
+     *
+     * @param variation the variation
+     * @return the surrogate-assisted variation or the given variation if the
+     * search is not surrogate-assisted
+     */
+    protected Variation surrogateAssisted(Variation variation) {
+        if (surrogate == null) {
+            return variation;
+        }
+        int poolSize=Integer.parseInt(System.getProperty("tatc.surrogatePoolSize", "10"));
+        return new SurrogateVariation(variation, surrogate, archive, poolSize);
     }
 
     protected  Problem createProblem(StandardFormProblemProperties properties){
@@ -44,5 +93,57 @@ public abstract class StandardFormGA implements StandardFormProblemImplementatio
         }
     }
 
+    /**
+     * Restores the population and the archive of the latest checkpoint if the
+     * search is resumed. Must be called before the algorithm is created since
+     * the algorithm then starts from the restored population instead of a
+     * random one.
+     *
+     * @param checkpointer the checkpointer of the search
+     * @return the latest checkpoint or null if the search is not resumed
+     */
+    protected Checkpointer.Checkpoint resume(Checkpointer checkpointer) {
+        if (!Checkpointer.isResume()) {
+            return null;
+        }
+        Checkpointer.Checkpoint checkpoint = checkpointer.load();
+        if (checkpoint == null) {
+            System.out.println("No checkpoint found. Starting a new search.");
+            return null;
+        }
+        population.addAll(checkpoint.getPopulation());
+        archive.addAll(checkpoint.getArchive());
+        checkpoint.restoreRandom();
+        //the restored population is already evaluated
+        initialization = new Initialization() {
+            @Override
+            public Solution[] initialize() {
+                return new Solution[0];
+            }
+        };
+        System.out.println(String.format("Resuming search from checkpoint at %d NFE", checkpoint.getNFE()));
+        return checkpoint;
+    }
+
+    /**
+     * Creates the history of the solutions of this search. If the search is
+     * resumed, the history is restored from the checkpoint.
+     *
+     * @param checkpoint the checkpoint the search is resumed from. Null if
+     * the search is not resumed
+     * @return the history of the solutions
+     */
+    protected SolutionHistory createHistory(Checkpointer.Checkpoint checkpoint) {
+        SolutionHistory history = SolutionHistory.create(problem);
+        if (checkpoint != null) {
+            try {
+                history.restore(checkpoint.getHistory());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to restore the solution history.", ex);
+            }
+        }
+        return history;
+    }
+
     public abstract void start();
 }
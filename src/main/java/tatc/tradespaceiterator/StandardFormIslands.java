@@ -0,0 +1,198 @@
+package tatc.tradespaceiterator;
+
+import org.moeaframework.core.NondominatedPopulation;
+import org.moeaframework.core.Population;
+import tatc.ResultIO;
+import tatc.util.JSONIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Island model of the epsilon-MOEA. Several islands search the tradespace in
+ * separate worker processes (see IslandWorker) and periodically exchange the
+ * members of their archives through files in a shared migration directory.
+ * Each island has its own heap, so a search is no longer limited by the memory
+ * and garbage collection of a single JVM. When all the islands finish, their
+ * solutions are merged into a single nondominated population.
+ *
+ * The number of islands, the number of evaluations between migrations and the
+ * search run on each island (EPS or AOS) are given by the tatc.numIslands,
+ * tatc.migrationInterval and tatc.islandSearch properties. The budget of
+ * evaluations is split between the islands.
+ *
+ * @author Prachi
+ */
+public class StandardFormIslands extends StandardFormGA {
+
+    /**
+     * The tatc properties that are set separately for each island
+     */
+    private static final Set<String> ISLAND_PROPERTIES = new HashSet<>(Arrays.asList(
+            "tatc.moea", "tatc.evaluationStore", "tatc.dsms", "tatc.monos"));
+
+    private final int numIslands;
+
+    public StandardFormIslands(StandardFormProblemProperties properties) {
+        super(properties);
+        this.numIslands = Math.max(1, Integer.parseInt(System.getProperty("tatc.numIslands", "1")));
+    }
+
+    public void start(){
+        long startTime = System.nanoTime();
+
+        File islandsDir = new File(System.getProperty("tatc.moea"), "islands");
+        File migrationDir = new File(islandsDir, "migration");
+        migrationDir.mkdirs();
+
+        //emigrants left by a previous run would be imported by the new islands
+        File[] stale = migrationDir.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                if (file.getName().startsWith("island_") && !file.delete()) {
+                    throw new IllegalStateException(String.format("Failed to delete the stale emigrants %s.", file));
+                }
+            }
+        }
+
+        //the workers read the request from the islands directory
+        JSONIO.writeJSON(new File(islandsDir, IslandWorker.REQUEST_FILE), properties.tsr);
+
+        System.out.println(String.format("Starting %d islands...", numIslands));
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < numIslands; i++) {
+                processes.add(launch(islandsDir, i));
+            }
+            for (int i = 0; i < numIslands; i++) {
+                int exitValue = processes.get(i).waitFor();
+                if (exitValue != 0) {
+                    throw new IllegalStateException(String.format("Island %d failed with exit value %d. See %s.",
+                            i, exitValue, new File(islandDir(islandsDir, i), "island.log").getAbsolutePath()));
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to start the islands.", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search on the islands was interrupted.", ex);
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+
+        //merge the solutions of all the islands
+        Population allSolutions = new Population();
+        NondominatedPopulation front = new NondominatedPopulation(comparator);
+        for (int i = 0; i < numIslands; i++) {
+            File islandDir = islandDir(islandsDir, i);
+            try {
+                Population islandSolutions = ResultIO.loadPopulation(new File(islandDir, "population.pop").getAbsolutePath(), problem);
+                allSolutions.addAll(islandSolutions);
+                front.addAll(islandSolutions);
+            } catch (IOException ex) {
+                throw new IllegalStateException(String.format("Failed to read the solutions of island %d.", i), ex);
+            }
+            mergeEvaluationStore(islandDir);
+        }
+
+        double currentTime = ((System.nanoTime() - startTime) / Math.pow(10, 9)) / 60.;
+        System.out.println(String.format("%d islands evaluated %d solutions: Time elapsed = %10f min. %d nondominated solutions",
+                numIslands, allSolutions.size(), currentTime, front.size()));
+        ResultIO.savePopulation(allSolutions, Paths.get(System.getProperty("tatc.moea"), "population").toString());
+        ResultIO.saveSearchResults(allSolutions, Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        ResultIO.savePopulation(front, Paths.get(System.getProperty("tatc.moea"), "front").toString());
+    }
+
+    private static File islandDir(File islandsDir, int island) {
+        return new File(islandsDir, String.format("island_%d", island));
+    }
+
+    /**
+     * Starts the worker process of an island. The worker gets the same tatc
+     * properties as this process except for its results directory, its DSMs
+     * and Mono directories, since the ids of the subspaces and orbits of each
+     * island start at 0, and its evaluation store, which starts as a copy of
+     * the shared evaluation store.
+     *
+     * @param islandsDir the directory of the islands
+     * @param island the index of the island
+     * @return the worker process
+     * @throws IOException
+     */
+    private Process launch(File islandsDir, int island) throws IOException {
+        File islandDir = islandDir(islandsDir, island);
+        islandDir.mkdirs();
+        File dsms = new File(islandDir, "DSMs");
+        File monos = new File(islandDir, "Mono");
+        dsms.mkdirs();
+        monos.mkdirs();
+
+        String islandStore = "";
+        if (properties.evaluationStore != null) {
+            File sharedStore = new File(System.getProperty("tatc.evaluationStore"));
+            File store = new File(islandDir, sharedStore.getName());
+            if (sharedStore.exists()) {
+                Files.copy(sharedStore.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            islandStore = store.getAbsolutePath();
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("tatc.") && !ISLAND_PROPERTIES.contains(name)) {
+                command.add(String.format("-D%s=%s", name, System.getProperty(name)));
+            }
+        }
+        command.add(String.format("-Dtatc.moea=%s", islandDir.getAbsolutePath()));
+        command.add(String.format("-Dtatc.evaluationStore=%s", islandStore));
+        command.add(String.format("-Dtatc.dsms=%s", dsms.getAbsolutePath()));
+        command.add(String.format("-Dtatc.monos=%s", monos.getAbsolutePath()));
+        command.add(IslandWorker.class.getName());
+        command.add(islandsDir.getAbsolutePath());
+        command.add(String.valueOf(island));
+        command.add(String.valueOf(numIslands));
+        command.add(String.valueOf((int) Math.ceil(maxNFE / (double) numIslands)));
+
+        Logger.getGlobal().finer(String.format("Starting island %d...", island));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(islandDir, "island.log"))
+                .start();
+    }
+
+    /**
+     * Saves the new evaluations of an island in the shared evaluation store
+     *
+     * @param islandDir the directory of the island
+     */
+    private void mergeEvaluationStore(File islandDir) {
+        if (properties.evaluationStore == null) {
+            return;
+        }
+        File store = new File(islandDir, new File(System.getProperty("tatc.evaluationStore")).getName());
+        if (!store.exists()) {
+            return;
+        }
+        try (EvaluationStore islandStore = new EvaluationStore(store)) {
+            properties.evaluationStore.putAll(islandStore);
+        } catch (IOException ex) {
+            Logger.getLogger(StandardFormIslands.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        store.delete();
+    }
+}
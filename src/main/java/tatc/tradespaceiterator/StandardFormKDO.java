@@ -78,8 +78,15 @@ public class StandardFormKDO extends StandardFormGA {
         OperatorReplacementStrategy ops = new OperatorReplacementStrategy(compTrigger, operatorRemover, eossOpCreator);
         typProperties.setDouble("pmin", 0.03);
 
+        Checkpointer checkpointer = Checkpointer.create();
+        Checkpointer.Checkpoint checkpoint = resume(checkpointer);
+
         //create operator selector
         OperatorSelector operatorSelector3 = new AdaptivePursuit(operators, 0.8, 0.8, 0.03);
+        if (checkpoint != null && checkpoint.getOperatorSelector() != null) {
+            //the operators mined before the checkpoint are not rebuilt, so only the values of the initial operators are restored
+            checkpoint.getOperatorSelector().restore(operatorSelector3, operatorSelector3.getOperators());
+        }
 
         //create credit assignment
         SetImprovementDominance creditAssignment3 = new SetImprovementDominance(archive, 1, 0);
@@ -92,11 +99,14 @@ public class StandardFormKDO extends StandardFormGA {
         AbstractPopulationLabeler labeler = new PopulationLabeler();
         //ecs.submit(new KDOSearch(aos3, typProperties, labeler, ops, new File(mainPath.getParent(), "results").getAbsolutePath() + File.separator + "result", innovizeAssignment));
         KDOSearch kdo = new KDOSearch(aos3, typProperties, labeler, ops, Paths.get(System.getProperty("tatc.mining")).toString(), "mining");
+        kdo.setCheckpointer(checkpointer, checkpoint);
         try {
             kdo.call();
         } catch (Exception ex) {
             Logger.getLogger(KDOSearch.class.getName()).log(Level.SEVERE, null, ex);
             throw new IllegalStateException("Evaluation failed.", ex);
+        } finally {
+            checkpointer.close();
         }
     }
 }
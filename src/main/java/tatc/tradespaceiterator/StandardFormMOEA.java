@@ -10,7 +10,6 @@ import tatc.ResultIO;
 import tatc.tradespaceiterator.search.VariableMutation;
 
 import java.nio.file.Paths;
-import java.util.HashSet;
 
 public class StandardFormMOEA extends StandardFormGA {
 
@@ -18,34 +17,58 @@ public class StandardFormMOEA extends StandardFormGA {
         super(properties);
     }
 
-    public void start(){
-        long startTime = System.nanoTime();
-
+    /**
+     * Creates the epsilon-MOEA on the population and archive of this search
+     *
+     * @return the epsilon-MOEA
+     */
+    EpsilonMOEA createAlgorithm() {
         Variation crossover = new OnePointCrossover(1);
         Variation mutation = new VariableMutation(1);
         CompoundVariation operators = new CompoundVariation(crossover, mutation);
 
         //create MOEA
-        EpsilonMOEA emoea = new EpsilonMOEA(problem, population, archive,
-                selection, operators, initialization, comparator);
+        return new EpsilonMOEA(problem, population, archive,
+                selection, surrogateAssisted(operators), initialization, comparator);
+    }
+
+    public void start(){
+        long startTime = System.nanoTime();
+
+        Checkpointer checkpointer = Checkpointer.create();
+        Checkpointer.Checkpoint checkpoint = resume(checkpointer);
+        //evaluations done before the checkpoint
+        int nfeOffset = checkpoint == null ? 0 : checkpoint.getNFE();
 
-        HashSet<Solution> allSolutions = new HashSet<>();
+        EpsilonMOEA emoea = createAlgorithm();
+
+        SolutionHistory history = createHistory(checkpoint);
 
         System.out.println(String.format("Initializing population... Size = %d", populationSize));
 
-        while (emoea.getNumberOfEvaluations() < maxNFE) {
+        while (nfeOffset + emoea.getNumberOfEvaluations() < maxNFE) {
             emoea.step();
+            int nfe = nfeOffset + emoea.getNumberOfEvaluations();
             double currentTime = ((System.nanoTime() - startTime) / Math.pow(10, 9)) / 60.;
             System.out.println(
                     String.format("%d NFE out of %d NFE: Time elapsed = %10f min."
                                     + " Approximate time remaining %10f min.",
-                            emoea.getNumberOfEvaluations(), maxNFE, currentTime,
-                            currentTime / emoea.getNumberOfEvaluations() * (maxNFE - emoea.getNumberOfEvaluations())));
-            for (Solution solution : emoea.getPopulation()) {
-                allSolutions.add(solution);
+                            nfe, maxNFE, currentTime,
+                            currentTime / Math.max(1, emoea.getNumberOfEvaluations()) * (maxNFE - nfe)));
+            history.addAll(emoea.getPopulation(), nfe);
+            if (checkpointer.isDue(nfe)) {
+                checkpointer.save(nfe, population, archive, history, null);
             }
         }
-        ResultIO.savePopulation(new Population(allSolutions), Paths.get(System.getProperty("tatc.moea"), "population").toString());
-        ResultIO.saveSearchResults(new Population(allSolutions), Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        checkpointer.close();
+        System.out.println(String.format("Evaluation cache: %d hits (%d from the evaluation store), %d misses",
+                properties.evaluationCache.getHits(), properties.evaluationCache.getStoreHits(),
+                properties.evaluationCache.getMisses()));
+        if (surrogate != null) {
+            System.out.println(surrogate.summary());
+        }
+        ResultIO.savePopulation(history.solutions(), Paths.get(System.getProperty("tatc.moea"), "population").toString());
+        ResultIO.saveSearchResults(history, Paths.get(System.getProperty("tatc.moea"), "results").toString());
+        history.close();
     }
 }
@@ -1,7 +1,10 @@
 package tatc.tradespaceiterator;
 import tatc.architecture.variable.MonolithVariable;
+import java.io.IOException;
 import java.util.Properties;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 public class StandardFormProblem {
@@ -10,14 +13,7 @@ public class StandardFormProblem {
     private StandardFormProblemProperties properties;
 
     public StandardFormProblem(TradespaceSearchRequest tsr, Properties properties, SearchType type) {
-        switch (tsr.getMissionConcept().getProblemType()){
-            case "Walker":
-                this.properties=new StandardFormProblemPropertiesWalker(tsr,properties);
-                break;
-            case "Train":
-                this.properties=new StandardFormProblemPropertiesTrain(tsr,properties);
-                break;
-        }
+        this.properties=createProperties(tsr,properties);
 
         switch (type){
             case FF:
@@ -32,10 +28,35 @@ public class StandardFormProblem {
             case KDO:
                 this.problem=new StandardFormKDO(this.properties);
                 break;
+            case ASYNC:
+                this.problem=new StandardFormAsyncMOEA(this.properties);
+                break;
+            case ISLANDS:
+                this.problem=new StandardFormIslands(this.properties);
+                break;
         }
 
     }
 
+    /**
+     * Creates the properties of the problem type of the tradespace search
+     * request
+     *
+     * @param tsr the tradespace search request
+     * @param properties the properties of the search
+     * @return the properties of the problem
+     */
+    static StandardFormProblemProperties createProperties(TradespaceSearchRequest tsr, Properties properties) {
+        switch (tsr.getMissionConcept().getProblemType()){
+            case "Walker":
+                return new StandardFormProblemPropertiesWalker(tsr,properties);
+            case "Train":
+                return new StandardFormProblemPropertiesTrain(tsr,properties);
+            default:
+                throw new IllegalArgumentException("No Problem Type found.");
+        }
+    }
+
     public Set<MonolithVariable> getExistingSatellites(){
         return properties.existingSatellites;
     }
@@ -46,13 +67,22 @@ public class StandardFormProblem {
      */
     public void shutdown() {
         properties.rm.shutdown();
+        if (properties.evaluationStore != null) {
+            try {
+                properties.evaluationStore.close();
+            } catch (IOException ex) {
+                Logger.getLogger(StandardFormProblem.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
     }
 
     public enum SearchType {
         FF,
         EPS,
         AOS,
-        KDO
+        KDO,
+        ASYNC,
+        ISLANDS
     }
 
     public void run(){
@@ -8,22 +8,27 @@ import seakers.orekit.constellations.EnumerateConstellations;
 import seakers.orekit.constellations.TrainParameters;
 import seakers.orekit.constellations.WalkerParameters;
 import seakers.orekit.util.Orbits;
+import tatc.architecture.Architecture;
 import tatc.architecture.TATCTrain;
 import tatc.architecture.TATCWalker;
-import tatc.architecture.specifications.DSMSpecification;
 import tatc.architecture.specifications.MissionConcept;
 import tatc.evaluation.costandrisk.CostRisk;
 import tatc.evaluation.costandrisk.ResultOutput;
 import tatc.evaluation.reductionmetrics.ReductionMetrics;
 import tatc.exceptions.CostRiskException;
 import tatc.exceptions.ReductionMetricsException;
-import tatc.util.JSONIO;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,9 +36,16 @@ public class StandardFormProblemFullFactorial implements StandardFormProblemImpl
     StandardFormProblemProperties properties;
     ArchitectureEvaluator archEval;
 
+    /**
+     * The number of architectures evaluated at the same time. If less than 2,
+     * the architectures are evaluated one after another.
+     */
+    private final int numThreads;
+
     public StandardFormProblemFullFactorial(StandardFormProblemProperties properties){
         this.properties=properties;
         this.archEval=new ArchitectureEvaluator(properties);
+        this.numThreads=Integer.parseInt(System.getProperty("tatc.numEvalThreads", "1"));
     }
 
     public void start(){
@@ -64,64 +76,49 @@ public class StandardFormProblemFullFactorial implements StandardFormProblemImpl
 
             ArrayList<WalkerParameters> constellationParams = EnumerateConstellations.fullFactWalker(smaArray, incArray, numSatsArray);
 
+            //ids are assigned in the order of enumeration so that the subspaces are the same in serial and parallel runs
+            ArrayList<EvaluationTask> tasks = new ArrayList<>(constellationParams.size());
             for (WalkerParameters params : constellationParams) {
-
-                //create subspace directory
-                properties.currentDSMSubspace = new File(System.getProperty("tatc.dsms"),
-                        "Subspace" + Integer.toString(100000 + properties.evalCounter).substring(1));
-                properties.currentDSMSubspace.mkdir();
-
-                double incl;
-                if (params.getI() == -1) {
-                    incl = Orbits.incSSO(params.getA()-Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
-                } else {
-                    incl = params.getI();
-                }
-
-                TATCWalker arch = new TATCWalker(params.getA(), incl, params.getT(), params.getP(), params.getF());
-
-                //start date and end date/coverage
-                MissionConcept newConcept = properties.tsr.getMissionConcept().copy();
-
-                try {
-                    archEval.reductionAndMetrics(arch, newConcept);
-                    archEval.costAndRisk(arch, newConcept);
-                    properties.evalCounter++;
-                } catch (ReductionMetricsException rmEx) {
-                    Logger.getLogger(ReductionMetrics.class.getName()).log(Level.SEVERE, null, rmEx);
-                    throw new IllegalStateException("Evaluation of solution in R&M failed.", rmEx);
-                } catch (CostRiskException crEx) {
-                    Logger.getLogger(CostRisk.class.getName()).log(Level.SEVERE, null, crEx);
-                    throw new IllegalStateException("Evaluation of solution in C&R failed.", crEx);
-                }
-                //set cost and risk metrics
-                ResultOutput crOutput = JSONIO.readJSON(properties.cr.getOutputFile(), ResultOutput.class);
-
-                Logger.getGlobal().fine(String.format(
-                        "avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
-                        properties.rm.getMetrics()[0] / 60.,
-                        crOutput.getLifecycleCost().getEstimate()));
-                Logger.getGlobal().fine(String.format(
-                        "avg response: %.2f[min], lifecycle cost: %.2f[$],",
-                        properties.rm.getMetrics()[1] / 60.,
-                        crOutput.getLifecycleCost().getEstimate()));
-
-                bufferedWriter.append(Double.toString(params.getA()) + ",");
-                bufferedWriter.append(Double.toString(FastMath.toDegrees(incl)) + ",");
-                bufferedWriter.append(Double.toString(params.getT()) + ",");
-                bufferedWriter.append(Double.toString(params.getP()) + ",");
-                bufferedWriter.append(Double.toString(params.getF()) + ",");
-                bufferedWriter.append(Double.toString(properties.rm.getMetrics()[0] / 60.) + ",");
-                bufferedWriter.append(Double.toString(properties.rm.getMetrics()[1] / 60.) + ",");
-                bufferedWriter.append(Double.toString(crOutput.getLifecycleCost().getEstimate()));
-                bufferedWriter.newLine();
-                bufferedWriter.flush();
+                final int evalID = properties.nextEvalID();
+                tasks.add(() -> evaluateWalker(params, evalID));
             }
+            evaluateAll(tasks, bufferedWriter);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Evaluates a single walker architecture of the full factorial enumeration
+     *
+     * @param params the walker parameters
+     * @param evalID the id of the architecture
+     * @return the row to write in the results file
+     */
+    private String evaluateWalker(WalkerParameters params, int evalID) {
+        double incl;
+        if (params.getI() == -1) {
+            incl = Orbits.incSSO(params.getA()-Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
+        } else {
+            incl = params.getI();
+        }
+
+        TATCWalker arch = new TATCWalker(params.getA(), incl, params.getT(), params.getP(), params.getF());
+
+        double[] evaluation = evaluate(arch, EvaluationCache.walkerKey(params.getA(), incl, params.getT(), params.getP(), params.getF()), evalID);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(Double.toString(params.getA())).append(",");
+        sb.append(Double.toString(FastMath.toDegrees(incl))).append(",");
+        sb.append(Double.toString(params.getT())).append(",");
+        sb.append(Double.toString(params.getP())).append(",");
+        sb.append(Double.toString(params.getF())).append(",");
+        sb.append(Double.toString(evaluation[0] / 60.)).append(",");
+        sb.append(Double.toString(evaluation[1] / 60.)).append(",");
+        sb.append(Double.toString(evaluation[2]));
+        return sb.toString();
+    }
+
 
     public void startTrain(){
         //output the variables and metrics in a csv file
@@ -138,62 +135,181 @@ public class StandardFormProblemFullFactorial implements StandardFormProblemImpl
             //convert arraylists to array in order to pass into fullFactWalker
             Double[] smaArray = ((StandardFormProblemPropertiesTrain)properties).smas.toArray(new Double[((StandardFormProblemPropertiesTrain)properties).smas.size()]);
 
-            DSMSpecification dsmSpec = JSONIO.readJSON(properties.rm.getInputFile(), DSMSpecification.class);
-            AbsoluteDate startDate = dsmSpec.getMissionConcept().getPerformancePeriod()[0];
+            AbsoluteDate startDate = properties.tsr.getMissionConcept().getPerformancePeriod()[0];
 
             ArrayList<TrainParameters> constellationParams=EnumerateConstellations.fullFactTrain(smaArray,((StandardFormProblemPropertiesTrain)properties).LTANs);
 
+            //ids are assigned in the order of enumeration so that the subspaces are the same in serial and parallel runs
+            ArrayList<EvaluationTask> tasks = new ArrayList<>(constellationParams.size());
             for (TrainParameters train : constellationParams) {
-                //create subspace directory
-                properties.currentDSMSubspace = new File(System.getProperty("tatc.dsms"),
-                        "Subspace" + Integer.toString(100000 + properties.evalCounter).substring(1));
-                properties.currentDSMSubspace.mkdir();
+                final int evalID = properties.nextEvalID();
+                tasks.add(() -> evaluateTrain(train, startDate, evalID));
+            }
+            evaluateAll(tasks, bufferedWriter);
+        } catch (IOException | OrekitException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Evaluates a single train architecture of the full factorial enumeration
+     *
+     * @param train the train parameters
+     * @param startDate the start date of the performance period
+     * @param evalID the id of the architecture
+     * @return the row to write in the results file
+     */
+    private String evaluateTrain(TrainParameters train, AbsoluteDate startDate, int evalID) throws OrekitException {
+        TATCTrain arch = new TATCTrain(train.getA(),train.getLTANs(),startDate);
 
-                TATCTrain arch = new TATCTrain(train.getA(),train.getLTANs(),startDate);
+        double[] evaluation = evaluate(arch, EvaluationCache.trainKey(arch.getSma(), arch.getLTANs()), evalID);
 
-                //start date and end date/coverage
-                MissionConcept newConcept = properties.tsr.getMissionConcept().copy();
+        StringBuilder sb = new StringBuilder();
+        sb.append(Double.toString(arch.getSma())).append(",");
+        sb.append(Double.toString(arch.getInclination())).append(",");
+        for (int i=0; i<((StandardFormProblemPropertiesTrain)properties).LTANs.size(); i++){
+            if (arch.getLTANs().contains(((StandardFormProblemPropertiesTrain)properties).LTANs.get(i))){
+                sb.append(Double.toString(((StandardFormProblemPropertiesTrain)properties).LTANs.get(i))).append(",");
+            }else {
+                sb.append("NONE,");
+            }
+        }
+        sb.append(Double.toString(evaluation[0] / 60.)).append(",");
+        sb.append(Double.toString(evaluation[1] / 60.)).append(",");
+        sb.append(Double.toString(evaluation[2]));
+        return sb.toString();
+    }
 
+    /**
+     * Evaluates an architecture in its own subspace unless it is found in the
+     * evaluation cache
+     *
+     * @param arch the architecture to evaluate
+     * @param key the canonical key of the architecture
+     * @param evalID the id of the architecture
+     * @return the average revisit time [s], mean response time [s] and
+     * lifecycle cost of the architecture
+     */
+    private double[] evaluate(Architecture arch, String key, int evalID) {
+        double[] cached = properties.evaluationCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        //create subspace directory
+        EvaluationContext ctx = EvaluationContext.create(evalID);
+
+        //start date and end date/coverage
+        MissionConcept newConcept = properties.tsr.getMissionConcept().copy();
+
+        double[] metrics;
+        ResultOutput crOutput;
+        try {
+            metrics = archEval.reductionAndMetrics(arch, newConcept, ctx);
+            crOutput = archEval.costAndRisk(arch, newConcept, ctx);
+        } catch (ReductionMetricsException rmEx) {
+            Logger.getLogger(ReductionMetrics.class.getName()).log(Level.SEVERE, null, rmEx);
+            throw new IllegalStateException("Evaluation of solution in R&M failed.", rmEx);
+        } catch (CostRiskException crEx) {
+            Logger.getLogger(CostRisk.class.getName()).log(Level.SEVERE, null, crEx);
+            throw new IllegalStateException("Evaluation of solution in C&R failed.", crEx);
+        }
+        //set cost and risk metrics
+        Logger.getGlobal().fine(String.format(
+                "avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
+                metrics[0] / 60.,
+                crOutput.getLifecycleCost().getEstimate()));
+        Logger.getGlobal().fine(String.format(
+                "avg response: %.2f[min], lifecycle cost: %.2f[$],",
+                metrics[1] / 60.,
+                crOutput.getLifecycleCost().getEstimate()));
+
+        properties.evaluationCache.put(key, metrics[0], metrics[1], crOutput.getLifecycleCost().getEstimate());
+        return new double[]{metrics[0], metrics[1], crOutput.getLifecycleCost().getEstimate()};
+    }
+
+    /**
+     * Evaluates all the enumerated architectures and writes their rows to the
+     * results file in the order of enumeration. When more than one thread is
+     * available, the architectures are evaluated on a bounded pool of workers.
+     * Each evaluation has its own context so the workers share the evaluator.
+     * Only a small window of
+     * architectures is in flight at any time so that the memory footprint does
+     * not grow with the size of the tradespace.
+     *
+     * @param tasks the evaluations in the order of enumeration
+     * @param bufferedWriter the writer of the results file
+     * @throws IOException
+     */
+    private void evaluateAll(List<EvaluationTask> tasks, BufferedWriter bufferedWriter) throws IOException {
+        if (numThreads < 2) {
+            for (EvaluationTask task : tasks) {
                 try {
-                    archEval.reductionAndMetrics(arch, newConcept);
-                    archEval.costAndRisk(arch, newConcept);
-                    properties.evalCounter++;
-                } catch (ReductionMetricsException rmEx) {
-                    Logger.getLogger(ReductionMetrics.class.getName()).log(Level.SEVERE, null, rmEx);
-                    throw new IllegalStateException("Evaluation of solution in R&M failed.", rmEx);
-                } catch (CostRiskException crEx) {
-                    Logger.getLogger(CostRisk.class.getName()).log(Level.SEVERE, null, crEx);
-                    throw new IllegalStateException("Evaluation of solution in C&R failed.", crEx);
+                    writeRow(bufferedWriter, task.evaluate());
+                } catch (OrekitException ex) {
+                    throw new IllegalStateException("Evaluation of solution failed.", ex);
                 }
-                //set cost and risk metrics
-                ResultOutput crOutput = JSONIO.readJSON(properties.cr.getOutputFile(), ResultOutput.class);
-
-                Logger.getGlobal().fine(String.format(
-                        "avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
-                        properties.rm.getMetrics()[0] / 60.,
-                        crOutput.getLifecycleCost().getEstimate()));
-                Logger.getGlobal().fine(String.format(
-                        "avg response: %.2f[min], lifecycle cost: %.2f[$],",
-                        properties.rm.getMetrics()[1] / 60.,
-                        crOutput.getLifecycleCost().getEstimate()));
-
-                bufferedWriter.append(Double.toString(arch.getSma()) + ",");
-                bufferedWriter.append(Double.toString(arch.getInclination()) + ",");
-                for (int i=0; i<((StandardFormProblemPropertiesTrain)properties).LTANs.size(); i++){
-                    if (arch.getLTANs().contains(((StandardFormProblemPropertiesTrain)properties).LTANs.get(i))){
-                        bufferedWriter.append(Double.toString(((StandardFormProblemPropertiesTrain)properties).LTANs.get(i)) + ",");
-                    }else {
-                        bufferedWriter.append("NONE,");
-                    }
+            }
+            return;
+        }
+
+        Logger.getGlobal().finer(String.format("Evaluating %d architectures on %d threads...", tasks.size(), numThreads));
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+
+        //futures are kept in the order of enumeration so that the rows are written deterministically
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            for (EvaluationTask task : tasks) {
+                pending.add(pool.submit(task::evaluate));
+                if (pending.size() >= 2 * numThreads) {
+                    writeRow(bufferedWriter, getRow(pending.poll()));
                 }
-                bufferedWriter.append(Double.toString(properties.rm.getMetrics()[0] / 60.) + ",");
-                bufferedWriter.append(Double.toString(properties.rm.getMetrics()[1] / 60.) + ",");
-                bufferedWriter.append(Double.toString(crOutput.getLifecycleCost().getEstimate()));
-                bufferedWriter.newLine();
-                bufferedWriter.flush();
             }
-        } catch (IOException | OrekitException e) {
-            e.printStackTrace();
+            while (!pending.isEmpty()) {
+                writeRow(bufferedWriter, getRow(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for an evaluation to finish and gets its row for the results file
+     *
+     * @param future the pending evaluation
+     * @return the row to write in the results file
+     */
+    private String getRow(Future<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation of solution was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) ex.getCause();
+            }
+            throw new IllegalStateException("Evaluation of solution failed.", ex.getCause());
         }
     }
+
+    private void writeRow(BufferedWriter bufferedWriter, String row) throws IOException {
+        bufferedWriter.append(row);
+        bufferedWriter.newLine();
+        bufferedWriter.flush();
+    }
+
+    /**
+     * The evaluation of one architecture in the full factorial enumeration
+     */
+    private interface EvaluationTask {
+
+        /**
+         * Evaluates the architecture
+         *
+         * @return the row to write in the results file
+         */
+        String evaluate() throws OrekitException;
+    }
 }
@@ -8,15 +8,13 @@ import org.orekit.time.AbsoluteDate;
 import tatc.architecture.StandardFormArchitecture;
 import tatc.architecture.TATCTrain;
 import tatc.architecture.TATCWalker;
-import tatc.architecture.specifications.DSMSpecification;
 import tatc.architecture.specifications.MissionConcept;
 import tatc.architecture.variable.IntegerVariable;
 import tatc.evaluation.costandrisk.ResultOutput;
 import tatc.exceptions.CostRiskException;
 import tatc.exceptions.ReductionMetricsException;
-import tatc.util.JSONIO;
+import tatc.tradespaceiterator.search.ArchitectureDecoder;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.logging.Level;
@@ -24,15 +22,22 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-public class StandardFormProblemGATrain extends AbstractProblem {
+public class StandardFormProblemGATrain extends AbstractProblem implements ArchitectureDecoder {
     StandardFormProblemProperties properties;
     ArchitectureEvaluator archEval;
 
+    /**
+     * The screen of the architectures before the full evaluation. Null if the
+     * architectures are not screened
+     */
+    ScreeningEvaluator screening;
+
 
     public StandardFormProblemGATrain(StandardFormProblemProperties properties){
         super(2, 2);
         this.properties=properties;
         this.archEval=new ArchitectureEvaluator(properties);
+        this.screening=ScreeningEvaluator.create(archEval, properties.tsr.getMissionConcept(), StandardFormGA.EPSILONS);
 
     }
 
@@ -40,11 +45,6 @@ public class StandardFormProblemGATrain extends AbstractProblem {
     @Override
     public void evaluate(Solution solution) {
         try {
-            //create subspace directory
-            properties.currentDSMSubspace = new File(System.getProperty("tatc.dsms"),
-                    "Subspace" + Integer.toString(100000 + properties.evalCounter).substring(1));
-            properties.currentDSMSubspace.mkdir();
-
             StandardFormArchitecture soln = null;
             if (solution instanceof StandardFormArchitecture) {
                 soln = (StandardFormArchitecture) solution;
@@ -54,8 +54,10 @@ public class StandardFormProblemGATrain extends AbstractProblem {
                                 + " Found %s", solution.getClass()));
             }
 
-            DSMSpecification dsmSpec = JSONIO.readJSON(properties.rm.getInputFile(), DSMSpecification.class);
-            AbsoluteDate startDate = dsmSpec.getMissionConcept().getPerformancePeriod()[0];
+            //offspring inherit the attributes of their parents
+            solution.removeAttribute(ScreeningEvaluator.SCREENED_ATTRIBUTE);
+
+            AbsoluteDate startDate = properties.tsr.getMissionConcept().getPerformancePeriod()[0];
             //read in values
             double sma = ((StandardFormProblemPropertiesTrain)properties).smas.get(((IntegerVariable) soln.getVariable(0)).getValue());
             BitSet bits=((BinaryVariable) soln.getVariable(1)).getBitSet();
@@ -65,14 +67,45 @@ public class StandardFormProblemGATrain extends AbstractProblem {
                             .collect(Collectors.toCollection(ArrayList::new));
 
 
+            //architectures that decode to the same parameters are only evaluated once
+            String key = EvaluationCache.trainKey(sma, LTANsFiltered);
+            double[] cached = properties.evaluationCache.get(key);
+            if (cached != null) {
+                solution.setObjective(0, cached[0]); //average revisit time
+                solution.setObjective(1, cached[2]); //lifecycle cost
+                if (screening != null) {
+                    screening.record(new double[]{cached[0], cached[2]});
+                }
+                return;
+            }
+
             TATCTrain arch = new TATCTrain(sma, LTANsFiltered, startDate);
 
             //start date and end date/coverage
             MissionConcept newConcept = properties.tsr.getMissionConcept().copy();
 
+            double[] metrics;
+            ResultOutput crOutput;
             try {
-                archEval.reductionAndMetrics(arch, newConcept);
-                archEval.costAndRisk(arch, newConcept);
+                crOutput = archEval.costAndRisk(arch, newConcept, null);
+
+                //architectures that cannot enter the archive are only screened on a coarse mission concept
+                if (screening != null) {
+                    double[] screened = screening.screen(arch, crOutput.getLifecycleCost().getEstimate());
+                    if (screened != null) {
+                        ScreeningEvaluator.reject(solution, crOutput.getLifecycleCost().getEstimate());
+                        Logger.getGlobal().fine(String.format(
+                                "screened out (%d of %d): est. avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
+                                screening.getRejected(), screening.getScreened(),
+                                screened[0] / 60., crOutput.getLifecycleCost().getEstimate()));
+                        return;
+                    }
+                }
+
+                //create subspace directory
+                EvaluationContext ctx = properties.createEvaluationContext();
+                archEval.auditCostAndRisk(arch, newConcept, crOutput, ctx);
+                metrics = archEval.reductionAndMetrics(arch, newConcept, ctx);
             } catch (ReductionMetricsException rmEx) {
                 Logger.getLogger(StandardFormProblemGAWalker.class.getName()).log(Level.SEVERE, null, rmEx);
                 throw new IllegalStateException("Evaluation of solution in R&M failed.", rmEx);
@@ -81,25 +114,47 @@ public class StandardFormProblemGATrain extends AbstractProblem {
                 throw new IllegalStateException("Evaluation of solution in C&R failed.", crEx);
             }
 
+            properties.evaluationCache.put(key, metrics[0], metrics[1], crOutput.getLifecycleCost().getEstimate());
+            if (screening != null) {
+                screening.record(new double[]{metrics[0], crOutput.getLifecycleCost().getEstimate()});
+            }
+
             //set rm metrics
-            solution.setObjective(0, properties.rm.getMetrics()[0]); //average revisit time
+            solution.setObjective(0, metrics[0]); //average revisit time
 
             //set cr metrics
-            ResultOutput crOutput = JSONIO.readJSON(properties.cr.getOutputFile(), ResultOutput.class);
             solution.setObjective(1, crOutput.getLifecycleCost().getEstimate());
 
             Logger.getGlobal().fine(String.format(
                     "avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
-                    properties.rm.getMetrics()[0] / 60.,
+                    metrics[0] / 60.,
                     solution.getObjective(1)));
-
-            properties.evalCounter++;
         }catch (OrekitException e) {
             e.printStackTrace();
         }
 
     }
 
+    /**
+     * Decodes the decisions of a solution into the semi-major axis of the
+     * train followed by one parameter for each candidate LTAN, which is 1 if
+     * the train has a satellite at that LTAN and 0 otherwise
+     *
+     * @param solution the solution
+     * @return the parameters of the train
+     */
+    @Override
+    public double[] decode(Solution solution) {
+        int numberOfLTANs = ((StandardFormProblemPropertiesTrain)properties).LTANs.size();
+        double[] out = new double[1 + numberOfLTANs];
+        out[0] = ((StandardFormProblemPropertiesTrain)properties).smas.get(((IntegerVariable) solution.getVariable(0)).getValue());
+        BitSet bits = ((BinaryVariable) solution.getVariable(1)).getBitSet();
+        for (int i = 0; i < numberOfLTANs; i++) {
+            out[1 + i] = bits.get(i) ? 1 : 0;
+        }
+        return out;
+    }
+
     //structure of solution with walker params
     @Override
     public final Solution newSolution() {
@@ -3,7 +3,6 @@ package tatc.tradespaceiterator;
 import org.moeaframework.core.Solution;
 import org.moeaframework.problem.AbstractProblem;
 import org.orekit.utils.Constants;
-import seakers.conmop.util.Factor;
 import seakers.orekit.util.Orbits;
 import tatc.architecture.StandardFormArchitecture;
 import tatc.architecture.TATCWalker;
@@ -13,33 +12,30 @@ import tatc.architecture.variable.RealVariable;
 import tatc.evaluation.costandrisk.ResultOutput;
 import tatc.exceptions.CostRiskException;
 import tatc.exceptions.ReductionMetricsException;
-import tatc.util.JSONIO;
-import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import tatc.tradespaceiterator.search.ArchitectureDecoder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class StandardFormProblemGAWalker extends AbstractProblem {
+public class StandardFormProblemGAWalker extends AbstractProblem implements ArchitectureDecoder {
     StandardFormProblemProperties properties;
     ArchitectureEvaluator archEval;
 
+    /**
+     * The screen of the architectures before the full evaluation. Null if the
+     * architectures are not screened
+     */
+    ScreeningEvaluator screening;
+
     public StandardFormProblemGAWalker(StandardFormProblemProperties properties){
         super(5, 2);
         this.properties=properties;
         this.archEval=new ArchitectureEvaluator(properties);
+        this.screening=ScreeningEvaluator.create(archEval, properties.tsr.getMissionConcept(), StandardFormGA.EPSILONS);
 
     }
 
     @Override
     public void evaluate(Solution solution) {
-        //create subspace directory
-        properties.currentDSMSubspace = new File(System.getProperty("tatc.dsms"),
-                "Subspace" + Integer.toString(100000 + properties.evalCounter).substring(1));
-        properties.currentDSMSubspace.mkdir();
-
         StandardFormArchitecture soln = null;
         if (solution instanceof StandardFormArchitecture) {
             soln = (StandardFormArchitecture) solution;
@@ -49,84 +45,26 @@ public class StandardFormProblemGAWalker extends AbstractProblem {
                             + " Found %s", solution.getClass()));
         }
 
-        //read in values
-        double sma = ((StandardFormProblemPropertiesWalker)properties).smas.get(((IntegerVariable) soln.getVariable(0)).getValue());
-        double incl = ((StandardFormProblemPropertiesWalker)properties).inclination.get(((IntegerVariable) soln.getVariable(1)).getValue());
-
-        //if there is an SSO, calculate it using the alt chosen
-        //talk with Prachi here
-        if (incl == -1) {
-            incl = Orbits.incSSO(sma-Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
-            //incl = this.getSSOInclination(alt);
-        }
-
-        int numSats = ((StandardFormProblemPropertiesWalker)properties).numberOfSats.get(((IntegerVariable) soln.getVariable(2)).getValue());
-
-        //need to convert the real value that's between [0,1] to the number of planes.
-        //The available number of planes is listed in the line below
-        List<Integer> possiblePlanes = Factor.divisors(numSats); //planes would be divisors
-
-        HashMap<Double, Integer> mappedPlanes = new HashMap<>();
-
-        int counterPlanes = 0; //counter for possible planes index
-
-        for (double i = 0; i <= 1; i += 1. / (possiblePlanes.size() - 1)) {
-            mappedPlanes.put(i, possiblePlanes.get(counterPlanes));
-            counterPlanes = counterPlanes + 1;
-        }
-
-        //read in the real value of planes from the solution
-        double planes = ((RealVariable) (soln.getVariable(3))).getValue();
-
-        int p = -1;
-        double minDistancePlanes = Double.POSITIVE_INFINITY;
-        Iterator<Double> iter1 = mappedPlanes.keySet().iterator();
-        while (iter1.hasNext()) {
-            double val = iter1.next();
-            if (Math.abs(planes - val) < minDistancePlanes) {
-                minDistancePlanes = Math.abs(planes - val);
-                p = mappedPlanes.get(val);
-            }
-        }
-
-        if (p == -1) {
-            throw new IllegalStateException("Error in number of planes p = -1");
-        }
-
-        //The available number of phases is listed below
-        //copying available number of planes to phases array
-        //then we subtract -1 from each value to get the number of phases
-        List<Integer> possiblePhases = new ArrayList<>();
-
-        for (int i = 0; i < possiblePlanes.size(); i++) {
-            possiblePhases.add(possiblePlanes.get(i) - 1);
-        }
-
-        HashMap<Double, Integer> mappedPhases = new HashMap<>();
-
-        int counterPhases = 0; //counter for possible planes index
-
-        for (double i = 0; i <= 1; i += 1. / (possiblePhases.size() - 1)) {
-            mappedPhases.put(i, possiblePhases.get(counterPhases));
-            counterPhases = counterPhases + 1;
-        }
-
-        //read in the real value of phases from the solution
-        double phases = ((RealVariable) (soln.getVariable(4))).getValue();
-
-        int q = -1;
-        double minDistancePhases = Double.POSITIVE_INFINITY;
-        Iterator<Double> iter = mappedPhases.keySet().iterator();
-        while (iter.hasNext()) {
-            double val = iter.next();
-            if (Math.abs(phases - val) < minDistancePhases) {
-                minDistancePhases = Math.abs(phases - val);
-                q = mappedPhases.get(val);
+        //offspring inherit the attributes of their parents
+        solution.removeAttribute(ScreeningEvaluator.SCREENED_ATTRIBUTE);
+
+        double[] params = decode(soln);
+        double sma = params[0];
+        double incl = params[1];
+        int numSats = (int) params[2];
+        int p = (int) params[3];
+        int q = (int) params[4];
+
+        //architectures that decode to the same parameters are only evaluated once
+        String key = EvaluationCache.walkerKey(sma, incl, numSats, p, q);
+        double[] cached = properties.evaluationCache.get(key);
+        if (cached != null) {
+            solution.setObjective(0, cached[0]); //average revisit time
+            solution.setObjective(1, cached[2]); //lifecycle cost
+            if (screening != null) {
+                screening.record(new double[]{cached[0], cached[2]});
             }
-        }
-
-        if (q == -1) {
-            throw new IllegalStateException("Error in number of phases q = -1");
+            return;
         }
 
         TATCWalker arch = new TATCWalker(sma, incl, numSats, p, q);
@@ -134,9 +72,28 @@ public class StandardFormProblemGAWalker extends AbstractProblem {
         //start date and end date/coverage
         MissionConcept newConcept = properties.tsr.getMissionConcept().copy();
 
+        double[] metrics;
+        ResultOutput crOutput;
         try {
-            archEval.reductionAndMetrics(arch, newConcept);
-            archEval.costAndRisk(arch, newConcept);
+            crOutput = archEval.costAndRisk(arch, newConcept, null);
+
+            //architectures that cannot enter the archive are only screened on a coarse mission concept
+            if (screening != null) {
+                double[] screened = screening.screen(arch, crOutput.getLifecycleCost().getEstimate());
+                if (screened != null) {
+                    ScreeningEvaluator.reject(solution, crOutput.getLifecycleCost().getEstimate());
+                    Logger.getGlobal().fine(String.format(
+                            "screened out (%d of %d): est. avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
+                            screening.getRejected(), screening.getScreened(),
+                            screened[0] / 60., crOutput.getLifecycleCost().getEstimate()));
+                    return;
+                }
+            }
+
+            //create subspace directory
+            EvaluationContext ctx = properties.createEvaluationContext();
+            archEval.auditCostAndRisk(arch, newConcept, crOutput, ctx);
+            metrics = archEval.reductionAndMetrics(arch, newConcept, ctx);
         } catch (ReductionMetricsException rmEx) {
             Logger.getLogger(StandardFormProblemGAWalker.class.getName()).log(Level.SEVERE, null, rmEx);
             throw new IllegalStateException("Evaluation of solution in R&M failed.", rmEx);
@@ -145,19 +102,69 @@ public class StandardFormProblemGAWalker extends AbstractProblem {
             throw new IllegalStateException("Evaluation of solution in C&R failed.", crEx);
         }
 
+        properties.evaluationCache.put(key, metrics[0], metrics[1], crOutput.getLifecycleCost().getEstimate());
+        if (screening != null) {
+            screening.record(new double[]{metrics[0], crOutput.getLifecycleCost().getEstimate()});
+        }
+
         //set rm metrics
-        solution.setObjective(0, properties.rm.getMetrics()[0]); //average revisit time
+        solution.setObjective(0, metrics[0]); //average revisit time
 
         //set cr metrics
-        ResultOutput crOutput = JSONIO.readJSON(properties.cr.getOutputFile(), ResultOutput.class);
         solution.setObjective(1, crOutput.getLifecycleCost().getEstimate());
 
         Logger.getGlobal().fine(String.format(
                 "avg revisit: %.2f[min], lifecycle cost: %.2f[$],",
-                properties.rm.getMetrics()[0] / 60.,
+                metrics[0] / 60.,
                 solution.getObjective(1)));
+    }
+
+    /**
+     * Decodes the decisions of a solution into the semi-major axis, the
+     * inclination, the number of satellites, the number of planes and the
+     * phasing of the Walker constellation
+     *
+     * @param solution the solution
+     * @return the parameters of the Walker constellation
+     */
+    @Override
+    public double[] decode(Solution solution) {
+        //read in values
+        double sma = ((StandardFormProblemPropertiesWalker)properties).smas.get(((IntegerVariable) solution.getVariable(0)).getValue());
+        double incl = ((StandardFormProblemPropertiesWalker)properties).inclination.get(((IntegerVariable) solution.getVariable(1)).getValue());
+
+        //if there is an SSO, calculate it using the alt chosen
+        //talk with Prachi here
+        if (incl == -1) {
+            incl = Orbits.incSSO(sma-Constants.WGS84_EARTH_EQUATORIAL_RADIUS);
+            //incl = this.getSSOInclination(alt);
+        }
+
+        int numSats = ((StandardFormProblemPropertiesWalker)properties).numberOfSats.get(((IntegerVariable) solution.getVariable(2)).getValue());
+
+        //need to convert the real values that are between [0,1] to the number of planes and the phasing.
+        //The available number of planes are the divisors of the number of satellites and
+        //the available number of phases are the divisors minus one
+        WalkerDecoder decoder = ((StandardFormProblemPropertiesWalker)properties).walkerDecoder;
+        int p = decoder.decodePlanes(numSats, ((RealVariable) (solution.getVariable(3))).getValue());
+        int q = decoder.decodePhases(numSats, ((RealVariable) (solution.getVariable(4))).getValue());
+
+        return new double[]{sma, incl, numSats, p, q};
+    }
 
-        properties.evalCounter++;
+    /**
+     * Snaps the real valued planes and phasing decisions of a solution to the
+     * steps they decode to, so they can be mined as discrete levels
+     *
+     * @param solution the solution
+     * @return the snapped planes and phasing decisions
+     */
+    public double[] snapPlanesAndPhasing(Solution solution) {
+        int numSats = ((StandardFormProblemPropertiesWalker)properties).numberOfSats.get(((IntegerVariable) solution.getVariable(2)).getValue());
+        WalkerDecoder decoder = ((StandardFormProblemPropertiesWalker)properties).walkerDecoder;
+        return new double[]{
+            decoder.snap(numSats, ((RealVariable) (solution.getVariable(3))).getValue()),
+            decoder.snap(numSats, ((RealVariable) (solution.getVariable(4))).getValue())};
     }
 
     //structure of solution with walker params
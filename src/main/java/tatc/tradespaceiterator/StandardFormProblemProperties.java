@@ -9,9 +9,12 @@ import tatc.architecture.variable.MonolithVariable;
 import tatc.evaluation.costandrisk.CostRiskSeak;
 import tatc.evaluation.reductionmetrics.ReductionMetrics;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class StandardFormProblemProperties {
@@ -24,17 +27,7 @@ public class StandardFormProblemProperties {
     /**
      * Counts the number of evaluations so we can use it to id architectures
      */
-    public int evalCounter;
-
-    /**
-     * Path to the current subspace in the DSMs directory
-     */
-    public File currentDSMSubspace;
-
-    /**
-     * Path to the current subspace in the Monos directory
-     */
-    public File currentMonoSubspace;
+    private final AtomicInteger evalCounter;
 
     /**
      * The tradespace search request
@@ -47,6 +40,16 @@ public class StandardFormProblemProperties {
 
     public final SearchDatabase db;
 
+    /**
+     * The evaluations of the architectures seen during the search
+     */
+    public final EvaluationCache evaluationCache;
+
+    /**
+     * The evaluations saved by previous runs. Null if no store is used
+     */
+    public final EvaluationStore evaluationStore;
+
 
 
     public StandardFormProblemProperties(TradespaceSearchRequest tsr, Properties properties) {
@@ -110,19 +113,55 @@ public class StandardFormProblemProperties {
                 getExistingSatellites();
 
         /*
-         * Propagate and save the access times of the existing satellitess
+         * The accesses of the existing satellites are computed in the first
+         * evaluation and then reused from the propagation cache of the R&M module
          */
-        Logger.getGlobal().finer("Propagating and saving accesses for existing satellites...");
-        properties.setProperty("fov.saveToDB", "true");
 
-        /*
-         * Don't save the access of the new satellites entering the architecture
-         */
-        properties.setProperty("fov.saveToDB", "false");
+        this.evalCounter = new AtomicInteger(0);
+        this.evaluationStore = openEvaluationStore();
+        this.evaluationCache = new EvaluationCache(evaluationStore, EvaluationStore.conceptHash(tsr));
+
 
-        evalCounter = 0;
+    }
 
+    /**
+     * Opens the evaluation store given by the tatc.evaluationStore property
+     *
+     * @return the evaluation store or null if no store is used or it cannot be
+     * opened
+     */
+    private static EvaluationStore openEvaluationStore() {
+        String path = System.getProperty("tatc.evaluationStore", "");
+        if (path.isEmpty()) {
+            return null;
+        }
+        File file = new File(path);
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try {
+            return new EvaluationStore(file);
+        } catch (IOException ex) {
+            Logger.getLogger(StandardFormProblemProperties.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
 
+    /**
+     * Reserves the id of the next architecture to evaluate
+     *
+     * @return the id of the architecture
+     */
+    public int nextEvalID() {
+        return evalCounter.getAndIncrement();
+    }
+
+    /**
+     * Creates the context of the next evaluation. The context gets a new id
+     * and its own subspace directory in the DSMs directory.
+     *
+     * @return the context of the next evaluation
+     */
+    public EvaluationContext createEvaluationContext() {
+        return EvaluationContext.create(nextEvalID());
     }
 
     /**
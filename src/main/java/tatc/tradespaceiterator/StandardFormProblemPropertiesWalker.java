@@ -10,6 +10,7 @@ public class StandardFormProblemPropertiesWalker extends StandardFormProblemProp
     public final ArrayList<Double> inclination;
     public final ArrayList<Integer> numberOfSats;
     public final ArrayList<SpecialOrbit> specialOrbits;
+    public final WalkerDecoder walkerDecoder;
 
     public StandardFormProblemPropertiesWalker(TradespaceSearchRequest tsr, Properties properties) {
         super(tsr, properties);
@@ -22,5 +23,6 @@ public class StandardFormProblemPropertiesWalker extends StandardFormProblemProp
             }
         }
         this.numberOfSats = discretizeSatellite(tsr.getSatelliteOrbits().getNumberOfNewSatellites());
+        this.walkerDecoder = WalkerDecoder.create(numberOfSats);
     }
 }
@@ -0,0 +1,193 @@
+package tatc.tradespaceiterator;
+
+import seakers.conmop.util.Factor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decodes the real valued planes and phasing decisions of a Walker
+ * constellation into the number of planes and the phasing. The valid numbers
+ * of planes are the divisors of the number of satellites, and the valid
+ * phasings are the divisors minus one. The divisors are mapped to evenly
+ * spaced steps between 0 and 1, and a decision decodes to the divisor of the
+ * nearest step.
+ *
+ * The divisors and the steps are precomputed for every number of satellites
+ * of the tradespace, so decoding a decision is a binary search over primitive
+ * arrays that allocates nothing. The divisors are read from the table given by
+ * the tatc.divisors property when it covers the number of satellites.
+ *
+ * @author Prachi
+ */
+public class WalkerDecoder {
+
+    /**
+     * The divisors of each number of satellites in ascending order. Null for
+     * the numbers of satellites that are not in the tradespace
+     */
+    private final int[][] divisors;
+
+    /**
+     * The step each divisor of each number of satellites is mapped to
+     */
+    private final double[][] steps;
+
+    /**
+     * Creates the decoding tables
+     *
+     * @param numberOfSats the numbers of satellites of the tradespace
+     * @param divisorTable the table of divisors, with a number and its
+     * divisors separated by commas on each line. Null to compute the divisors
+     */
+    public WalkerDecoder(List<Integer> numberOfSats, File divisorTable) {
+        int max = 0;
+        for (int n : numberOfSats) {
+            if (n < 1) {
+                throw new IllegalArgumentException(String.format("Expected a positive number of satellites. Found %d.", n));
+            }
+            max = Math.max(max, n);
+        }
+        this.divisors = new int[max + 1][];
+        this.steps = new double[max + 1][];
+        for (int n : numberOfSats) {
+            divisors[n] = new int[0];
+        }
+
+        if (divisorTable != null && divisorTable.exists()) {
+            readDivisors(divisorTable);
+        }
+        for (int n = 1; n <= max; n++) {
+            if (divisors[n] == null) {
+                continue;
+            }
+            if (divisors[n].length == 0) {
+                List<Integer> list = Factor.divisors(n);
+                divisors[n] = new int[list.size()];
+                for (int i = 0; i < list.size(); i++) {
+                    divisors[n][i] = list.get(i);
+                }
+                Arrays.sort(divisors[n]);
+            }
+            steps[n] = steps(divisors[n].length);
+        }
+    }
+
+    /**
+     * Creates the decoding tables with the table of divisors given by the
+     * tatc.divisors property
+     *
+     * @param numberOfSats the numbers of satellites of the tradespace
+     * @return the decoder
+     */
+    public static WalkerDecoder create(List<Integer> numberOfSats) {
+        String table = System.getProperty("tatc.divisors", "");
+        return new WalkerDecoder(numberOfSats, table.isEmpty() ? null : new File(table));
+    }
+
+    /**
+     * Reads the divisors of the numbers of satellites of the tradespace from
+     * the table
+     */
+    private void readDivisors(File divisorTable) {
+        try (BufferedReader br = new BufferedReader(new FileReader(divisorTable))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] str = line.trim().split("\\s+");
+                if (str.length != 2) {
+                    continue;
+                }
+                int n = Integer.parseInt(str[0]);
+                if (n >= divisors.length || divisors[n] == null) {
+                    continue;
+                }
+                String[] values = str[1].split(",");
+                int[] out = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    out[i] = Integer.parseInt(values[i]);
+                }
+                Arrays.sort(out);
+                divisors[n] = out;
+            }
+        } catch (IOException | NumberFormatException ex) {
+            //the divisors that were not read are computed
+            Logger.getLogger(WalkerDecoder.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Maps the options to evenly spaced steps between 0 and 1. The steps are
+     * accumulated the same way as the original decoding, so an option whose
+     * step rounds above 1 can not be reached.
+     */
+    private static double[] steps(int numberOfOptions) {
+        double[] out = new double[numberOfOptions];
+        int count = 0;
+        for (double i = 0; i <= 1 && count < numberOfOptions; i += 1. / (numberOfOptions - 1)) {
+            out[count++] = i;
+        }
+        return count == numberOfOptions ? out : Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Finds the step nearest to a value. Ties go to the lower step.
+     */
+    private int nearest(int numSats, double value) {
+        if (numSats < 1 || numSats >= steps.length || steps[numSats] == null) {
+            throw new IllegalArgumentException(String.format("%d satellites are not in the tradespace.", numSats));
+        }
+        double[] s = steps[numSats];
+        int index = Arrays.binarySearch(s, value);
+        if (index >= 0) {
+            return index;
+        }
+        int upper = -index - 1;
+        if (upper == 0) {
+            return 0;
+        } else if (upper == s.length) {
+            return s.length - 1;
+        }
+        return value - s[upper - 1] <= s[upper] - value ? upper - 1 : upper;
+    }
+
+    /**
+     * Decodes the planes decision
+     *
+     * @param numSats the number of satellites
+     * @param planes the real value of the planes decision between 0 and 1
+     * @return the number of planes
+     */
+    public int decodePlanes(int numSats, double planes) {
+        return divisors[numSats][nearest(numSats, planes)];
+    }
+
+    /**
+     * Decodes the phasing decision
+     *
+     * @param numSats the number of satellites
+     * @param phases the real value of the phasing decision between 0 and 1
+     * @return the phasing
+     */
+    public int decodePhases(int numSats, double phases) {
+        return divisors[numSats][nearest(numSats, phases)] - 1;
+    }
+
+    /**
+     * Snaps the real value of the planes or phasing decision to the step it
+     * decodes to. Decisions snapped to the same step decode to the same
+     * option, so the snapped values can be used as discrete levels.
+     *
+     * @param numSats the number of satellites
+     * @param value the real value of the decision between 0 and 1
+     * @return the step the value decodes to
+     */
+    public double snap(int numSats, double value) {
+        return steps[numSats][nearest(numSats, value)];
+    }
+}
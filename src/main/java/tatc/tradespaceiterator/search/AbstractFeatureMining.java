@@ -0,0 +1,283 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.tradespaceiterator.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The base of the feature mining engines. It builds the base features from a
+ * dataset of discrete observations and turns the compound features found by
+ * the engine into driving features.
+ *
+ * @author Nozomi
+ */
+public abstract class AbstractFeatureMining implements FeatureMiningEngine {
+
+    /**
+     * The features given to the mining engine
+     *
+     */
+    protected final ArrayList<DrivingFeature> baseFeatures;
+
+    /**
+     * The features found by the mining engine that exceed the necessary
+     * support and confidence thresholds
+     */
+    protected ArrayList<CompoundFeature> viableFeatures;
+
+    /**
+     * The number of observations in the data
+     */
+    protected int numberOfObservations;
+
+    /**
+     * The threshold for support
+     */
+    protected double supportThreshold;
+
+    /**
+     * A constructor to initialize the algorithm using the given feature set
+     *
+     * @param numberOfObservations the number of observations in the data
+     * @param drivingFeatures the base driving features to combine
+     */
+    public AbstractFeatureMining(int numberOfObservations, Collection<DrivingFeature> drivingFeatures) {
+
+        this.numberOfObservations = numberOfObservations;
+        this.baseFeatures = new ArrayList<>(drivingFeatures);
+    }
+
+    /**
+     * A constructor to initialize the algorithm using a dataset of observations
+     * and their attribute values
+     *
+     * @param dataset The mxn matrix containing m observations and their n
+     * attributes values, which must be discrete
+     * @param negate a flag to decide whether the negative of the features
+     * should be added as well (i.e. "does not have feature").
+     */
+    public AbstractFeatureMining(double[][] dataset, boolean negate) {
+        //ensure that each observation has the same number of attributes
+        for (int i = 0; i < dataset.length; i++) {
+            if (dataset[i].length != dataset[0].length) {
+                throw new IllegalArgumentException("All observations must have the same number of attributes");
+            }
+        }
+
+        this.numberOfObservations = dataset.length;
+        this.baseFeatures = new ArrayList<>();
+
+        //the number of features corresponds to the sum of the number of unique values for each attribute;
+        //loop over the attributes
+        for (int attr = 0; attr < dataset[0].length; attr++) {
+            HashMap<Double, BitSet> featMatches = new HashMap<>();
+
+            //loop over the observations
+            for (int obs = 0; obs < dataset.length; obs++) {
+
+                double level = dataset[obs][attr];
+                
+                //put only unique values in the features map
+                if (!featMatches.containsKey(level)) {
+                    featMatches.put(level, new BitSet(this.numberOfObservations));
+                }
+                featMatches.get(level).set(obs);
+            }
+
+            //Create the features for this attribute
+            for (Double level : featMatches.keySet()) {
+                this.baseFeatures.add(
+                        new DrivingFeature(
+                                String.format("%d = %f", attr, level),
+                                featMatches.get(level)));
+                if (negate) {
+                    BitSet negativeFeature = (BitSet) featMatches.get(level).clone();
+                    negativeFeature.flip(0, this.numberOfObservations - 1);
+                    this.baseFeatures.add(
+                            new DrivingFeature(
+                                    String.format("%d != %f", attr, level),
+                                    negativeFeature));
+                }
+            }
+        }
+    }
+
+    /**
+     * Mines only the top k features according to the specified metric. By
+     * default all the features are mined and the top k are kept. Engines that
+     * can bound the metric of the extensions of a feature override this
+     * method to avoid exploring the features that cannot enter the top k.
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param maxLength the maximum length of a compound feature
+     * @param k the number of features to mine
+     * @param metric the metric used to rank the features
+     */
+    @Override
+    public void runTopK(BitSet behavioral, double supportThreshold, int maxLength, int k, FeatureMetric metric) {
+        run(behavioral, supportThreshold, Double.NEGATIVE_INFINITY, maxLength);
+        Collections.sort(viableFeatures, rankComparator(metric));
+        if (viableFeatures.size() > k) {
+            viableFeatures = new ArrayList<>(viableFeatures.subList(0, k));
+        }
+    }
+
+    /**
+     * Gets the top n features according to the specified metric in descending
+     * order. Features with the same value of the metric are ordered by length
+     * and then by the indices of their base features. If n is greater than
+     * the number of features found, all features will be returned.
+     *
+     * @param n the number of features desired
+     * @param metric the metric used to sort the features
+     * @return the top n features according to the specified metric in
+     * descending order
+     */
+    @Override
+    public List<DrivingFeature> getTopFeatures(int n, FeatureMetric metric) {
+        Collections.sort(viableFeatures, rankComparator(metric));
+        if (n > viableFeatures.size()) {
+            n = viableFeatures.size();
+        }
+
+        ArrayList<DrivingFeature> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            CompoundFeature apFeature = viableFeatures.get(i);
+            //build the binary array that is 1 for each solution matching the feature
+            StringBuilder sb = new StringBuilder();
+            BitSet featureCombo = apFeature.getMatches();
+            int ind = featureCombo.nextSetBit(0);
+            BitSet matches = (BitSet) this.baseFeatures.get(ind).getMatches().clone();
+            sb.append(baseFeatures.get(ind).getName());
+
+            //find feature indices
+            for (int j = featureCombo.nextSetBit(ind + 1); j != -1; j = featureCombo.nextSetBit(j + 1)) {
+                sb.append(" & ");
+                sb.append(baseFeatures.get(j).getName());
+                matches.and(this.baseFeatures.get(j).getMatches());
+            }
+
+            out.add(new DrivingFeature(sb.toString(), matches,
+                    apFeature.getSupport(), apFeature.getLift(),
+                    apFeature.getFConfidence(), apFeature.getRConfidence()));
+        }
+        return out;
+    }
+
+    /**
+     * Computes the metrics of a feature from the number of observations
+     * matching it. If the support threshold is not met, then the other metrics
+     * are not computed.
+     *
+     * @param cnt_SF the number of behavioral observations matching the feature
+     * @param cnt_F the number of observations matching the feature
+     * @param cnt_S the number of behavioral observations
+     * @param out the array receiving the support, lift, fcondfidence, and
+     * rconfidence. If the support threshold is not met, all metrics will be NaN
+     * @param offset the index of the support in the array
+     */
+    protected void computeMetrics(double cnt_SF, double cnt_F, double cnt_S, double[] out, int offset) {
+        out[offset] = cnt_SF / (double) numberOfObservations; //support
+
+        // Check if it passes minimum support threshold
+        if (out[offset] > supportThreshold) {
+            //compute the confidence and lift
+            out[offset + 1] = (cnt_SF / cnt_S) / (cnt_F / (double) numberOfObservations); //lift
+            out[offset + 2] = (cnt_SF) / (cnt_F);   // confidence (feature -> selection)
+            out[offset + 3] = (cnt_SF) / (cnt_S);   // confidence (selection -> feature)
+        } else {
+            Arrays.fill(out, offset, offset + 4, Double.NaN);
+        }
+    }
+
+    /**
+     * Gets the value of a metric of a feature
+     *
+     * @param feature the feature
+     * @param metric the metric
+     * @return the value of the metric
+     */
+    protected static double metricValue(AbstractFeature feature, FeatureMetric metric) {
+        switch (metric) {
+            case SUPPORT:
+                return feature.getSupport();
+            case FCONFIDENCE:
+                return feature.getFConfidence();
+            case RCONFIDENCE:
+                return feature.getRConfidence();
+            case LIFT:
+                return feature.getLift();
+            default:
+                throw new UnsupportedOperationException("unknown mode");
+        }
+    }
+
+    /**
+     * Ranks the compound features by descending value of a metric, then by
+     * length and then by the indices of their base features
+     *
+     * @param metric the metric
+     * @return the comparator ranking the features
+     */
+    protected static Comparator<CompoundFeature> rankComparator(FeatureMetric metric) {
+        return new Comparator<CompoundFeature>() {
+            @Override
+            public int compare(CompoundFeature f1, CompoundFeature f2) {
+                int out = Double.compare(metricValue(f2, metric), metricValue(f1, metric));
+                if (out != 0) {
+                    return out;
+                }
+                return compareCombos(f1.getMatches(), f2.getMatches());
+            }
+        };
+    }
+
+    /**
+     * Orders the compound features by length and then by the indices of their
+     * base features, which is the order in which Apriori finds them
+     */
+    protected static int compareCombos(BitSet c1, BitSet c2) {
+        int length = Integer.compare(c1.cardinality(), c2.cardinality());
+        if (length != 0) {
+            return length;
+        }
+        for (int i = c1.nextSetBit(0), j = c2.nextSetBit(0); i != -1; i = c1.nextSetBit(i + 1), j = c2.nextSetBit(j + 1)) {
+            if (i != j) {
+                return Integer.compare(i, j);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * A container for the bit set defining which base features create the
+     * feature and its support, lift, and confidence metrics
+     */
+    protected static class CompoundFeature extends AbstractFeature {
+
+        /**
+         *
+         * @param bitset of the base features that create this feature
+         * @param support
+         * @param lift
+         * @param fconfidence
+         * @param rconfidence
+         */
+        public CompoundFeature(BitSet bitset, double support, double lift, double fconfidence, double rconfidence) {
+            super(bitset, support, lift, fconfidence, rconfidence);
+        }
+
+    }
+}
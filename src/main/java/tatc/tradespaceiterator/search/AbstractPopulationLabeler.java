@@ -38,6 +38,29 @@ public abstract class AbstractPopulationLabeler {
         return population;
     }
 
+    /**
+     * This method should be overridden if the labeler can keep track of the
+     * solutions as they are evaluated, so that labeling a population at a
+     * later time does not need to process the whole population. The default
+     * method does nothing.
+     *
+     * @param individual a newly evaluated solution
+     */
+    public void update(Solution individual) {
+    }
+
+    /**
+     * Copies the state of the labeler so that a population can be labeled
+     * later, or on another thread, as it would be labeled now. This method
+     * should be overridden if the labeler is updated with the solutions as
+     * they are evaluated. The default method returns this labeler.
+     *
+     * @return the copy of the labeler
+     */
+    public AbstractPopulationLabeler copy() {
+        return this;
+    }
+
     /**
      * This method should be overridden if the population must be processed
      * before its individuals are labeled. For example, if labeling the
@@ -0,0 +1,22 @@
+package tatc.tradespaceiterator.search;
+
+import org.moeaframework.core.Solution;
+
+/**
+ * Decodes the decisions of a solution into the parameters of the architecture
+ * it represents, such as the altitude, the inclination and the number of
+ * planes of a Walker constellation. Solutions that decode to the same
+ * parameters are the same architecture.
+ *
+ * @author Prachi
+ */
+public interface ArchitectureDecoder {
+
+    /**
+     * Decodes the decisions of a solution
+     *
+     * @param solution the solution
+     * @return the parameters of the architecture
+     */
+    double[] decode(Solution solution);
+}
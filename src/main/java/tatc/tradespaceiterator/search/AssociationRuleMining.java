@@ -7,6 +7,7 @@ package tatc.tradespaceiterator.search;
 
 import java.util.*;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.hipparchus.util.Combinations;
 
 /**
@@ -19,33 +20,20 @@ import org.hipparchus.util.Combinations;
  * observations and n features with discrete values. In addition, a m-element
  * vector of class labels is required.
  *
- * A similar algorithm to the Apriori algorithm is used to generate rules
+ * A similar algorithm to the Apriori algorithm is used to generate rules. The
+ * candidates of each length are independent, so their metrics are computed in
+ * parallel over chunks of candidates. The observations matching each base
+ * feature are kept as arrays of 64-bit words and each chunk intersects them in
+ * a single scratch array, so no bit set is allocated per candidate.
  *
  * @author Nozomi
  */
-public class AssociationRuleMining {
+public class AssociationRuleMining extends AbstractFeatureMining {
 
     /**
-     * The features given to the Apriori algorithm
-     *
-     */
-    private final ArrayList<DrivingFeature> baseFeatures;
-
-    /**
-     * The features found by the Apriori algorithm that exceed the necessary
-     * support and confidence thresholds
-     */
-    private ArrayList<AprioriFeature> viableFeatures;
-
-    /**
-     * The number of observations in the data
-     */
-    private final int numberOfObservations;
-
-    /**
-     * The threshold for support
+     * The number of candidates evaluated by a task
      */
-    private double supportThreshold;
+    private static final int CHUNK_SIZE = 64;
 
     /**
      * A constructor to initialize the algorithm using the given feature set
@@ -54,9 +42,7 @@ public class AssociationRuleMining {
      * @param drivingFeatures the base driving features to combine with Apriori
      */
     public AssociationRuleMining(int numberOfObservations, Collection<DrivingFeature> drivingFeatures) {
-
-        this.numberOfObservations = numberOfObservations;
-        this.baseFeatures = new ArrayList<>(drivingFeatures);
+        super(numberOfObservations, drivingFeatures);
     }
 
     /**
@@ -69,49 +55,7 @@ public class AssociationRuleMining {
      * should be added as well (i.e. "does not have feature").
      */
     public AssociationRuleMining(double[][] dataset, boolean negate) {
-        //ensure that each observation has the same number of attributes
-        for (int i = 0; i < dataset.length; i++) {
-            if (dataset[i].length != dataset[0].length) {
-                throw new IllegalArgumentException("All observations must have the same number of attributes");
-            }
-        }
-
-        this.numberOfObservations = dataset.length;
-        this.baseFeatures = new ArrayList<>();
-
-        //the number of features corresponds to the sum of the number of unique values for each attribute;
-        //loop over the attributes
-        for (int attr = 0; attr < dataset[0].length; attr++) {
-            HashMap<Double, BitSet> featMatches = new HashMap<>();
-
-            //loop over the observations
-            for (int obs = 0; obs < dataset.length; obs++) {
-
-                double level = dataset[obs][attr];
-                
-                //put only unique values in the features map
-                if (!featMatches.containsKey(level)) {
-                    featMatches.put(level, new BitSet(this.numberOfObservations));
-                }
-                featMatches.get(level).set(obs);
-            }
-
-            //Create the features for this attribute
-            for (Double level : featMatches.keySet()) {
-                this.baseFeatures.add(
-                        new DrivingFeature(
-                                String.format("%d = %f", attr, level),
-                                featMatches.get(level)));
-                if (negate) {
-                    BitSet negativeFeature = (BitSet) featMatches.get(level).clone();
-                    negativeFeature.flip(0, this.numberOfObservations - 1);
-                    this.baseFeatures.add(
-                            new DrivingFeature(
-                                    String.format("%d != %f", attr, level),
-                                    negativeFeature));
-                }
-            }
-        }
+        super(dataset, negate);
     }
 
     /**
@@ -124,6 +68,7 @@ public class AssociationRuleMining {
      * @param fConfidenceThreshold The threshold for forward confidence
      * @param maxLength the maximum length of a compound feature
      */
+    @Override
     public void run(BitSet behavioral, double supportThreshold, double fConfidenceThreshold, int maxLength) {
         this.supportThreshold = supportThreshold;
 
@@ -131,79 +76,51 @@ public class AssociationRuleMining {
 
         System.out.println("...[Apriori] size of the input matrix: " + numberOfObservations + " X " + baseFeatures.size());
 
-        //these metric doubles are computed during Apriori
-        double metrics[];
-
         // Define the initial set of features
         viableFeatures = new ArrayList<>();
 
         //The base features that are combined to create the Hasse diagram in the
-        //Apriori algorithm. Each BitSet corresponds to a feature and contains
+        //Apriori algorithm. Each array corresponds to a feature and contains
         //the binary vector of the observations that match the feature
-        BitSet[] baseFeaturesBit = new BitSet[this.baseFeatures.size()];
+        int numberOfWords = (numberOfObservations + 63) / 64;
+        long[][] baseFeaturesBits = new long[this.baseFeatures.size()][];
         int bi = 0;
         for (DrivingFeature feat : baseFeatures) {
-            baseFeaturesBit[bi] = feat.getMatches();
+            baseFeaturesBits[bi] = Arrays.copyOf(feat.getMatches().toLongArray(), numberOfWords);
             bi++;
         }
+        long[] labels = Arrays.copyOf(behavioral.toLongArray(), numberOfWords);
+        int cnt_S = behavioral.cardinality();
 
         // Define front. Front is the set of features whose length is L and passes significant test
-        ArrayList<BitSet> front = new ArrayList();
+        ArrayList<BitSet> candidates = new ArrayList<>(baseFeatures.size());
         for (int i = 0; i < baseFeatures.size(); i++) {
-            metrics = computeMetrics(baseFeaturesBit[i], behavioral);
-            if (!Double.isNaN(metrics[0])) {
-                BitSet featureCombo = new BitSet(baseFeatures.size());
-                featureCombo.set(i, true);
-                front.add(featureCombo);
-                if (metrics[2] > fConfidenceThreshold) {
-                    //only add feature to output list if it passes support and confidence thresholds
-                    AprioriFeature feat = new AprioriFeature(featureCombo, metrics[0], metrics[1], metrics[2], metrics[3]);
-                    viableFeatures.add(feat);
-                }
-            }
+            BitSet featureCombo = new BitSet(baseFeatures.size());
+            featureCombo.set(i, true);
+            candidates.add(featureCombo);
         }
+        ArrayList<BitSet> front = new ArrayList<>();
+        double maxF = select(candidates, evaluate(candidates, baseFeaturesBits, labels, cnt_S),
+                fConfidenceThreshold, front);
 
         int currentLength = 2;
         // While there are features still left to explore
 
-        double maxF = 0;
-
         while (front.size() > 0) {
             if (currentLength - 1 == maxLength) {
                 break;
             }
             // Candidates to form the frontier with length L+1
             //updated front with new instance only containing the L+1 combinations of features
-            ArrayList<BitSet> candidates = join(front, baseFeatures.size());
-            front.clear();
+            candidates = join(front, baseFeatures.size());
+            front = new ArrayList<>();
 
             Logger.getGlobal().finer(
                     String.format("...[Apriori] number of candidates (length %d): %d", currentLength, candidates.size()));
 
-            for (BitSet featureCombo : candidates) {
-                int ind = featureCombo.nextSetBit(0);
-                BitSet matches = (BitSet) baseFeaturesBit[ind].clone();
+            maxF = Math.max(maxF, select(candidates, evaluate(candidates, baseFeaturesBits, labels, cnt_S),
+                    fConfidenceThreshold, front));
 
-                //find feature indices
-                for (int j = featureCombo.nextSetBit(ind + 1); j != -1; j = featureCombo.nextSetBit(j + 1)) {
-                    matches.and(baseFeaturesBit[j]);
-                }
-
-                // Check if it passes minimum support threshold
-                metrics = computeMetrics(matches, behavioral);
-                if (!Double.isNaN(metrics[0])) {
-                    // Add all features whose support is above threshold, add to candidates
-                    front.add(featureCombo);
-
-                    maxF = Math.max(metrics[2], maxF);
-
-                    if (metrics[2] > fConfidenceThreshold) {
-                        // If the metric is above the threshold, current feature is statistically significant
-                        viableFeatures.add(new AprioriFeature(featureCombo, metrics[0], metrics[1], metrics[2], metrics[3]));
-                    }
-
-                }
-            }
             System.out.println(maxF);
             Logger.getGlobal().finer(
                     String.format("...[Apriori] number of valid candidates (length %d): %d", currentLength, viableFeatures.size()));
@@ -221,43 +138,83 @@ public class AssociationRuleMining {
     }
 
     /**
-     * Gets the top n features according to the specified metric in descending
-     * order. If n is greater than the number of features found by Apriori, all
-     * features will be returned.
+     * Computes the metrics of the candidates in parallel. Each task evaluates
+     * a chunk of consecutive candidates and reuses one scratch array for the
+     * observations matching its candidates.
      *
-     * @param n the number of features desired
-     * @param metric the metric used to sort the features
-     * @return the top n features according to the specified metric in
-     * descending order
+     * @param candidates the candidates, as the bit sets of the base features
+     * that define them
+     * @param baseFeaturesBits the observations matching each base feature
+     * @param labels the behavioral/non-behavioral labeling
+     * @param cnt_S the number of behavioral observations
+     * @return the support, lift, fconfidence and rconfidence of each candidate
+     * in consecutive entries
      */
-    public List<DrivingFeature> getTopFeatures(int n, FeatureMetric metric) {
-        //Collections.sort(viableFeatures, new FeatureComparator(metric).reversed());
-        if (n > viableFeatures.size()) {
-            n = viableFeatures.size();
+    private double[] evaluate(List<BitSet> candidates, long[][] baseFeaturesBits, long[] labels, int cnt_S) {
+        double[] metrics = new double[4 * candidates.size()];
+        int numberOfChunks = (candidates.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream chunks = IntStream.range(0, numberOfChunks);
+        if (numberOfChunks > 1) {
+            chunks = chunks.parallel();
         }
+        chunks.forEach(chunk -> {
+            long[] matches = new long[labels.length];
+            int end = Math.min(candidates.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int c = chunk * CHUNK_SIZE; c < end; c++) {
+                BitSet featureCombo = candidates.get(c);
+                int ind = featureCombo.nextSetBit(0);
+                System.arraycopy(baseFeaturesBits[ind], 0, matches, 0, matches.length);
+
+                //find feature indices
+                for (int j = featureCombo.nextSetBit(ind + 1); j != -1; j = featureCombo.nextSetBit(j + 1)) {
+                    long[] base = baseFeaturesBits[j];
+                    for (int w = 0; w < matches.length; w++) {
+                        matches[w] &= base[w];
+                    }
+                }
 
-        ArrayList<DrivingFeature> out = new ArrayList<>(n);
-        for (int i = 0; i < n; i++) {
-            AprioriFeature apFeature = viableFeatures.get(i);
-            //build the binary array that is 1 for each solution matching the feature
-            StringBuilder sb = new StringBuilder();
-            BitSet featureCombo = apFeature.getMatches();
-            int ind = featureCombo.nextSetBit(0);
-            BitSet matches = (BitSet) this.baseFeatures.get(ind).getMatches().clone();
-            sb.append(baseFeatures.get(ind).getName());
-
-            //find feature indices
-            for (int j = featureCombo.nextSetBit(ind + 1); j != -1; j = featureCombo.nextSetBit(j + 1)) {
-                sb.append(" & ");
-                sb.append(baseFeatures.get(j).getName());
-                matches.and(this.baseFeatures.get(j).getMatches());
+                int cnt_F = 0;
+                int cnt_SF = 0;
+                for (int w = 0; w < matches.length; w++) {
+                    cnt_F += Long.bitCount(matches[w]);
+                    cnt_SF += Long.bitCount(matches[w] & labels[w]);
+                }
+                computeMetrics(cnt_SF, cnt_F, cnt_S, metrics, 4 * c);
             }
+        });
+        return metrics;
+    }
+
+    /**
+     * Adds the candidates that pass the support threshold to the front and
+     * the ones that also pass the confidence threshold to the viable features,
+     * in the order of the candidates
+     *
+     * @param candidates the candidates
+     * @param metrics the metrics of the candidates
+     * @param fConfidenceThreshold The threshold for forward confidence
+     * @param front the front the candidates are added to
+     * @return the maximum forward confidence of the candidates that pass the
+     * support threshold
+     */
+    private double select(List<BitSet> candidates, double[] metrics, double fConfidenceThreshold, List<BitSet> front) {
+        double maxF = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            int m = 4 * c;
+            if (!Double.isNaN(metrics[m])) {
+                // Add all features whose support is above threshold, add to candidates
+                BitSet featureCombo = candidates.get(c);
+                front.add(featureCombo);
+
+                maxF = Math.max(metrics[m + 2], maxF);
 
-            out.add(new DrivingFeature(sb.toString(), matches,
-                    apFeature.getSupport(), apFeature.getLift(),
-                    apFeature.getFConfidence(), apFeature.getRConfidence()));
+                if (metrics[m + 2] > fConfidenceThreshold) {
+                    // If the metric is above the threshold, current feature is statistically significant
+                    viableFeatures.add(new CompoundFeature(featureCombo, metrics[m], metrics[m + 1], metrics[m + 2], metrics[m + 3]));
+                }
+            }
         }
-        return out;
+        return maxF;
     }
 
     /**
@@ -358,57 +315,4 @@ public class AssociationRuleMining {
         }
         return true;
     }
-
-    /**
-     * Computes the metrics of a feature. The feature is represented as the
-     * bitset that specifies which base features define it. If the support
-     * threshold is not met, then the other metrics are not computed.
-     *
-     * @param feature the bit set specifying which base features define it
-     * @param labels the behavioral/non-behavioral labeling
-     * @return a 4-tuple containing support, lift, fcondfidence, and
-     * rconfidence. If the support threshold is not met, all metrics will be NaN
-     */
-    private double[] computeMetrics(BitSet feature, BitSet labels) {
-        double[] out = new double[4];
-
-        BitSet copyMatches = (BitSet) feature.clone();
-        copyMatches.and(labels);
-        double cnt_SF = (double) copyMatches.cardinality();
-        out[0] = cnt_SF / (double) numberOfObservations; //support
-
-        // Check if it passes minimum support threshold
-        if (out[0] > supportThreshold) {
-            //compute the confidence and lift
-            double cnt_S = (double) labels.cardinality();
-            double cnt_F = (double) feature.cardinality();
-            out[1] = (cnt_SF / cnt_S) / (cnt_F / (double) numberOfObservations); //lift
-            out[2] = (cnt_SF) / (cnt_F);   // confidence (feature -> selection)
-            out[3] = (cnt_SF) / (cnt_S);   // confidence (selection -> feature)
-        } else {
-            Arrays.fill(out, Double.NaN);
-        }
-        return out;
-
-    }
-
-    /**
-     * A container for the bit set defining which base features create the
-     * feature and its support, lift, and confidence metrics
-     */
-    private class AprioriFeature extends AbstractFeature {
-
-        /**
-         *
-         * @param bitset of the base features that create this feature
-         * @param support
-         * @param lift
-         * @param fconfidence
-         * @param rconfidence
-         */
-        public AprioriFeature(BitSet bitset, double support, double lift, double fconfidence, double rconfidence) {
-            super(bitset, support, lift, fconfidence, rconfidence);
-        }
-
-    }
 }
@@ -0,0 +1,411 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.tradespaceiterator.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Vertical (Eclat) mining of the compound features. The observations matching
+ * each base feature are kept as arrays of 64-bit words, and the compound
+ * features are explored depth first: the observations matching a compound
+ * feature are the intersection of the observations matching its prefix and
+ * the observations matching its last base feature. A prefix that does not
+ * pass the support threshold is not extended, since none of its extensions
+ * can pass it either.
+ *
+ * Unlike Apriori, no candidate set and no subset check is built. Each branch
+ * of the search, rooted at a base feature, only holds one array of words per
+ * length and the branches are mined in parallel. The features found are
+ * returned in the same order as Apriori (by length, then by the indices of
+ * their base features).
+ *
+ * In the top-k mode, the best k features found so far are kept in a bounded
+ * priority queue shared by the branches. The metrics of the extensions of a
+ * feature are bounded from its own counts: support and reverse confidence can
+ * only decrease, and forward confidence and lift cannot exceed those of a
+ * feature matching only behavioral observations. A feature is not extended if
+ * this bound cannot beat the worst feature in the queue. The forward
+ * confidence bound is 1 as soon as a feature matches a behavioral observation,
+ * so when the features are ranked by forward confidence only the support
+ * threshold prunes the search.
+ *
+ * @author Prachi
+ */
+public class EclatMining extends AbstractFeatureMining {
+
+    /**
+     * A constructor to initialize the algorithm using the given feature set
+     *
+     * @param numberOfObservations the number of observations in the data
+     * @param drivingFeatures the base driving features to combine with Eclat
+     */
+    public EclatMining(int numberOfObservations, Collection<DrivingFeature> drivingFeatures) {
+        super(numberOfObservations, drivingFeatures);
+    }
+
+    /**
+     * A constructor to initialize the algorithm using a dataset of observations
+     * and their attribute values
+     *
+     * @param dataset The mxn matrix containing m observations and their n
+     * attributes values, which must be discrete
+     * @param negate a flag to decide whether the negative of the features
+     * should be added as well (i.e. "does not have feature").
+     */
+    public EclatMining(double[][] dataset, boolean negate) {
+        super(dataset, negate);
+    }
+
+    /**
+     * Runs the Eclat algorithm to identify features and compound features that
+     * surpass the support and confidence thresholds
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param fConfidenceThreshold The threshold for forward confidence
+     * @param maxLength the maximum length of a compound feature
+     */
+    @Override
+    public void run(BitSet behavioral, double supportThreshold, double fConfidenceThreshold, int maxLength) {
+        this.supportThreshold = supportThreshold;
+
+        long t0 = System.currentTimeMillis();
+
+        System.out.println("...[Eclat] size of the input matrix: " + numberOfObservations + " X " + baseFeatures.size());
+
+        mine(behavioral, fConfidenceThreshold, maxLength, null);
+
+        long t1 = System.currentTimeMillis();
+
+        Logger.getGlobal().finer(
+                String.format("...[Eclat] evaluation done in: %.2f sec, with %d features found", (t1 - t0) / 1000., viableFeatures.size()));
+    }
+
+    /**
+     * Runs the Eclat algorithm keeping only the top k features according to
+     * the specified metric
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param maxLength the maximum length of a compound feature
+     * @param k the number of features to mine
+     * @param metric the metric used to rank the features
+     */
+    @Override
+    public void runTopK(BitSet behavioral, double supportThreshold, int maxLength, int k, FeatureMetric metric) {
+        this.supportThreshold = supportThreshold;
+
+        long t0 = System.currentTimeMillis();
+
+        System.out.println("...[Eclat] size of the input matrix: " + numberOfObservations + " X " + baseFeatures.size()
+                + ", mining the top " + k + " features by " + metric);
+
+        mine(behavioral, Double.NEGATIVE_INFINITY, maxLength, new TopK(k, metric));
+
+        long t1 = System.currentTimeMillis();
+
+        Logger.getGlobal().finer(
+                String.format("...[Eclat] evaluation done in: %.2f sec, with %d features found", (t1 - t0) / 1000., viableFeatures.size()));
+    }
+
+    /**
+     * Mines the branches of all the base features in parallel and sets the
+     * viable features
+     *
+     * @param topK the top k features found so far. Null to keep all the
+     * features that pass the thresholds
+     */
+    private void mine(BitSet behavioral, double fConfidenceThreshold, int maxLength, TopK topK) {
+        int numberOfWords = (numberOfObservations + 63) / 64;
+        long[][] baseFeaturesBits = new long[baseFeatures.size()][];
+        for (int i = 0; i < baseFeatures.size(); i++) {
+            baseFeaturesBits[i] = Arrays.copyOf(baseFeatures.get(i).getMatches().toLongArray(), numberOfWords);
+        }
+        long[] labels = Arrays.copyOf(behavioral.toLongArray(), numberOfWords);
+        int cnt_S = behavioral.cardinality();
+        int length = Math.max(1, maxLength);
+
+        List<List<CompoundFeature>> branches = IntStream.range(0, baseFeatures.size()).parallel()
+                .mapToObj(i -> mineBranch(i, baseFeaturesBits, labels, cnt_S, fConfidenceThreshold, length, topK))
+                .collect(Collectors.toList());
+
+        if (topK != null) {
+            viableFeatures = topK.toList();
+            return;
+        }
+        viableFeatures = new ArrayList<>();
+        for (List<CompoundFeature> branch : branches) {
+            viableFeatures.addAll(branch);
+        }
+        Collections.sort(viableFeatures, new Comparator<CompoundFeature>() {
+            @Override
+            public int compare(CompoundFeature f1, CompoundFeature f2) {
+                return compareCombos(f1.getMatches(), f2.getMatches());
+            }
+        });
+    }
+
+    /**
+     * Mines the compound features whose first base feature is the given one
+     *
+     * @param first the index of the first base feature
+     * @param baseFeaturesBits the observations matching each base feature
+     * @param labels the behavioral/non-behavioral labeling
+     * @param cnt_S the number of behavioral observations
+     * @param fConfidenceThreshold The threshold for forward confidence
+     * @param maxLength the maximum length of a compound feature
+     * @param topK the top k features found so far. Null to keep all the
+     * features that pass the thresholds
+     * @return the features that surpass the thresholds. Empty in the top-k
+     * mode
+     */
+    private List<CompoundFeature> mineBranch(int first, long[][] baseFeaturesBits, long[] labels, int cnt_S,
+            double fConfidenceThreshold, int maxLength, TopK topK) {
+        Branch branch = new Branch(maxLength, labels, cnt_S, fConfidenceThreshold, topK);
+        branch.prefix[0] = first;
+        System.arraycopy(baseFeaturesBits[first], 0, branch.matches[0], 0, labels.length);
+        if (branch.evaluate(0)) {
+            branch.record(1);
+            if (maxLength > 1 && branch.isExtensible(1)) {
+                branch.extend(1, baseFeaturesBits);
+            }
+        }
+        return branch.out;
+    }
+
+    /**
+     * The state of the depth first search of a branch. The arrays are reused
+     * for every feature of the branch.
+     */
+    private class Branch {
+
+        /**
+         * The observations matching the prefix of each length
+         */
+        private final long[][] matches;
+
+        /**
+         * The indices of the base features of the current feature
+         */
+        private final int[] prefix;
+
+        private final long[] labels;
+
+        private final int cnt_S;
+
+        private final double fConfidenceThreshold;
+
+        private final TopK topK;
+
+        /**
+         * The support, lift, fconfidence and rconfidence of the current
+         * feature
+         */
+        private final double[] metrics;
+
+        /**
+         * The number of behavioral observations matching the current feature
+         */
+        private int cnt_SF;
+
+        private final List<CompoundFeature> out;
+
+        Branch(int maxLength, long[] labels, int cnt_S, double fConfidenceThreshold, TopK topK) {
+            this.matches = new long[maxLength][labels.length];
+            this.prefix = new int[maxLength];
+            this.labels = labels;
+            this.cnt_S = cnt_S;
+            this.fConfidenceThreshold = fConfidenceThreshold;
+            this.topK = topK;
+            this.metrics = new double[4];
+            this.out = new ArrayList<>();
+        }
+
+        /**
+         * Extends the prefix of the given length with each base feature
+         * following its last base feature
+         */
+        void extend(int depth, long[][] baseFeaturesBits) {
+            long[] parent = matches[depth - 1];
+            long[] current = matches[depth];
+            for (int j = prefix[depth - 1] + 1; j < baseFeaturesBits.length; j++) {
+                long[] base = baseFeaturesBits[j];
+                for (int w = 0; w < current.length; w++) {
+                    current[w] = parent[w] & base[w];
+                }
+                if (evaluate(depth)) {
+                    prefix[depth] = j;
+                    record(depth + 1);
+                    if (depth + 1 < prefix.length && isExtensible(depth + 1)) {
+                        extend(depth + 1, baseFeaturesBits);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the metrics of the feature of the given depth
+         *
+         * @return true if the feature passes the support threshold
+         */
+        boolean evaluate(int depth) {
+            long[] current = matches[depth];
+            int cnt_F = 0;
+            cnt_SF = 0;
+            for (int w = 0; w < current.length; w++) {
+                cnt_F += Long.bitCount(current[w]);
+                cnt_SF += Long.bitCount(current[w] & labels[w]);
+            }
+            computeMetrics(cnt_SF, cnt_F, cnt_S, metrics, 0);
+            return !Double.isNaN(metrics[0]);
+        }
+
+        void record(int length) {
+            if (topK != null) {
+                if (topK.accepts(metrics, length)) {
+                    topK.offer(new CompoundFeature(combo(length), metrics[0], metrics[1], metrics[2], metrics[3]));
+                }
+            } else if (metrics[2] > fConfidenceThreshold) {
+                out.add(new CompoundFeature(combo(length), metrics[0], metrics[1], metrics[2], metrics[3]));
+            }
+        }
+
+        /**
+         * Checks if an extension of the current feature of the given length
+         * could enter the top k features
+         */
+        boolean isExtensible(int length) {
+            if (topK == null) {
+                return true;
+            }
+            double bound;
+            switch (topK.metric) {
+                case SUPPORT:
+                    bound = cnt_SF / (double) numberOfObservations;
+                    break;
+                case RCONFIDENCE:
+                    bound = cnt_SF / (double) cnt_S;
+                    break;
+                case FCONFIDENCE:
+                    //an extension may only match behavioral observations, so this only prunes with the support threshold
+                    bound = cnt_SF > 0 ? 1.0 : 0.0;
+                    break;
+                case LIFT:
+                    //the lift of a feature is computed as a ratio of ratios, so it may round above N/S
+                    bound = cnt_SF > 0 ? numberOfObservations / (double) cnt_S * (1 + 1e-12) : 0.0;
+                    break;
+                default:
+                    throw new UnsupportedOperationException("unknown mode");
+            }
+            //the extensions are longer than the current feature, so they lose the ties against shorter features
+            return topK.canEnter(bound, length);
+        }
+
+        private BitSet combo(int length) {
+            BitSet featureCombo = new BitSet(baseFeatures.size());
+            for (int i = 0; i < length; i++) {
+                featureCombo.set(prefix[i]);
+            }
+            return featureCombo;
+        }
+    }
+
+    /**
+     * The top k features found so far by all the branches
+     */
+    private static class TopK {
+
+        private final int k;
+
+        private final FeatureMetric metric;
+
+        private final Comparator<CompoundFeature> rank;
+
+        /**
+         * The features, with the worst one at the head
+         */
+        private final PriorityQueue<CompoundFeature> queue;
+
+        TopK(int k, FeatureMetric metric) {
+            this.k = k;
+            this.metric = metric;
+            this.rank = rankComparator(metric);
+            this.queue = new PriorityQueue<>(Math.max(1, k + 1), Collections.reverseOrder(rank));
+        }
+
+        /**
+         * Checks if a feature with the given metrics and length may enter the
+         * top k, before its bit set is built
+         */
+        synchronized boolean accepts(double[] metrics, int length) {
+            if (queue.size() < k) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+            double value;
+            switch (metric) {
+                case SUPPORT:
+                    value = metrics[0];
+                    break;
+                case LIFT:
+                    value = metrics[1];
+                    break;
+                case FCONFIDENCE:
+                    value = metrics[2];
+                    break;
+                case RCONFIDENCE:
+                    value = metrics[3];
+                    break;
+                default:
+                    throw new UnsupportedOperationException("unknown mode");
+            }
+            double worst = metricValue(queue.peek(), metric);
+            return value > worst || (value == worst && length <= queue.peek().getMatches().cardinality());
+        }
+
+        synchronized void offer(CompoundFeature feature) {
+            queue.offer(feature);
+            if (queue.size() > k) {
+                queue.poll();
+            }
+        }
+
+        /**
+         * Checks if a feature whose metric is at most the bound and that is
+         * longer than the given length could enter the top k
+         */
+        synchronized boolean canEnter(double bound, int length) {
+            if (queue.size() < k) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+            double worst = metricValue(queue.peek(), metric);
+            return bound > worst || (bound == worst && queue.peek().getMatches().cardinality() > length);
+        }
+
+        synchronized ArrayList<CompoundFeature> toList() {
+            ArrayList<CompoundFeature> out = new ArrayList<>(queue);
+            Collections.sort(out, rank);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.tradespaceiterator.search;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A mining engine that finds the features and compound features that drive
+ * the observations to the behavioral class
+ *
+ * @author Prachi
+ */
+public interface FeatureMiningEngine {
+
+    /**
+     * Mines the features and compound features that surpass the support and
+     * confidence thresholds
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param fConfidenceThreshold The threshold for forward confidence
+     * @param maxLength the maximum length of a compound feature
+     */
+    public void run(BitSet behavioral, double supportThreshold, double fConfidenceThreshold, int maxLength);
+
+    /**
+     * Mines only the top k features according to the specified metric. The
+     * features can then be read with getTopFeatures.
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param maxLength the maximum length of a compound feature
+     * @param k the number of features to mine
+     * @param metric the metric used to rank the features
+     */
+    public void runTopK(BitSet behavioral, double supportThreshold, int maxLength, int k, FeatureMetric metric);
+
+    /**
+     * Gets the top n features according to the specified metric in descending
+     * order. If n is greater than the number of features found, all features
+     * will be returned.
+     *
+     * @param n the number of features desired
+     * @param metric the metric used to sort the features
+     * @return the top n features according to the specified metric in
+     * descending order
+     */
+    public List<DrivingFeature> getTopFeatures(int n, FeatureMetric metric);
+}
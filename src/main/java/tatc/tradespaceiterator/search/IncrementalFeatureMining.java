@@ -0,0 +1,346 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.tradespaceiterator.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+/**
+ * Feature mining that is updated with the new observations instead of mining
+ * the whole dataset again. The observations are appended to the base features
+ * as they come, and the number of observations matching each compound feature
+ * found so far is kept and only updated with the new observations.
+ *
+ * The labels of the observations may change between two runs, so the number
+ * of behavioral observations matching each feature is counted again on every
+ * run. Since only the features matching at least one behavioral observation
+ * can pass the support threshold, the compound features are enumerated from
+ * the base features of the behavioral observations rather than from the
+ * lattice of all the base features. Each behavioral observation has one base
+ * feature per attribute, so a run costs the number of behavioral observations
+ * times the number of combinations of their attributes, plus the new
+ * observations for each feature whose matches are updated.
+ *
+ * When only the top k features are mined, the number of observations matching
+ * a feature in the observations already counted is a lower bound of its
+ * number of matches, which bounds the metrics of the feature before its
+ * matches are updated. The features are updated in descending order of their
+ * bound until the bound falls below the k-th best feature, so only the
+ * features that can enter the top k are updated. The bound is exact for the
+ * support and the reverse confidence, and is only tight for the forward
+ * confidence and the lift of the features seen in a previous run.
+ *
+ * The negation of the base features is not supported.
+ *
+ * @author Prachi
+ */
+public class IncrementalFeatureMining extends AbstractFeatureMining {
+
+    /**
+     * The index of the base feature of each attribute level
+     */
+    private final List<Map<Double, Integer>> levels;
+
+    /**
+     * The observations matching each base feature, as 64-bit words
+     */
+    private final List<long[]> baseFeaturesBits;
+
+    /**
+     * The indices of the base features of each observation, in ascending
+     * order
+     */
+    private final List<int[]> observationFeatures;
+
+    /**
+     * The number of observations matching each compound feature found so far
+     */
+    private final Map<BitSet, MatchCount> matchCounts;
+
+    public IncrementalFeatureMining() {
+        super(0, Collections.<DrivingFeature>emptyList());
+        this.levels = new ArrayList<>();
+        this.baseFeaturesBits = new ArrayList<>();
+        this.observationFeatures = new ArrayList<>();
+        this.matchCounts = new HashMap<>();
+        this.viableFeatures = new ArrayList<>();
+    }
+
+    public int getNumberOfObservations() {
+        return numberOfObservations;
+    }
+
+    /**
+     * Appends observations to the data
+     *
+     * @param dataset The mxn matrix containing m new observations and their n
+     * attributes values, which must be discrete
+     * @param from the index of the first new observation in the dataset
+     */
+    public void addObservations(double[][] dataset, int from) {
+        int words = (numberOfObservations + dataset.length - from + 63) / 64;
+        for (int i = 0; i < baseFeaturesBits.size(); i++) {
+            if (baseFeaturesBits.get(i).length < words) {
+                baseFeaturesBits.set(i, Arrays.copyOf(baseFeaturesBits.get(i), Math.max(words, 2 * baseFeaturesBits.get(i).length)));
+            }
+        }
+
+        for (int obs = from; obs < dataset.length; obs++) {
+            if (!levels.isEmpty() && dataset[obs].length != levels.size()) {
+                throw new IllegalArgumentException("All observations must have the same number of attributes");
+            }
+            while (levels.size() < dataset[obs].length) {
+                levels.add(new HashMap<Double, Integer>());
+            }
+            int[] features = new int[dataset[obs].length];
+            for (int attr = 0; attr < dataset[obs].length; attr++) {
+                double level = dataset[obs][attr];
+                Integer index = levels.get(attr).get(level);
+                if (index == null) {
+                    index = baseFeatures.size();
+                    levels.get(attr).put(level, index);
+                    baseFeatures.add(new DrivingFeature(String.format("%d = %f", attr, level), new BitSet()));
+                    baseFeaturesBits.add(new long[Math.max(1, words)]);
+                }
+                baseFeatures.get(index).getMatches().set(numberOfObservations);
+                baseFeaturesBits.get(index)[numberOfObservations >>> 6] |= 1L << numberOfObservations;
+                features[attr] = index;
+            }
+            Arrays.sort(features);
+            observationFeatures.add(features);
+            numberOfObservations++;
+        }
+    }
+
+    /**
+     * Mines the features and compound features that surpass the support and
+     * confidence thresholds in all the observations added so far
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param fConfidenceThreshold The threshold for forward confidence
+     * @param maxLength the maximum length of a compound feature
+     */
+    @Override
+    public void run(BitSet behavioral, double supportThreshold, double fConfidenceThreshold, int maxLength) {
+        this.supportThreshold = supportThreshold;
+
+        long t0 = System.currentTimeMillis();
+
+        System.out.println("...[Incremental] size of the input matrix: " + numberOfObservations + " X " + baseFeatures.size());
+
+        int cnt_S = countBehavioral(behavioral);
+        Map<BitSet, int[]> behavioralCounts = countBehavioralMatches(behavioral, maxLength);
+
+        viableFeatures = new ArrayList<>();
+        double[] metrics = new double[4];
+        for (Map.Entry<BitSet, int[]> entry : behavioralCounts.entrySet()) {
+            int cnt_SF = entry.getValue()[0];
+            if (cnt_SF / (double) numberOfObservations <= supportThreshold) {
+                continue;
+            }
+            computeMetrics(cnt_SF, countMatches(entry.getKey()), cnt_S, metrics, 0);
+            if (!Double.isNaN(metrics[0]) && metrics[2] > fConfidenceThreshold) {
+                viableFeatures.add(new CompoundFeature(entry.getKey(), metrics[0], metrics[1], metrics[2], metrics[3]));
+            }
+        }
+        Collections.sort(viableFeatures, new Comparator<CompoundFeature>() {
+            @Override
+            public int compare(CompoundFeature f1, CompoundFeature f2) {
+                return compareCombos(f1.getMatches(), f2.getMatches());
+            }
+        });
+
+        long t1 = System.currentTimeMillis();
+
+        Logger.getGlobal().finer(
+                String.format("...[Incremental] evaluation done in: %.2f sec, with %d features found", (t1 - t0) / 1000., viableFeatures.size()));
+    }
+
+    /**
+     * Mines the top k features according to the specified metric in all the
+     * observations added so far. Only the features whose bound on the metric
+     * reaches the k-th best feature have their matches updated.
+     *
+     * @param behavioral a BitSet containing information about which
+     * observations are behavioral (1) and which are not (0).
+     * @param supportThreshold The threshold for support
+     * @param maxLength the maximum length of a compound feature
+     * @param k the number of features to mine
+     * @param metric the metric used to rank the features
+     */
+    @Override
+    public void runTopK(BitSet behavioral, double supportThreshold, int maxLength, int k, FeatureMetric metric) {
+        this.supportThreshold = supportThreshold;
+
+        long t0 = System.currentTimeMillis();
+
+        System.out.println("...[Incremental] size of the input matrix: " + numberOfObservations + " X " + baseFeatures.size());
+
+        int cnt_S = countBehavioral(behavioral);
+        Map<BitSet, int[]> behavioralCounts = countBehavioralMatches(behavioral, maxLength);
+
+        //bound the metric of each feature with the matches counted so far
+        List<BitSet> candidates = new ArrayList<>();
+        final Map<BitSet, Double> bounds = new HashMap<>();
+        double[] metrics = new double[4];
+        for (Map.Entry<BitSet, int[]> entry : behavioralCounts.entrySet()) {
+            int cnt_SF = entry.getValue()[0];
+            if (cnt_SF / (double) numberOfObservations <= supportThreshold) {
+                continue;
+            }
+            MatchCount matchCount = matchCounts.get(entry.getKey());
+            computeMetrics(cnt_SF, Math.max(cnt_SF, matchCount == null ? 0 : matchCount.count), cnt_S, metrics, 0);
+            candidates.add(entry.getKey());
+            bounds.put(entry.getKey(), metrics[metricIndex(metric)]);
+        }
+        Collections.sort(candidates, new Comparator<BitSet>() {
+            @Override
+            public int compare(BitSet c1, BitSet c2) {
+                return Double.compare(bounds.get(c2), bounds.get(c1));
+            }
+        });
+
+        //the head of the queue is the worst of the best features found so far
+        Comparator<CompoundFeature> rank = rankComparator(metric);
+        PriorityQueue<CompoundFeature> best = new PriorityQueue<>(Math.max(1, k), Collections.reverseOrder(rank));
+        int updated = 0;
+        for (BitSet candidate : candidates) {
+            if (best.size() >= k && (k <= 0 || bounds.get(candidate) < metricValue(best.peek(), metric))) {
+                break;
+            }
+            computeMetrics(behavioralCounts.get(candidate)[0], countMatches(candidate), cnt_S, metrics, 0);
+            updated++;
+            if (Double.isNaN(metrics[0])) {
+                continue;
+            }
+            best.add(new CompoundFeature(candidate, metrics[0], metrics[1], metrics[2], metrics[3]));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        viableFeatures = new ArrayList<>(best);
+        Collections.sort(viableFeatures, rank);
+
+        long t1 = System.currentTimeMillis();
+
+        Logger.getGlobal().finer(
+                String.format("...[Incremental] top %d evaluation done in: %.2f sec, with %d of %d features updated",
+                        k, (t1 - t0) / 1000., updated, candidates.size()));
+    }
+
+    /**
+     * Counts the behavioral observations
+     */
+    private int countBehavioral(BitSet behavioral) {
+        int cnt_S = 0;
+        for (int obs = behavioral.nextSetBit(0); obs != -1 && obs < numberOfObservations; obs = behavioral.nextSetBit(obs + 1)) {
+            cnt_S++;
+        }
+        return cnt_S;
+    }
+
+    /**
+     * Counts the behavioral observations matching each compound feature of
+     * the behavioral observations
+     */
+    private Map<BitSet, int[]> countBehavioralMatches(BitSet behavioral, int maxLength) {
+        Map<BitSet, int[]> out = new HashMap<>();
+        int[] combo = new int[Math.max(1, maxLength)];
+        for (int obs = behavioral.nextSetBit(0); obs != -1 && obs < numberOfObservations; obs = behavioral.nextSetBit(obs + 1)) {
+            enumerate(observationFeatures.get(obs), 0, combo, 0, out);
+        }
+        return out;
+    }
+
+    /**
+     * The index of a metric in the array filled by computeMetrics
+     */
+    private static int metricIndex(FeatureMetric metric) {
+        switch (metric) {
+            case SUPPORT:
+                return 0;
+            case LIFT:
+                return 1;
+            case FCONFIDENCE:
+                return 2;
+            case RCONFIDENCE:
+                return 3;
+            default:
+                throw new UnsupportedOperationException("unknown mode");
+        }
+    }
+
+    /**
+     * Counts every combination of the base features of a behavioral
+     * observation up to the maximum length
+     */
+    private void enumerate(int[] features, int start, int[] combo, int depth, Map<BitSet, int[]> counts) {
+        for (int i = start; i < features.length; i++) {
+            combo[depth] = features[i];
+            BitSet key = new BitSet(baseFeatures.size());
+            for (int j = 0; j <= depth; j++) {
+                key.set(combo[j]);
+            }
+            int[] count = counts.get(key);
+            if (count == null) {
+                counts.put(key, new int[]{1});
+            } else {
+                count[0]++;
+            }
+            if (depth + 1 < combo.length) {
+                enumerate(features, i + 1, combo, depth + 1, counts);
+            }
+        }
+    }
+
+    /**
+     * Counts the observations matching a compound feature. The complete words
+     * of observations are only counted once.
+     */
+    private int countMatches(BitSet featureCombo) {
+        MatchCount matchCount = matchCounts.get(featureCombo);
+        if (matchCount == null) {
+            matchCount = new MatchCount();
+            matchCounts.put(featureCombo, matchCount);
+        }
+        int fullWords = numberOfObservations >>> 6;
+        for (; matchCount.words < fullWords; matchCount.words++) {
+            matchCount.count += Long.bitCount(intersect(featureCombo, matchCount.words));
+        }
+        if ((numberOfObservations & 63) != 0) {
+            return matchCount.count + Long.bitCount(intersect(featureCombo, fullWords));
+        }
+        return matchCount.count;
+    }
+
+    private long intersect(BitSet featureCombo, int word) {
+        long out = -1L;
+        for (int j = featureCombo.nextSetBit(0); j != -1; j = featureCombo.nextSetBit(j + 1)) {
+            out &= baseFeaturesBits.get(j)[word];
+        }
+        return out;
+    }
+
+    /**
+     * The number of observations in the complete words counted so far
+     */
+    private static class MatchCount {
+
+        private int words;
+
+        private int count;
+    }
+}
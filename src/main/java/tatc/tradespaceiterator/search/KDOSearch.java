@@ -10,8 +10,6 @@ import java.io.DataOutputStream;
 import seakers.aos.aos.AOS;
 import seakers.aos.operatorselectors.replacement.OperatorReplacementStrategy;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
@@ -19,9 +17,13 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import knowledge.operator.EOSSOperatorCreator;
@@ -29,11 +31,17 @@ import org.moeaframework.algorithm.AbstractEvolutionaryAlgorithm;
 import org.moeaframework.core.Algorithm;
 import org.moeaframework.core.Population;
 import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variable;
 import org.moeaframework.core.Variation;
 import org.moeaframework.core.operator.CompoundVariation;
 import org.moeaframework.core.operator.OnePointCrossover;
 import org.moeaframework.util.TypedProperties;
 import tatc.ResultIO;
+import tatc.architecture.variable.IntegerVariable;
+import tatc.architecture.variable.RealVariable;
+import tatc.tradespaceiterator.Checkpointer;
+import tatc.tradespaceiterator.SolutionHistory;
+import tatc.tradespaceiterator.StandardFormProblemGAWalker;
 
 /**
  * This method applies data mining and innovization to increase the efficiency
@@ -73,6 +81,17 @@ public class KDOSearch implements Callable<Algorithm> {
      */
     private final ResultIO lableIO;
 
+    /**
+     * Writes the labels and the features of each operator replacement to CSV
+     * files off the search thread. Null if the files are not saved
+     */
+    private final ExecutorService dumpWriter;
+
+    /**
+     * The minimum number of behavioral solutions matched by a mined feature
+     */
+    private final int minMatches;
+
     /**
      * operator creator for EOSS assignment problems
      */
@@ -83,6 +102,29 @@ public class KDOSearch implements Callable<Algorithm> {
      */
     private final OperatorReplacementStrategy ops;
 
+    /**
+     * snaps the planes and phasing decisions of the solutions to discrete
+     * levels. Null if the problem is not a Walker constellation
+     */
+    private final StandardFormProblemGAWalker walker;
+
+    /**
+     * mines the driving features incrementally across the operator
+     * replacements. Null if the features are mined from scratch
+     */
+    private IncrementalFeatureMining incrementalMining;
+
+    /**
+     * saves the checkpoints of the search. Null if no checkpoints are saved
+     */
+    private Checkpointer checkpointer;
+
+    /**
+     * the checkpoint the search is resumed from. Null if the search is not
+     * resumed
+     */
+    private Checkpointer.Checkpoint resumed;
+
     /**
      * Constructs new search and automatically initializes Jess
      *
@@ -99,7 +141,19 @@ public class KDOSearch implements Callable<Algorithm> {
         this.savePath = savePath;
         this.name = name;
         this.dataLabeler = dataLabeler;
+        this.walker = alg.getProblem() instanceof StandardFormProblemGAWalker
+                ? (StandardFormProblemGAWalker) alg.getProblem() : null;
         this.lableIO = new ResultIO();
+        if (Boolean.parseBoolean(System.getProperty("tatc.miningDumps", "false"))) {
+            this.dumpWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "mining-dump-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.dumpWriter = null;
+        }
+        this.minMatches = Math.max(1, Integer.parseInt(System.getProperty("tatc.miningMinMatches", "2")));
         this.ops = ops;
         if (!(ops.getOperatorCreator() instanceof TATCOperatorCreator)) {
             throw new IllegalArgumentException(String.format("Expected TATCOperatorCreator as operator creation strategy. Found %s", ops.getOperatorCreator().getClass().getSimpleName()));
@@ -108,6 +162,20 @@ public class KDOSearch implements Callable<Algorithm> {
         }
     }
 
+    /**
+     * Sets the checkpointer of the search and the checkpoint the search is
+     * resumed from. The population and archive of the checkpoint must already
+     * be restored in the algorithm.
+     *
+     * @param checkpointer saves the checkpoints of the search
+     * @param resumed the checkpoint the search is resumed from. Null if the
+     * search is not resumed
+     */
+    public void setCheckpointer(Checkpointer checkpointer, Checkpointer.Checkpoint resumed) {
+        this.checkpointer = checkpointer;
+        this.resumed = resumed;
+    }
+
     @Override
     public Algorithm call() throws Exception {
         int populationSize = (int) properties.getDouble("populationSize", 2);
@@ -121,151 +189,325 @@ public class KDOSearch implements Callable<Algorithm> {
         /*
          * Keep track of each solution that is ever created, but only keep the unique ones
          */
-        HashSet<Solution> allSolutions = new HashSet();
-        Population initPop = ((AbstractEvolutionaryAlgorithm) alg).getPopulation();
-        for (int i = 0; i < initPop.size(); i++) {
-            initPop.get(i).setAttribute("NFE", 0);
-            allSolutions.add(initPop.get(i));
+        SolutionHistory history = SolutionHistory.create(alg.getProblem());
+        int nfeOffset = 0;
+        if (resumed != null) {
+            nfeOffset = resumed.getNFE();
+            history.restore(resumed.getHistory());
+            for (Solution solution : history.solutions()) {
+                dataLabeler.update(solution);
+            }
         }
+        addToHistory(history, ((AbstractEvolutionaryAlgorithm) alg).getPopulation(), nfeOffset);
 
         /*
          * Count the number of times the algorithm is reset
          */
         int operatorResetCount = 0;
 
-        while (!alg.isTerminated() && (alg.getNumberOfEvaluations() < maxEvaluations)) {
-            Population population = ((AbstractEvolutionaryAlgorithm) alg).getPopulation();
-
-            int nFuncEvals = alg.getNumberOfEvaluations();
-
-            /*
-             * Check to see if the operators need to be replaced
-             */
-            if (ops.checkTrigger(alg)) {
-                System.out.println(String.format("Operator replacement event triggered at %d func eval", nFuncEvals));
+        /*
+         * Mines the knowledge and creates the new operators off the search
+         * thread. The operators being created are null if no mining is running
+         */
+        ExecutorService miningExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "kdo-mining");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<Collection<Variation>> pendingOperators = null;
 
-                /*
-                 * Reset the algorithm properties
-                 */
-                alg.getOperatorSelector().reset();
+        try {
+            while (!alg.isTerminated() && (nfeOffset + alg.getNumberOfEvaluations() < maxEvaluations)) {
+                alg.step();
+                Population population = ((AbstractEvolutionaryAlgorithm) alg).getPopulation();
+                int nFuncEvals = nfeOffset + alg.getNumberOfEvaluations();
+                addToHistory(history, population, nFuncEvals);
+                if (checkpointer != null && checkpointer.isDue(nFuncEvals)) {
+                    checkpointer.save(nFuncEvals, population, ((AbstractEvolutionaryAlgorithm) alg).getArchive(),
+                            history, alg.getOperatorSelector(), alg.getOperatorSelector().getOperators());
+                }
 
                 /*
-                 * Remove inefficient operators from the pool
+                 * Swap in the operators created from the mined knowledge once
+                 * they are ready. The operator selector is only changed here,
+                 * between two steps of the search
                  */
-                Collection<Variation> removedOperators = ops.removeOperators(alg);
-                for (Variation operators : removedOperators) {
-                    if (operators instanceof CompoundVariation) {
-                        System.out.println(String.format("Removed: %s", ((CompoundVariation) operators).getName()));
-                    } else {
-                        System.out.println(String.format("Removed: %s", operators.toString()));
+                if (pendingOperators != null && pendingOperators.isDone()) {
+                    Collection<Variation> newOperators = null;
+                    try {
+                        newOperators = pendingOperators.get();
+                    } catch (ExecutionException ex) {
+                        Logger.getLogger(KDOSearch.class.getName()).log(Level.SEVERE, null, ex);
                     }
+                    pendingOperators = null;
+                    if (newOperators != null) {
+                        System.out.println(String.format("Operators replaced at %d func eval", nFuncEvals));
+                        replaceOperators(newOperators);
+                        operatorResetCount++;
+                    }
+                } else if (pendingOperators == null && ops.checkTrigger(alg)) {
+                    /*
+                     * Check to see if the operators need to be replaced
+                     */
+                    System.out.println(String.format("Operator replacement event triggered at %d func eval", nFuncEvals));
+
+                    /*
+                     * Mine the knowledge from a snapshot of the history while the
+                     * search keeps going with the current operators. Only the
+                     * records of the history and the front of the labeler are
+                     * copied here, since both keep being updated by the search.
+                     * The solutions are read and labeled on the mining thread
+                     */
+                    SolutionHistory.Snapshot snapshot = history.snapshot();
+                    AbstractPopulationLabeler labeler = dataLabeler.copy();
+                    int resetCount = operatorResetCount;
+                    pendingOperators = miningExecutor.submit(new Callable<Collection<Variation>>() {
+                        @Override
+                        public Collection<Variation> call() throws Exception {
+                            return mineOperators(history, snapshot, labeler, resetCount, nOpsToAdd);
+                        }
+                    });
                 }
+            }
+        } finally {
+            //the operators mined after the end of the search are not used
+            miningExecutor.shutdownNow();
+        }
 
-                Population allSolnPop = new Population(allSolutions);
+        alg.step();
 
-                /*
-                 * Labels all the solutions in the history with an integer 0
-                 * and all the solutions in the current run with integer 1.
-                 */
-                dataLabeler.label(allSolnPop);
-                String labledDataFile = savePath + File.separator + name + "_" + String.valueOf(operatorResetCount) + "_labels.csv";
-                lableIO.saveLabels(allSolnPop, labledDataFile, ",");
+        System.out.println("Finished running KDO.");
+        //complete the results appended by the history
+        history.flush();
+        history.close();
+        if (dumpWriter != null) {
+            dumpWriter.shutdown();
+            dumpWriter.awaitTermination(1, TimeUnit.MINUTES);
+        }
 
-                String featureDataFile = savePath + File.separator + name + "_" + String.valueOf(operatorResetCount) + "_features.csv";
+        sendOperatorsToKB("http://tatckb.org/", "agency46");
 
-                /*
-                 * behavioral are the ones that lie on the pareto front and the
-                 * ones we are interested in. They have the label 1.
-                 */
-                ArrayList<Boolean> behavioral = new ArrayList<>();
-                ArrayList<double[]> datasetValues = new ArrayList<>();
-
-                File file = new File(labledDataFile);
-                try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                    String line = br.readLine(); //skip this line because it's the header
-                    String nextLine = br.readLine();
-                    while (nextLine != null) {
-                        String[] str = nextLine.split(",");
-                        if (Integer.parseInt(str[0]) == 1) {
-                            behavioral.add(true);
-                        } else {
-                            behavioral.add(false);
-                        }
+        return alg;
+    }
 
-                        /*
-                         * since the last two columns are metrics and not
-                         * attributes, we will skip adding the metrics in the
-                         * attributes list
-                         */
-                        //TODO: also add planes and phasing
-                        double[] attrb = new double[(str.length - 4) - 1];
-                        for (int i = 1; i < str.length - 4; i++) {
-                            attrb[i - 1] = Double.parseDouble(str[i]);
-                        }
-                        datasetValues.add(attrb);
-                        nextLine = br.readLine();
-                    }
-                } catch (IOException ex) {
-                    Logger.getLogger(KDOSearch.class.getName()).log(Level.SEVERE, null, ex);
-                }
+    /**
+     * Mines the driving features of the solutions found so far and creates
+     * new operators from them. This runs off the search thread, so it must
+     * not touch the algorithm.
+     *
+     * @param history the history of the solutions found so far
+     * @param snapshot the snapshot of the history taken at the trigger
+     * @param labeler the copy of the labeler taken at the trigger
+     * @param operatorResetCount the number of operator replacements so far
+     * @param nOpsToAdd the number of operators to create
+     * @return the new operators or null if no solution is behavioral or
+     * too few features are mined
+     */
+    private Collection<Variation> mineOperators(SolutionHistory history, SolutionHistory.Snapshot snapshot,
+            AbstractPopulationLabeler labeler, int operatorResetCount, int nOpsToAdd) {
+        /*
+         * Labels all the solutions in the history with an integer 0
+         * and all the solutions in the current run with integer 1.
+         */
+        Population allSolnPop = history.toPopulation(snapshot);
+        labeler.label(allSolnPop);
 
-                double[][] dataset = new double[datasetValues.size()][datasetValues.get(0).length];
-                BitSet behavioralSet = new BitSet(behavioral.size());
+        /*
+         * behavioral are the ones that lie on the pareto front and the
+         * ones we are interested in. They have the label 1.
+         */
+        BitSet behavioralSet = new BitSet(allSolnPop.size());
+        double[][] dataset = toDataset(allSolnPop, behavioralSet);
+        if (behavioralSet.isEmpty()) {
+            //no feature drives the search and no operator can be created
+            return null;
+        }
 
-                for (int i = 0; i < behavioral.size(); i++) {
-                    dataset[i] = datasetValues.get(i);
-                    behavioralSet.set(i, behavioral.get(i));
-                }
+        /*
+         * Start running the data mining and mRMR algorithms. The forward
+         * confidence does not bound the features that can be mined, so the
+         * search is pruned by the support of the features: a feature must
+         * match at least minMatches behavioral solutions
+         */
+        FeatureMiningEngine engine = createMiningEngine(dataset);
+        double supportThreshold = (minMatches - 1) / (double) dataset.length;
+        engine.runTopK(behavioralSet, supportThreshold, 3, 20, FeatureMetric.FCONFIDENCE);
+        List<DrivingFeature> topFeatures = engine.getTopFeatures(20, FeatureMetric.FCONFIDENCE);
+        List<DrivingFeature> bestFeatures = MRMR.minRedundancyMaxRelevance(dataset.length, behavioralSet, topFeatures, 3);
+        saveMiningDumps(allSolnPop, bestFeatures, operatorResetCount);
+        if (bestFeatures.size() < nOpsToAdd) {
+            //not enough features pass the support threshold to create the operators
+            return null;
+        }
 
-                /*
-                 * Start running the data mining and mRMR algorithms
-                 */
-                AssociationRuleMining arm = new AssociationRuleMining(dataset, false);
-                arm.run(behavioralSet, 0.0, 0.0, 3);
-                List<DrivingFeature> topFeatures = arm.getTopFeatures(20, FeatureMetric.FCONFIDENCE);
-                List<DrivingFeature> bestFeatures = MRMR.minRedundancyMaxRelevance(datasetValues.size(), behavioralSet, topFeatures, 3);
-                lableIO.saveFeatures(bestFeatures, featureDataFile, ",");
+        /*
+         * Start the feature learning process
+         */
+        operatorCreator.learnFeatures(bestFeatures);
 
-                /*
-                 * Start the feature learning process
-                 */
-                operatorCreator.learnFeatures(new File(featureDataFile));
+        /*
+         * Start creating new operators based on features learned
+         */
+        Collection<Variation> newOperators = new ArrayList<>(nOpsToAdd);
+        for (Variation operator : operatorCreator.createOperator(nOpsToAdd)) {
+            StringBuilder sb = new StringBuilder();
+            OnePointCrossover cross = new OnePointCrossover(properties.getDouble("crossoverProbability", 0.0));
+            sb.append(cross.getClass().getSimpleName()).append(" + ");
+            sb.append(((CompoundVariation) operator).getName());
+            CompoundVariation repair = new CompoundVariation(cross, operator);
+            repair.setName(sb.toString());
+            newOperators.add(repair);
+        }
+        return newOperators;
+    }
 
-                /*
-                 * Start creating new operators based on features learned
-                 */
-                Collection<Variation> newOperators = operatorCreator.createOperator(nOpsToAdd);
-
-                for (Variation operator : newOperators) {
-                    StringBuilder sb = new StringBuilder();
-                    OnePointCrossover cross = new OnePointCrossover(properties.getDouble("crossoverProbability", 0.0));
-                    sb.append(cross.getClass().getSimpleName()).append(" + ");
-                    sb.append(((CompoundVariation) operator).getName());
-                    CompoundVariation repair = new CompoundVariation(cross, operator);
-                    repair.setName(sb.toString());
-                    alg.getOperatorSelector().addOperator(repair);
-                }
+    /**
+     * Replaces the inefficient operators of the pool with the new operators
+     *
+     * @param newOperators the operators created from the mined knowledge
+     */
+    private void replaceOperators(Collection<Variation> newOperators) {
+        /*
+         * Reset the algorithm properties
+         */
+        alg.getOperatorSelector().reset();
 
-                alg.getOperatorSelector().reset();
-                for (Variation op : alg.getOperatorSelector().getOperators()) {
-                    if (op instanceof CompoundVariation) {
-                        System.out.println(String.format("Using: %s", ((CompoundVariation) op).getName()));
-                    } else {
-                        System.out.println(String.format("Using: %s", ((CompoundVariation) op).getName()));
-                    }
-                }
+        /*
+         * Remove inefficient operators from the pool
+         */
+        Collection<Variation> removedOperators = ops.removeOperators(alg);
+        for (Variation operators : removedOperators) {
+            if (operators instanceof CompoundVariation) {
+                System.out.println(String.format("Removed: %s", ((CompoundVariation) operators).getName()));
+            } else {
+                System.out.println(String.format("Removed: %s", operators.toString()));
+            }
+        }
+
+        for (Variation operator : newOperators) {
+            alg.getOperatorSelector().addOperator(operator);
+        }
 
-                operatorResetCount++;
+        alg.getOperatorSelector().reset();
+        for (Variation op : alg.getOperatorSelector().getOperators()) {
+            if (op instanceof CompoundVariation) {
+                System.out.println(String.format("Using: %s", ((CompoundVariation) op).getName()));
+            } else {
+                System.out.println(String.format("Using: %s", ((CompoundVariation) op).getName()));
             }
         }
+    }
 
-        alg.step();
+    /**
+     * Adds the solutions of the population to the history. The labeler is
+     * updated with the solutions that were not in the history yet.
+     */
+    private void addToHistory(SolutionHistory history, Population population, int nfe) {
+        for (Solution solution : population) {
+            if (history.add(solution, nfe)) {
+                dataLabeler.update(solution);
+            }
+        }
+    }
 
-        System.out.println("Finished running KDO.");
+    /**
+     * Builds the dataset mined for driving features from the labeled
+     * solutions. Each row holds the decision values of a solution. The
+     * solutions without a label are skipped.
+     *
+     * @param population the labeled solutions
+     * @param behavioral the set where the rows of the solutions with the
+     * label 1 are set
+     * @return the dataset
+     */
+    private double[][] toDataset(Population population, BitSet behavioral) {
+        List<double[]> rows = new ArrayList<>(population.size());
+        for (Solution solution : population) {
+            if (!solution.hasAttribute(PopulationLabeler.LABELATTRIB)) {
+                continue;
+            }
+            if (((Number) solution.getAttribute(PopulationLabeler.LABELATTRIB)).intValue() == 1) {
+                behavioral.set(rows.size());
+            }
 
-        sendOperatorsToKB("http://tatckb.org/", "agency46");
+            /*
+             * the last two decisions are real valued. The planes and phasing
+             * of a Walker constellation are mined as the steps they decode
+             * to, and the last two decisions of other problems are not mined
+             */
+            double[] attrb;
+            if (walker != null) {
+                attrb = new double[solution.getNumberOfVariables()];
+                for (int i = 0; i < attrb.length - 2; i++) {
+                    attrb[i] = decisionValue(solution.getVariable(i));
+                }
+                double[] planesAndPhasing = walker.snapPlanesAndPhasing(solution);
+                attrb[attrb.length - 2] = planesAndPhasing[0];
+                attrb[attrb.length - 1] = planesAndPhasing[1];
+            } else {
+                attrb = new double[solution.getNumberOfVariables() + solution.getNumberOfObjectives() - 4];
+                for (int i = 0; i < attrb.length; i++) {
+                    attrb[i] = decisionValue(solution.getVariable(i));
+                }
+            }
+            rows.add(attrb);
+        }
+        return rows.toArray(new double[rows.size()][]);
+    }
 
-        return alg;
+    /**
+     * Creates the feature mining engine given by the tatc.miningEngine
+     * property (APRIORI, ECLAT or INCREMENTAL, the default). The incremental
+     * engine is kept across the operator replacements and only the observations added
+     * to the history since the previous replacement are added to it.
+     *
+     * @param dataset the dataset to mine
+     * @return the mining engine
+     */
+    private FeatureMiningEngine createMiningEngine(double[][] dataset) {
+        String engine = System.getProperty("tatc.miningEngine", "INCREMENTAL");
+        switch (engine.toUpperCase()) {
+            case "APRIORI":
+                return new AssociationRuleMining(dataset, false);
+            case "ECLAT":
+                return new EclatMining(dataset, false);
+            case "INCREMENTAL":
+                if (incrementalMining == null) {
+                    incrementalMining = new IncrementalFeatureMining();
+                }
+                //the history only grows, so the rows of the previous replacements come first
+                incrementalMining.addObservations(dataset, incrementalMining.getNumberOfObservations());
+                return incrementalMining;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown mining engine %s. Expected APRIORI, ECLAT or INCREMENTAL.", engine));
+        }
+    }
+
+    private static double decisionValue(Variable variable) {
+        if (variable instanceof IntegerVariable) {
+            return ((IntegerVariable) variable).getValue();
+        } else if (variable instanceof RealVariable) {
+            return ((RealVariable) variable).getValue();
+        } else {
+            return Double.parseDouble(variable.toString());
+        }
+    }
+
+    /**
+     * Saves the labeled solutions and the driving features of an operator
+     * replacement to CSV files if the tatc.miningDumps property is true. The
+     * files are written on a separate thread so the search is not stalled.
+     */
+    private void saveMiningDumps(Population labeled, List<DrivingFeature> features, int operatorResetCount) {
+        if (dumpWriter == null) {
+            return;
+        }
+        String labledDataFile = savePath + File.separator + name + "_" + String.valueOf(operatorResetCount) + "_labels.csv";
+        String featureDataFile = savePath + File.separator + name + "_" + String.valueOf(operatorResetCount) + "_features.csv";
+        dumpWriter.submit(() -> {
+            lableIO.saveLabels(labeled, labledDataFile, ",");
+            lableIO.saveFeatures(features, featureDataFile, ",");
+        });
     }
 
     /**
@@ -6,16 +6,21 @@
 package tatc.tradespaceiterator.search;
 
 /**
+ * Minimum redundancy maximum relevance selection of the driving features. The
+ * relevance of each feature is computed once, and the mutual information
+ * between each feature and a selected feature is computed once when the
+ * feature is selected and accumulated in the redundancy of each feature. The
+ * counts are popcounts over the 64-bit words of the matches of the features.
  *
  * @author Nozomi
  */
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.hipparchus.util.FastMath;
 
 public class MRMR {
@@ -25,14 +30,28 @@ public class MRMR {
         long t0 = System.currentTimeMillis();
         Logger.getGlobal().finer("...[mRMR] running mRMR");
         
-        //create the bitset saying which solutions have the features
-        BitSet[] dataFeatureMat = new BitSet[features.size()];
+        //create the words saying which solutions have the features
+        int numberOfWords = (numberOfObservations + 63) / 64;
+        long[][] dataFeatureMat = new long[features.size()][];
+        int[] cardinalities = new int[features.size()];
         int bi = 0;
         for (DrivingFeature feat : features) {
-            dataFeatureMat[bi] = feat.getMatches();
+            dataFeatureMat[bi] = Arrays.copyOf(feat.getMatches().toLongArray(), numberOfWords);
+            cardinalities[bi] = feat.getMatches().cardinality();
             bi++;
         }
-
+        long[] labelWords = Arrays.copyOf(label.toLongArray(), numberOfWords);
+        int labelCardinality = label.cardinality();
+
+        //data relevancy
+        double[] relevance = new double[features.size()];
+        IntStream.range(0, features.size()).parallel().forEach(i -> {
+            relevance[i] = computeMutualInformation(dataFeatureMat[i], cardinalities[i], labelWords, labelCardinality, numberOfObservations);
+        });
+
+        //sum of the data redundancy with the selected features
+        double[] redundancy = new double[features.size()];
+        boolean[] selected = new boolean[features.size()];
         ArrayList<Integer> selectedFeatures = new ArrayList<>();
 
         while (selectedFeatures.size() < finalNFeatures) {
@@ -43,19 +62,12 @@ public class MRMR {
             // Implement incremental search for each feature
             for (int i = 0; i < features.size(); i++) {
 
-                if (selectedFeatures.contains(i)) {
+                if (selected[i]) {
                     continue;
                 }
 
-                //data relevancy 
-                double D = computeMutualInformation(dataFeatureMat[i], label, numberOfObservations);
-                
-                //data redundancy
-                double R = 0;
-                for (int j : selectedFeatures) {
-                    R = R + computeMutualInformation(dataFeatureMat[i], dataFeatureMat[j], numberOfObservations);
-                }
-
+                double D = relevance[i];
+                double R = redundancy[i];
                 if (!selectedFeatures.isEmpty()) {
                     R /= (double) selectedFeatures.size();
                 }
@@ -65,7 +77,23 @@ public class MRMR {
                     bestFeatInd = i;
                 }
             }
+            if (bestFeatInd < 0) {
+                //all the features are selected
+                break;
+            }
             selectedFeatures.add(bestFeatInd);
+            selected[bestFeatInd] = true;
+
+            //add the redundancy with the new feature to the remaining features
+            int j = bestFeatInd;
+            if (selectedFeatures.size() < finalNFeatures) {
+                IntStream.range(0, features.size()).parallel().forEach(i -> {
+                    if (!selected[i]) {
+                        redundancy[i] += computeMutualInformation(dataFeatureMat[i], cardinalities[i],
+                                dataFeatureMat[j], cardinalities[j], numberOfObservations);
+                    }
+                });
+            }
         }
 
         ArrayList<DrivingFeature> out = new ArrayList<>();
@@ -79,38 +107,36 @@ public class MRMR {
         return out;
     }
 
-    private static double computeMutualInformation(BitSet set1, BitSet set2, int numberOfObservations) {
-        double x1 = set1.cardinality();
-        double x2 = set2.cardinality();
-        BitSet bx1x2 = (BitSet) set1.clone();
-        bx1x2.and(set2);
-        double x1x2 = bx1x2.cardinality();
-
-        BitSet bnx1x2 = (BitSet) set1.clone();
-        bnx1x2.flip(0, numberOfObservations);
-        bnx1x2.and(set2);
-        double nx1x2 = bnx1x2.cardinality();
-
-        BitSet bx1nx2 = (BitSet) set2.clone();
-        bx1nx2.flip(0, numberOfObservations);
-        bx1nx2.and(set1);
-        double x1nx2 = bx1nx2.cardinality();
-
-        BitSet bnx1 = (BitSet) set1.clone();
-        BitSet bnx2 = (BitSet) set2.clone();
-        bnx1.flip(0, numberOfObservations);
-        bnx2.flip(0, numberOfObservations);
-        bnx1.and(bnx2);
-        double nx1nx2 = bnx1.cardinality();
-
-        double p_x1 = BigDecimal.valueOf(x1 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_nx1 = BigDecimal.valueOf(1 - p_x1).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_x2 = BigDecimal.valueOf(x2 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_nx2 = BigDecimal.valueOf(1 - p_x2).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_x1x2 = BigDecimal.valueOf(x1x2 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_nx1x2 = BigDecimal.valueOf(nx1x2 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_x1nx2 = BigDecimal.valueOf(x1nx2 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
-        double p_nx1nx2 = BigDecimal.valueOf(nx1nx2 / numberOfObservations).setScale(3, RoundingMode.FLOOR).doubleValue();
+    /**
+     * Computes the mutual information of two binary variables. The
+     * probabilities are truncated to three decimals.
+     *
+     * @param set1 the words of the first variable
+     * @param x1 the number of observations where the first variable is set
+     * @param set2 the words of the second variable
+     * @param x2 the number of observations where the second variable is set
+     * @param numberOfObservations the number of observations
+     * @return the mutual information
+     */
+    private static double computeMutualInformation(long[] set1, int x1, long[] set2, int x2, int numberOfObservations) {
+        int x1x2 = 0;
+        for (int w = 0; w < set1.length; w++) {
+            x1x2 += Long.bitCount(set1[w] & set2[w]);
+        }
+        int nx1x2 = x2 - x1x2;
+        int x1nx2 = x1 - x1x2;
+        int nx1nx2 = numberOfObservations - x1 - x2 + x1x2;
+
+        int t_x1 = thousandths(x1, numberOfObservations);
+        int t_x2 = thousandths(x2, numberOfObservations);
+        double p_x1 = t_x1 / 1000.;
+        double p_nx1 = (1000 - t_x1) / 1000.;
+        double p_x2 = t_x2 / 1000.;
+        double p_nx2 = (1000 - t_x2) / 1000.;
+        double p_x1x2 = thousandths(x1x2, numberOfObservations) / 1000.;
+        double p_nx1x2 = thousandths(nx1x2, numberOfObservations) / 1000.;
+        double p_x1nx2 = thousandths(x1nx2, numberOfObservations) / 1000.;
+        double p_nx1nx2 = thousandths(nx1nx2, numberOfObservations) / 1000.;
 
         double i1, i2, i3, i4;
         //handle cases when there p(x) = 0
@@ -145,4 +171,11 @@ public class MRMR {
             return sumI;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The probability of a count truncated to three decimals, in thousandths
+     */
+    private static int thousandths(int count, int numberOfObservations) {
+        return (int) (1000L * count / numberOfObservations);
+    }
+}
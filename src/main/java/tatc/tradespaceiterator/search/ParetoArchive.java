@@ -0,0 +1,220 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package tatc.tradespaceiterator.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An incrementally maintained archive of the nondominated objective vectors
+ * (all objectives are minimized). Vectors are added one at a time as the
+ * solutions are evaluated, so the front is always up to date and never needs
+ * to be rebuilt from the history of the search.
+ *
+ * With two objectives, the front is kept as a skyline sorted by the first
+ * objective, in which the second objective decreases. Adding a vector or
+ * checking if a vector is on the front costs a logarithmic number of
+ * comparisons plus the number of vectors it dominates. With more objectives,
+ * the front is kept as a list that is scanned on every operation.
+ *
+ * @author Prachi
+ */
+public class ParetoArchive {
+
+    private final int numberOfObjectives;
+
+    /**
+     * The front of a biobjective archive: the second objective of each vector
+     * indexed by its first objective
+     */
+    private final TreeMap<Double, Double> skyline;
+
+    /**
+     * The front of an archive with more than two objectives
+     */
+    private final List<double[]> front;
+
+    public ParetoArchive(int numberOfObjectives) {
+        this.numberOfObjectives = numberOfObjectives;
+        this.skyline = new TreeMap<>();
+        this.front = new ArrayList<>();
+    }
+
+    /**
+     * Adds an objective vector to the archive. The vectors it dominates are
+     * removed from the archive.
+     *
+     * @param objectives the objective vector
+     * @return true if the vector is on the front after it was added
+     */
+    public synchronized boolean add(double[] objectives) {
+        checkLength(objectives);
+        if (numberOfObjectives == 2) {
+            return addBiobjective(objectives[0], objectives[1]);
+        }
+
+        Iterator<double[]> iter = front.iterator();
+        while (iter.hasNext()) {
+            double[] other = iter.next();
+            int flag = compare(objectives, other);
+            if (flag > 0) {
+                return false;
+            } else if (flag == 0 && Arrays.equals(objectives, other)) {
+                return true;
+            } else if (flag < 0) {
+                iter.remove();
+            }
+        }
+        front.add(objectives.clone());
+        return true;
+    }
+
+    private boolean addBiobjective(double f0, double f1) {
+        //the floor entry has the lowest second objective of all the vectors that are not worse in the first objective
+        Map.Entry<Double, Double> floor = skyline.floorEntry(f0);
+        if (floor != null) {
+            if (floor.getKey() == f0 && floor.getValue() == f1) {
+                return true;
+            }
+            if (floor.getValue() <= f1) {
+                return false;
+            }
+        }
+
+        //remove the vectors that are dominated by the new vector
+        Iterator<Map.Entry<Double, Double>> iter = skyline.tailMap(f0, true).entrySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getValue() >= f1) {
+                iter.remove();
+            } else {
+                break;
+            }
+        }
+        skyline.put(f0, f1);
+        return true;
+    }
+
+    /**
+     * Checks if an objective vector is on the front
+     *
+     * @param objectives the objective vector
+     * @return true if the vector is in the archive
+     */
+    public synchronized boolean contains(double[] objectives) {
+        checkLength(objectives);
+        if (numberOfObjectives == 2) {
+            Double f1 = skyline.get(objectives[0]);
+            return f1 != null && f1 == objectives[1];
+        }
+        for (double[] other : front) {
+            if (Arrays.equals(objectives, other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an objective vector is dominated by a vector on the front
+     *
+     * @param objectives the objective vector
+     * @return true if a vector in the archive dominates the given vector
+     */
+    public synchronized boolean isDominated(double[] objectives) {
+        checkLength(objectives);
+        if (numberOfObjectives == 2) {
+            Map.Entry<Double, Double> floor = skyline.floorEntry(objectives[0]);
+            return floor != null && floor.getValue() <= objectives[1]
+                    && !(floor.getKey() == objectives[0] && floor.getValue() == objectives[1]);
+        }
+        for (double[] other : front) {
+            if (compare(other, objectives) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return numberOfObjectives == 2 ? skyline.size() : front.size();
+    }
+
+    /**
+     * Gets the objective vectors on the front
+     *
+     * @return a copy of the objective vectors on the front
+     */
+    public synchronized List<double[]> getFront() {
+        List<double[]> out = new ArrayList<>(size());
+        if (numberOfObjectives == 2) {
+            for (Map.Entry<Double, Double> entry : skyline.entrySet()) {
+                out.add(new double[]{entry.getKey(), entry.getValue()});
+            }
+        } else {
+            for (double[] objectives : front) {
+                out.add(objectives.clone());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Copies the archive, so that the copy is not changed by the vectors
+     * added later to this archive
+     *
+     * @return a copy of the archive
+     */
+    public synchronized ParetoArchive copy() {
+        ParetoArchive out = new ParetoArchive(numberOfObjectives);
+        out.skyline.putAll(skyline);
+        for (double[] objectives : front) {
+            out.front.add(objectives.clone());
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        skyline.clear();
+        front.clear();
+    }
+
+    /**
+     * Compares two objective vectors by Pareto dominance
+     *
+     * @return -1 if a dominates b, 1 if b dominates a and 0 otherwise
+     */
+    private static int compare(double[] a, double[] b) {
+        boolean aBetter = false;
+        boolean bBetter = false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < b[i]) {
+                aBetter = true;
+            } else if (a[i] > b[i]) {
+                bBetter = true;
+            }
+            if (aBetter && bBetter) {
+                return 0;
+            }
+        }
+        if (aBetter) {
+            return -1;
+        } else if (bBetter) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private void checkLength(double[] objectives) {
+        if (objectives.length != numberOfObjectives) {
+            throw new IllegalArgumentException(String.format("Expected %d objectives. Found %d.",
+                    numberOfObjectives, objectives.length));
+        }
+    }
+}
@@ -5,34 +5,60 @@
  */
 package tatc.tradespaceiterator.search;
 
-import org.moeaframework.core.NondominatedPopulation;
 import org.moeaframework.core.Population;
 import org.moeaframework.core.Solution;
 
 /**
- * Labels all the solutions on the front as 1 and all other as 0
+ * Labels all the solutions on the front as 1 and all other as 0. The front is
+ * kept in an incremental Pareto archive that is updated with every evaluated
+ * solution, so labeling only checks if each solution is on the front. If the
+ * labeler was never updated, the front is built from the population when it is
+ * labeled.
+ *
  * @author Prachi
  */
 public class PopulationLabeler extends AbstractPopulationLabeler{
     
-    private NondominatedPopulation paretoFront;
+    private ParetoArchive paretoFront;
+
+    @Override
+    public void update(Solution individual) {
+        if (paretoFront == null) {
+            paretoFront = new ParetoArchive(individual.getNumberOfObjectives());
+        }
+        paretoFront.add(individual.getObjectives());
+    }
+
+    /**
+     * Copies the front of the labeler
+     *
+     * @return a labeler with a copy of the current front
+     */
+    @Override
+    public AbstractPopulationLabeler copy() {
+        PopulationLabeler out = new PopulationLabeler();
+        if (paretoFront != null) {
+            out.paretoFront = paretoFront.copy();
+        }
+        return out;
+    }
 
     @Override
     protected void process(Population population) {
         super.process(population);
-        paretoFront = new NondominatedPopulation(population);
-        for (Solution individual : paretoFront) {
-            individual.setAttribute(LABELATTRIB, 1);
+        if (paretoFront == null && !population.isEmpty()) {
+            for (Solution individual : population) {
+                update(individual);
+            }
         }
     }
 
     @Override
     protected int label(Solution individual) {
-        //since all nondominated solutions will have been labeled already, only look for the unlabeled ones
-        if (!individual.hasAttribute(LABELATTRIB)) {
-            return 0;
-        }else{
+        if (paretoFront != null && paretoFront.contains(individual.getObjectives())) {
             return 1;
+        }else{
+            return 0;
         }
     }
 }
@@ -0,0 +1,302 @@
+package tatc.tradespaceiterator.search;
+
+import org.moeaframework.core.Solution;
+import tatc.tradespaceiterator.ScreeningEvaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * k-nearest neighbor regression of the objectives of the architectures on
+ * their decoded parameters. The model is trained online with the solutions
+ * that are truly evaluated during the search and predicts the objectives of
+ * the offspring before they are evaluated. The parameters are scaled by their
+ * range in the training set, and the objectives of the nearest neighbors are
+ * weighted by their inverse distance.
+ *
+ * The quality of the model is measured prequentially: the objectives of an
+ * offspring are predicted before its true objectives are added to the
+ * training set, and the errors of these predictions are accumulated.
+ *
+ * @author Prachi
+ */
+public class SurrogateModel {
+
+    private final ArchitectureDecoder decoder;
+
+    private final int numberOfObjectives;
+
+    /**
+     * The number of neighbors of a prediction
+     */
+    private final int neighbors;
+
+    /**
+     * The number of training solutions needed before the model predicts
+     */
+    private final int warmup;
+
+    /**
+     * The decoded parameters of the training solutions
+     */
+    private final ArrayList<double[]> parameters;
+
+    /**
+     * The objectives of the training solutions
+     */
+    private final ArrayList<double[]> objectives;
+
+    /**
+     * The architectures in the training set
+     */
+    private final HashSet<String> seen;
+
+    private double[] lowerBounds;
+
+    private double[] upperBounds;
+
+    /**
+     * The number of scored predictions
+     */
+    private int scored;
+
+    private final double[] absoluteError;
+
+    private final double[] squaredError;
+
+    private final double[] sum;
+
+    private final double[] squaredSum;
+
+    /**
+     * The number of candidate offspring ranked by the model
+     */
+    private long candidates;
+
+    /**
+     * The number of ranked candidate offspring that were truly evaluated
+     */
+    private long selected;
+
+    public SurrogateModel(ArchitectureDecoder decoder, int numberOfObjectives, int neighbors, int warmup) {
+        if (neighbors < 1) {
+            throw new IllegalArgumentException(String.format("Expected at least one neighbor. Found %d.", neighbors));
+        }
+        this.decoder = decoder;
+        this.numberOfObjectives = numberOfObjectives;
+        this.neighbors = neighbors;
+        this.warmup = Math.max(neighbors, warmup);
+        this.parameters = new ArrayList<>();
+        this.objectives = new ArrayList<>();
+        this.seen = new HashSet<>();
+        this.absoluteError = new double[numberOfObjectives];
+        this.squaredError = new double[numberOfObjectives];
+        this.sum = new double[numberOfObjectives];
+        this.squaredSum = new double[numberOfObjectives];
+    }
+
+    /**
+     * Creates the surrogate model given by the tatc.surrogateNeighbors and
+     * tatc.surrogateWarmup properties
+     *
+     * @param decoder the decoder of the solutions
+     * @param numberOfObjectives the number of objectives
+     * @return the surrogate model
+     */
+    public static SurrogateModel create(ArchitectureDecoder decoder, int numberOfObjectives) {
+        int neighbors = Integer.parseInt(System.getProperty("tatc.surrogateNeighbors", "5"));
+        int warmup = Integer.parseInt(System.getProperty("tatc.surrogateWarmup", "20"));
+        return new SurrogateModel(decoder, numberOfObjectives, neighbors, warmup);
+    }
+
+    /**
+     * Checks if the training set is large enough for the model to predict
+     *
+     * @return true if the model can predict
+     */
+    public synchronized boolean isReady() {
+        return parameters.size() >= warmup;
+    }
+
+    /**
+     * Adds an evaluated solution to the training set. Architectures already
+     * in the training set and solutions rejected by the screen are ignored.
+     *
+     * @param solution the evaluated solution
+     * @param score true if the prediction of the solution should be scored
+     * before the solution is added
+     */
+    public synchronized void add(Solution solution, boolean score) {
+        if (ScreeningEvaluator.isScreened(solution)) {
+            return;
+        }
+        double[] x = decoder.decode(solution);
+        if (!seen.add(Arrays.toString(x))) {
+            return;
+        }
+        double[] y = solution.getObjectives();
+        if (score && isReady()) {
+            double[] prediction = predict(x);
+            for (int i = 0; i < numberOfObjectives; i++) {
+                double error = prediction[i] - y[i];
+                absoluteError[i] += Math.abs(error);
+                squaredError[i] += error * error;
+                sum[i] += y[i];
+                squaredSum[i] += y[i] * y[i];
+            }
+            scored++;
+        }
+
+        if (lowerBounds == null) {
+            lowerBounds = x.clone();
+            upperBounds = x.clone();
+        }
+        for (int i = 0; i < x.length; i++) {
+            lowerBounds[i] = Math.min(lowerBounds[i], x[i]);
+            upperBounds[i] = Math.max(upperBounds[i], x[i]);
+        }
+        parameters.add(x);
+        objectives.add(y.clone());
+    }
+
+    /**
+     * Predicts the objectives of a solution
+     *
+     * @param solution the solution
+     * @return the predicted objectives
+     */
+    public synchronized double[] predict(Solution solution) {
+        if (!isReady()) {
+            throw new IllegalStateException(String.format("Expected at least %d training solutions. Found %d.",
+                    warmup, parameters.size()));
+        }
+        return predict(decoder.decode(solution));
+    }
+
+    private double[] predict(double[] x) {
+        int k = Math.min(neighbors, parameters.size());
+        //the k nearest neighbors sorted by distance
+        int[] nearest = new int[k];
+        double[] distances = new double[k];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int n = 0; n < parameters.size(); n++) {
+            double d = distance(x, parameters.get(n));
+            if (d >= distances[k - 1]) {
+                continue;
+            }
+            int j = k - 1;
+            while (j > 0 && distances[j - 1] > d) {
+                distances[j] = distances[j - 1];
+                nearest[j] = nearest[j - 1];
+                j--;
+            }
+            distances[j] = d;
+            nearest[j] = n;
+        }
+
+        double[] out = new double[numberOfObjectives];
+        if (distances[0] == 0) {
+            //the architecture was already evaluated
+            System.arraycopy(objectives.get(nearest[0]), 0, out, 0, numberOfObjectives);
+            return out;
+        }
+        double weights = 0;
+        for (int j = 0; j < k; j++) {
+            double w = 1. / distances[j];
+            double[] y = objectives.get(nearest[j]);
+            for (int i = 0; i < numberOfObjectives; i++) {
+                out[i] += w * y[i];
+            }
+            weights += w;
+        }
+        for (int i = 0; i < numberOfObjectives; i++) {
+            out[i] /= weights;
+        }
+        return out;
+    }
+
+    /**
+     * The Euclidean distance between two architectures with the parameters
+     * scaled by their range in the training set
+     */
+    private double distance(double[] a, double[] b) {
+        double out = 0;
+        for (int i = 0; i < a.length; i++) {
+            double range = upperBounds[i] - lowerBounds[i];
+            double d = range > 0 ? (a[i] - b[i]) / range : 0;
+            out += d * d;
+        }
+        return Math.sqrt(out);
+    }
+
+    /**
+     * Records that candidate offspring were ranked by the model
+     *
+     * @param candidates the number of candidate offspring
+     * @param selected the number of candidates that are truly evaluated
+     */
+    synchronized void recordRanking(int candidates, int selected) {
+        this.candidates += candidates;
+        this.selected += selected;
+    }
+
+    public synchronized int getTrainingSize() {
+        return parameters.size();
+    }
+
+    public synchronized int getScored() {
+        return scored;
+    }
+
+    /**
+     * Gets the mean absolute error of the scored predictions of an objective
+     *
+     * @param objective the index of the objective
+     * @return the mean absolute error
+     */
+    public synchronized double getMeanAbsoluteError(int objective) {
+        return absoluteError[objective] / scored;
+    }
+
+    /**
+     * Gets the root mean squared error of the scored predictions of an
+     * objective
+     *
+     * @param objective the index of the objective
+     * @return the root mean squared error
+     */
+    public synchronized double getRootMeanSquaredError(int objective) {
+        return Math.sqrt(squaredError[objective] / scored);
+    }
+
+    /**
+     * Gets the coefficient of determination of the scored predictions of an
+     * objective
+     *
+     * @param objective the index of the objective
+     * @return the coefficient of determination
+     */
+    public synchronized double getRSquared(int objective) {
+        double totalSquares = squaredSum[objective] - sum[objective] * sum[objective] / scored;
+        return 1. - squaredError[objective] / totalSquares;
+    }
+
+    /**
+     * Summarizes the quality of the model
+     *
+     * @return the summary of the quality of the model
+     */
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Surrogate model: %d training solutions, %d of %d ranked offspring evaluated, %d predictions scored",
+                parameters.size(), selected, candidates, scored));
+        if (scored > 0) {
+            for (int i = 0; i < numberOfObjectives; i++) {
+                sb.append(String.format("%n    objective %d: MAE %.4g, RMSE %.4g, R^2 %.3f",
+                        i, getMeanAbsoluteError(i), getRootMeanSquaredError(i), getRSquared(i)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package tatc.tradespaceiterator.search;
+
+import org.moeaframework.core.Population;
+import org.moeaframework.core.Solution;
+import org.moeaframework.core.Variation;
+import org.moeaframework.core.comparator.ParetoDominanceComparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Surrogate-assisted variation. The wrapped operator is applied several times
+ * to the parents, the objectives of the candidate offspring are predicted by
+ * the surrogate model, and only the most promising candidates are returned to
+ * be truly evaluated. The candidates are ranked by the number of archive
+ * members that dominate their predicted objectives, and then by the sum of
+ * their predicted objectives scaled over the candidates.
+ *
+ * The model is trained with the parents, which are already evaluated, and
+ * with the offspring returned by the previous call, which the algorithm
+ * evaluates before it breeds again. Until the model is ready, the offspring of
+ * the wrapped operator are returned unchanged.
+ *
+ * @author Prachi
+ */
+public class SurrogateVariation implements Variation {
+
+    private final Variation operator;
+
+    private final SurrogateModel model;
+
+    /**
+     * The archive of the search
+     */
+    private final Population archive;
+
+    /**
+     * The number of candidate offspring ranked for each offspring that is
+     * truly evaluated
+     */
+    private final int poolSize;
+
+    /**
+     * The offspring returned by the previous call
+     */
+    private final List<Solution> pending;
+
+    private final ParetoDominanceComparator comparator;
+
+    public SurrogateVariation(Variation operator, SurrogateModel model, Population archive, int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException(String.format("Expected a pool size of at least 1. Found %d.", poolSize));
+        }
+        this.operator = operator;
+        this.model = model;
+        this.archive = archive;
+        this.poolSize = poolSize;
+        this.pending = new ArrayList<>();
+        this.comparator = new ParetoDominanceComparator();
+    }
+
+    /**
+     * Gets the wrapped operator
+     *
+     * @return the wrapped operator
+     */
+    public Variation getOperator() {
+        return operator;
+    }
+
+    @Override
+    public int getArity() {
+        return operator.getArity();
+    }
+
+    @Override
+    public Solution[] evolve(Solution[] parents) {
+        for (Solution parent : parents) {
+            model.add(parent, false);
+        }
+        for (Solution offspring : pending) {
+            model.add(offspring, true);
+        }
+        pending.clear();
+
+        Solution[] offspring = operator.evolve(parents);
+        if (poolSize == 1 || !model.isReady()) {
+            pending.addAll(Arrays.asList(offspring));
+            return offspring;
+        }
+
+        List<Solution> candidates = new ArrayList<>(Arrays.asList(offspring));
+        for (int i = 1; i < poolSize; i++) {
+            candidates.addAll(Arrays.asList(operator.evolve(parents)));
+        }
+        Solution[] out = rank(candidates, offspring.length);
+        model.recordRanking(candidates.size(), out.length);
+        pending.addAll(Arrays.asList(out));
+        return out;
+    }
+
+    /**
+     * Ranks the candidates by their predicted objectives
+     *
+     * @param candidates the candidate offspring
+     * @param n the number of candidates to return
+     * @return the n most promising candidates
+     */
+    private Solution[] rank(List<Solution> candidates, int n) {
+        int numberOfObjectives = candidates.get(0).getNumberOfObjectives();
+        double[][] predictions = new double[candidates.size()][];
+        double[] lower = new double[numberOfObjectives];
+        double[] upper = new double[numberOfObjectives];
+        Arrays.fill(lower, Double.POSITIVE_INFINITY);
+        Arrays.fill(upper, Double.NEGATIVE_INFINITY);
+        for (int c = 0; c < candidates.size(); c++) {
+            predictions[c] = model.predict(candidates.get(c));
+            for (int i = 0; i < numberOfObjectives; i++) {
+                lower[i] = Math.min(lower[i], predictions[c][i]);
+                upper[i] = Math.max(upper[i], predictions[c][i]);
+            }
+        }
+
+        final int[] dominatedBy = new int[candidates.size()];
+        final double[] scaledSum = new double[candidates.size()];
+        for (int c = 0; c < candidates.size(); c++) {
+            Solution predicted = candidates.get(c).copy();
+            predicted.setObjectives(predictions[c]);
+            for (Solution member : archive) {
+                if (comparator.compare(member, predicted) < 0) {
+                    dominatedBy[c]++;
+                }
+            }
+            for (int i = 0; i < numberOfObjectives; i++) {
+                double range = upper[i] - lower[i];
+                scaledSum[c] += range > 0 ? (predictions[c][i] - lower[i]) / range : 0;
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            order.add(c);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int flag = Integer.compare(dominatedBy[a], dominatedBy[b]);
+                return flag != 0 ? flag : Double.compare(scaledSum[a], scaledSum[b]);
+            }
+        });
+
+        Solution[] out = new Solution[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = candidates.get(order.get(i));
+        }
+        return out;
+    }
+}
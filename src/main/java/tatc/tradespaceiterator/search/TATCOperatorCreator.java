@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -47,6 +48,18 @@ public class TATCOperatorCreator implements OperatorCreator {
         }
     }
 
+    /**
+     * Learns a new set of potential operators based on the mined features
+     *
+     * @param features
+     */
+    public void learnFeatures(List<DrivingFeature> features) {
+        operatorSet.clear(); // clear previously created operators
+        for (DrivingFeature feature : features) {
+            operatorSet.add(featureToOperator(feature.getName()));
+        }
+    }
+
     private Collection<String> readFeatures(File featureFile) {
         ArrayList<String> features = new ArrayList();
 